@@ -12,6 +12,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
@@ -139,11 +140,37 @@ public class AssignmentController {
     
     @GetMapping("/submissions/next-to-process")
     @PreAuthorize("hasRole('INSTRUCTOR') or hasRole('ADMIN')")
-    public ResponseEntity<ApiResponse<Submission>> getNextSubmissionToProcess() {
-        Submission submission = assignmentService.getNextSubmissionToProcess();
+    public ResponseEntity<ApiResponse<Submission>> getNextSubmissionToProcess(Authentication authentication) {
+        Submission submission = assignmentService.getNextSubmissionToProcess(authentication.getName());
         return ResponseEntity.ok(ApiResponse.success(submission));
     }
     
+    @PostMapping("/submissions/claim")
+    @PreAuthorize("hasRole('INSTRUCTOR') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<Submission>>> claimSubmissions(Authentication authentication,
+                                                                         @RequestParam(defaultValue = "10") int batchSize) {
+        List<Submission> submissions = assignmentService.claimSubmissions(authentication.getName(), batchSize);
+        return ResponseEntity.ok(ApiResponse.success(submissions));
+    }
+    
+    @PostMapping("/submissions/{id}/release")
+    @PreAuthorize("hasRole('INSTRUCTOR') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<String>> releaseSubmission(@PathVariable Long id, Authentication authentication) {
+        assignmentService.releaseSubmission(id, authentication.getName());
+        return ResponseEntity.ok(ApiResponse.success("Submission released successfully", null));
+    }
+    
+    @GetMapping("/submissions/pending")
+    @PreAuthorize("hasRole('INSTRUCTOR') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<Submission>>> getPendingSubmissions(
+            @RequestParam(required = false) Long courseId,
+            @RequestParam(required = false) Long assignmentId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        List<Submission> submissions = assignmentService.getPendingSubmissions(courseId, assignmentId, page, size);
+        return ResponseEntity.ok(ApiResponse.success(submissions));
+    }
+    
     @GetMapping("/{assignmentId}/statistics")
     @PreAuthorize("hasRole('INSTRUCTOR') or hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<Map<String, Object>>> getAssignmentStatistics(@PathVariable Long assignmentId) {
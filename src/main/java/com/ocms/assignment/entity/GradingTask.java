@@ -0,0 +1,69 @@
+package com.ocms.assignment.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "grading_tasks", indexes = {
+    @Index(name = "idx_grading_tasks_claimable", columnList = "status, due_date"),
+    @Index(name = "idx_grading_tasks_assignment", columnList = "assignment_id"),
+    // Pending submissions are listed in deadline order
+    @Index(name = "idx_grading_tasks_due_date", columnList = "due_date, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GradingTask {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "submission_id", nullable = false, unique = true)
+    private Long submissionId;
+    
+    @Column(name = "assignment_id", nullable = false)
+    private Long assignmentId;
+    
+    // Copied from the assignment so claims can be ordered without a join
+    @Column(name = "due_date", nullable = false)
+    private LocalDateTime dueDate;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TaskStatus status = TaskStatus.PENDING;
+    
+    @Column(name = "claimed_by")
+    private String claimedBy;
+    
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+    
+    @Column(name = "attempts")
+    private int attempts = 0;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+    
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+    
+    public enum TaskStatus {
+        PENDING, CLAIMED
+    }
+}
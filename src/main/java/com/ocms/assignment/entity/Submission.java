@@ -9,7 +9,10 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "submissions")
+// Per-user reports aggregate a user's submissions within a date range straight from this index
+@Table(name = "submissions", indexes = {
+    @Index(name = "idx_submissions_user_submitted_on", columnList = "user_id, submitted_on")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
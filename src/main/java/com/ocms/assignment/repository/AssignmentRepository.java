@@ -1,8 +1,11 @@
 package com.ocms.assignment.repository;
 
 import com.ocms.assignment.entity.Assignment;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -14,6 +17,11 @@ public interface AssignmentRepository extends JpaRepository<Assignment, Long> {
     
     List<Assignment> findByCourseId(Long courseId);
     
+    // Cached per course until the next write to the assignments table
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "query.assignment.active-by-course")
+    })
     List<Assignment> findByCourseIdAndIsActiveTrue(Long courseId);
     
     @Query("SELECT a FROM Assignment a WHERE a.dueDate < :now AND a.isActive = true")
@@ -0,0 +1,77 @@
+package com.ocms.assignment.repository;
+
+import com.ocms.assignment.entity.GradingTask;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface GradingTaskRepository extends JpaRepository<GradingTask, Long> {
+    
+    // Claimable tasks in deadline order, read without locking; only the ones a claim picks are then locked
+    @Query("SELECT t.id AS id, t.assignmentId AS assignmentId FROM GradingTask t WHERE t.status = :pending " +
+           "OR (t.status = :claimed AND t.leaseExpiresAt < :now) ORDER BY t.dueDate, t.id")
+    List<ClaimCandidate> findClaimCandidates(@Param("pending") GradingTask.TaskStatus pending,
+                                             @Param("claimed") GradingTask.TaskStatus claimed,
+                                             @Param("now") LocalDateTime now,
+                                             Pageable pageable);
+    
+    // SELECT ... FOR UPDATE SKIP LOCKED over the picked tasks: concurrent claimers never wait on each other's rows,
+    // and tasks claimed by someone else since they were read no longer match
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT t FROM GradingTask t WHERE t.id IN :ids AND (t.status = :pending " +
+           "OR (t.status = :claimed AND t.leaseExpiresAt < :now))")
+    List<GradingTask> lockClaimableTasks(@Param("ids") List<Long> ids,
+                                         @Param("pending") GradingTask.TaskStatus pending,
+                                         @Param("claimed") GradingTask.TaskStatus claimed,
+                                         @Param("now") LocalDateTime now);
+    
+    @Query("SELECT t.submissionId FROM GradingTask t " +
+           "WHERE (:assignmentId IS NULL OR t.assignmentId = :assignmentId) " +
+           "AND (:courseId IS NULL OR t.assignmentId IN " +
+           "(SELECT a.id FROM Assignment a WHERE a.course.id = :courseId)) " +
+           "ORDER BY t.dueDate, t.id")
+    List<Long> findPendingSubmissionIds(@Param("courseId") Long courseId,
+                                        @Param("assignmentId") Long assignmentId,
+                                        Pageable pageable);
+    
+    // Queues every ungraded submission that has no task yet, e.g. submissions from before the queue table
+    @Modifying
+    @Query("INSERT INTO GradingTask (submissionId, assignmentId, dueDate, status, attempts, createdAt, updatedAt) " +
+           "SELECT s.id, a.id, a.dueDate, :pending, 0, LOCAL DATETIME, LOCAL DATETIME " +
+           "FROM Submission s JOIN s.assignment a " +
+           "WHERE s.isGraded = false AND NOT EXISTS (SELECT 1 FROM GradingTask t WHERE t.submissionId = s.id)")
+    int insertMissing(@Param("pending") GradingTask.TaskStatus pending);
+    
+    @Modifying
+    @Query("UPDATE GradingTask t SET t.dueDate = :dueDate WHERE t.assignmentId = :assignmentId")
+    int updateDueDateByAssignment(@Param("assignmentId") Long assignmentId, @Param("dueDate") LocalDateTime dueDate);
+    
+    @Modifying
+    @Query("UPDATE GradingTask t SET t.status = :pending, t.claimedBy = null, t.leaseExpiresAt = null " +
+           "WHERE t.submissionId = :submissionId AND t.claimedBy = :grader")
+    int releaseClaim(@Param("submissionId") Long submissionId,
+                     @Param("grader") String grader,
+                     @Param("pending") GradingTask.TaskStatus pending);
+    
+    @Modifying
+    @Query("DELETE FROM GradingTask t WHERE t.submissionId = :submissionId")
+    int deleteBySubmissionId(@Param("submissionId") Long submissionId);
+    
+    interface ClaimCandidate {
+        Long getId();
+        
+        Long getAssignmentId();
+    }
+}
@@ -1,13 +1,19 @@
 package com.ocms.assignment.repository;
 
 import com.ocms.assignment.entity.Submission;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface SubmissionRepository extends JpaRepository<Submission, Long> {
@@ -24,6 +30,79 @@ public interface SubmissionRepository extends JpaRepository<Submission, Long> {
     @Query("SELECT s FROM Submission s WHERE s.assignment.id = :assignmentId AND s.isGraded = false")
     List<Submission> findUngradedSubmissionsByAssignment(@Param("assignmentId") Long assignmentId);
     
+    @Query("SELECT s FROM Submission s JOIN FETCH s.assignment WHERE s.id IN :ids")
+    List<Submission> findWithAssignmentByIdIn(@Param("ids") List<Long> ids);
+    
     @Query("SELECT AVG(s.score) FROM Submission s WHERE s.assignment.id = :assignmentId AND s.isGraded = true")
     Double getAverageScoreByAssignment(@Param("assignmentId") Long assignmentId);
+    
+    // Aggregates of a user's submissions strictly between start and end, computed by the database from the
+    // (user_id, submitted_on) index so that no submission (or its content) is loaded
+    @Query("SELECT COUNT(s) AS total, " +
+           "SUM(CASE WHEN s.isGraded = true THEN 1 ELSE 0 END) AS graded, " +
+           "AVG(CASE WHEN s.isGraded = true THEN s.score END) AS averageScore " +
+           "FROM Submission s WHERE s.user.id = :userId AND s.submittedOn > :start AND s.submittedOn < :end")
+    SubmissionSummary summarizeByUser(@Param("userId") Long userId,
+                                      @Param("start") LocalDateTime start,
+                                      @Param("end") LocalDateTime end);
+    
+    @Query("SELECT CAST(s.submittedOn AS LocalDate) AS day, COUNT(s) AS submissions " +
+           "FROM Submission s WHERE s.user.id = :userId AND s.submittedOn > :start AND s.submittedOn < :end " +
+           "GROUP BY CAST(s.submittedOn AS LocalDate) ORDER BY CAST(s.submittedOn AS LocalDate)")
+    List<DailySubmissions> countByUserPerDay(@Param("userId") Long userId,
+                                             @Param("start") LocalDateTime start,
+                                             @Param("end") LocalDateTime end);
+    
+    // Submissions of an assignment grouped by score bucket, the graded score's share of maxScore split into
+    // `buckets` equal ranges (a full score lands in bucket `buckets`). Ungraded and unscored submissions form the
+    // group with a null bucket. Everything the statistics need comes from this one scan.
+    // :buckets is cast explicitly, as Hibernate would otherwise bind it as a double with a cast H2 cannot parse.
+    @Query("SELECT CASE WHEN s.isGraded = true AND s.score IS NOT NULL " +
+           "THEN CAST(FLOOR(s.score * CAST(:buckets AS Integer) / s.assignment.maxScore) AS Integer) END AS bucket, " +
+           "COUNT(s) AS submissions, " +
+           "SUM(CASE WHEN s.isGraded = true THEN 1 ELSE 0 END) AS graded, " +
+           "MIN(s.score) AS lowestScore, MAX(s.score) AS highestScore, " +
+           "SUM(s.score) AS scoreSum, SUM(s.score * s.score) AS scoreSquareSum " +
+           "FROM Submission s WHERE s.assignment.id = :assignmentId GROUP BY bucket")
+    List<ScoreBucket> summarizeScoresByBucket(@Param("assignmentId") Long assignmentId,
+                                              @Param("buckets") int buckets);
+    
+    // Graded scores only, streamed so that quantiles can be estimated without loading submissions
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT s.score FROM Submission s " +
+           "WHERE s.assignment.id = :assignmentId AND s.isGraded = true AND s.score IS NOT NULL")
+    Stream<Double> streamGradedScores(@Param("assignmentId") Long assignmentId);
+    
+    interface ScoreBucket {
+        // Null for the ungraded and unscored submissions
+        Integer getBucket();
+        
+        long getSubmissions();
+        
+        long getGraded();
+        
+        Double getLowestScore();
+        
+        Double getHighestScore();
+        
+        Double getScoreSum();
+        
+        Double getScoreSquareSum();
+    }
+    
+    interface SubmissionSummary {
+        long getTotal();
+        
+        // Null when there are no submissions
+        Long getGraded();
+        
+        // Null when no submission is graded
+        Double getAverageScore();
+    }
+    
+    interface DailySubmissions {
+        LocalDate getDay();
+        
+        long getSubmissions();
+    }
 }
\ No newline at end of file
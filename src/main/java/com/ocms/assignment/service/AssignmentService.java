@@ -4,10 +4,11 @@ import com.ocms.assignment.dto.AssignmentDto;
 import com.ocms.assignment.dto.GradeSubmissionDto;
 import com.ocms.assignment.dto.SubmissionDto;
 import com.ocms.assignment.entity.Assignment;
+import com.ocms.assignment.entity.GradingTask;
 import com.ocms.assignment.entity.Submission;
 import com.ocms.assignment.repository.AssignmentRepository;
 import com.ocms.assignment.repository.SubmissionRepository;
-import com.ocms.common.datastructures.PriorityQueue;
+import com.ocms.common.datastructures.QuantileSketch;
 import com.ocms.common.exception.ResourceNotFoundException;
 import com.ocms.course.entity.Course;
 import com.ocms.course.service.CourseService;
@@ -15,12 +16,17 @@ import com.ocms.user.entity.User;
 import com.ocms.user.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -30,11 +36,13 @@ public class AssignmentService {
     private final SubmissionRepository submissionRepository;
     private final CourseService courseService;
     private final UserService userService;
+    private final GradingQueueService gradingQueueService;
     
-    // PriorityQueue for handling assignment submissions based on deadlines
-    private final PriorityQueue<Submission> submissionQueue = new PriorityQueue<>(
-        Comparator.comparing(s -> s.getAssignment().getDueDate())
-    );
+    // Score distribution in tenths of the assignment's maxScore
+    private static final int SCORE_BUCKETS = 10;
+    
+    // Median and 90th percentile are within about 1% of the graded submissions' ranks
+    private static final int SCORE_SKETCH_SIZE = 200;
     
     public Assignment createAssignment(AssignmentDto assignmentDto) {
         Course course = courseService.getCourseById(assignmentDto.getCourseId());
@@ -71,7 +79,9 @@ public class AssignmentService {
         if (assignmentDto.getDescription() != null) {
             assignment.setDescription(assignmentDto.getDescription());
         }
+        boolean dueDateChanged = false;
         if (assignmentDto.getDueDate() != null) {
+            dueDateChanged = !assignmentDto.getDueDate().equals(assignment.getDueDate());
             assignment.setDueDate(assignmentDto.getDueDate());
         }
         if (assignmentDto.getMaxScore() != null) {
@@ -82,7 +92,14 @@ public class AssignmentService {
             assignment.setCourse(course);
         }
         
-        return assignmentRepository.save(assignment);
+        Assignment savedAssignment = assignmentRepository.save(assignment);
+        
+        // Move already queued submissions to their new deadline position
+        if (dueDateChanged) {
+            gradingQueueService.updateDueDate(savedAssignment.getId(), savedAssignment.getDueDate());
+        }
+        
+        return savedAssignment;
     }
     
     public void deleteAssignment(Long id) {
@@ -91,6 +108,7 @@ public class AssignmentService {
         assignmentRepository.save(assignment);
     }
     
+    @Transactional
     public Submission submitAssignment(SubmissionDto submissionDto) {
         Assignment assignment = getAssignmentById(submissionDto.getAssignmentId());
         User user = userService.getUserById(submissionDto.getUserId());
@@ -115,8 +133,8 @@ public class AssignmentService {
         
         Submission savedSubmission = submissionRepository.save(submission);
         
-        // Add to priority queue for processing
-        submissionQueue.enqueue(savedSubmission);
+        // Add to the durable grading queue, which every node claims from and lists pending work from
+        gradingQueueService.enqueue(savedSubmission);
         
         return savedSubmission;
     }
@@ -129,6 +147,16 @@ public class AssignmentService {
         return submissionRepository.findByUserId(userId);
     }
     
+    public SubmissionRepository.SubmissionSummary summarizeSubmissionsByUser(Long userId, LocalDateTime start,
+                                                                          LocalDateTime end) {
+        return submissionRepository.summarizeByUser(userId, start, end);
+    }
+    
+    public List<SubmissionRepository.DailySubmissions> countSubmissionsByUserPerDay(Long userId, LocalDateTime start,
+                                                                                    LocalDateTime end) {
+        return submissionRepository.countByUserPerDay(userId, start, end);
+    }
+    
     public Submission getSubmissionById(Long id) {
         return submissionRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Submission not found with id: " + id));
@@ -141,7 +169,12 @@ public class AssignmentService {
         submission.setFeedback(gradeDto.getFeedback());
         submission.setGraded(true);
         
-        return submissionRepository.save(submission);
+        Submission gradedSubmission = submissionRepository.save(submission);
+        
+        // Graded submissions no longer need processing
+        gradingQueueService.complete(submissionId);
+        
+        return gradedSubmission;
     }
     
     public List<Submission> getUngradedSubmissions(Long assignmentId) {
@@ -164,31 +197,120 @@ public class AssignmentService {
         return assignmentRepository.findAssignmentsByDateRange(start, end);
     }
     
-    public Submission getNextSubmissionToProcess() {
-        if (submissionQueue.isEmpty()) {
-            return null;
+    public Submission getNextSubmissionToProcess(String grader) {
+        List<Submission> claimed = claimSubmissions(grader, 1);
+        return claimed.isEmpty() ? null : claimed.get(0);
+    }
+    
+    // Leases a batch of submissions to the grader; they stay pending until graded or the lease expires
+    public List<Submission> claimSubmissions(String grader, int batchSize) {
+        List<GradingTask> tasks = gradingQueueService.claim(grader, batchSize);
+        return findSubmissionsInOrder(tasks.stream().map(GradingTask::getSubmissionId).collect(Collectors.toList()));
+    }
+    
+    // Loads the submissions with their assignments in one query, in the order of the given ids
+    private List<Submission> findSubmissionsInOrder(List<Long> submissionIds) {
+        if (submissionIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Submission> submissions = submissionRepository.findWithAssignmentByIdIn(submissionIds).stream()
+                .collect(Collectors.toMap(Submission::getId, Function.identity()));
+        
+        List<Submission> ordered = new ArrayList<>();
+        for (Long submissionId : submissionIds) {
+            Submission submission = submissions.get(submissionId);
+            if (submission != null) {
+                ordered.add(submission);
+            }
+        }
+        return ordered;
+    }
+    
+    public void releaseSubmission(Long submissionId, String grader) {
+        if (!gradingQueueService.release(submissionId, grader)) {
+            throw new ResourceNotFoundException("No claim held on submission with id: " + submissionId);
         }
-        return submissionQueue.dequeue();
     }
     
+    // First page only, of at most grading.queue.max-page-size submissions; page with the overload below for the rest
     public List<Submission> getPendingSubmissions() {
-        // This would need to be implemented based on your specific requirements
-        // For now, returning empty list as we don't have a way to iterate through PriorityQueue
-        return List.of();
+        return getPendingSubmissions(null, null, 0, Integer.MAX_VALUE);
+    }
+    
+    // Submissions waiting in the durable grading queue, claimed or not, in deadline order; graded ones leave it
+    @Transactional(readOnly = true)
+    public List<Submission> getPendingSubmissions(Long courseId, Long assignmentId, int page, int size) {
+        return findSubmissionsInOrder(gradingQueueService.getPendingSubmissionIds(courseId, assignmentId, page, size));
     }
     
+    // Counts and score moments from one grouped aggregate query, plus median and 90th percentile estimated with a
+    // quantile sketch over the streamed scores; no submission is loaded. The distribution splits graded scores into
+    // equal shares of the assignment's maxScore.
+    @Transactional(readOnly = true)
     public Map<String, Object> getAssignmentStatistics(Long assignmentId) {
-        List<Submission> allSubmissions = submissionRepository.findByAssignmentId(assignmentId);
-        List<Submission> gradedSubmissions = submissionRepository.findGradedSubmissionsByAssignment(assignmentId);
-        Double averageScore = submissionRepository.getAverageScoreByAssignment(assignmentId);
+        Assignment assignment = getAssignmentById(assignmentId);
         
-        Map<String, Object> stats = Map.of(
-            "totalSubmissions", allSubmissions.size(),
-            "gradedSubmissions", gradedSubmissions.size(),
-            "ungradedSubmissions", allSubmissions.size() - gradedSubmissions.size(),
-            "averageScore", averageScore != null ? averageScore : 0.0
-        );
+        long totalSubmissions = 0;
+        long gradedSubmissions = 0;
+        long scoredSubmissions = 0;
+        double scoreSum = 0;
+        double scoreSquareSum = 0;
+        double lowestScore = Double.POSITIVE_INFINITY;
+        double highestScore = Double.NEGATIVE_INFINITY;
+        long[] distribution = new long[SCORE_BUCKETS];
+        for (SubmissionRepository.ScoreBucket bucket :
+                submissionRepository.summarizeScoresByBucket(assignmentId, SCORE_BUCKETS)) {
+            totalSubmissions += bucket.getSubmissions();
+            gradedSubmissions += bucket.getGraded();
+            if (bucket.getBucket() == null) {
+                continue;
+            }
+            // A full score is counted in the top bucket; scores outside [0, maxScore] in the nearest one
+            distribution[Math.min(Math.max(bucket.getBucket(), 0), SCORE_BUCKETS - 1)] += bucket.getSubmissions();
+            scoredSubmissions += bucket.getSubmissions();
+            scoreSum += bucket.getScoreSum();
+            scoreSquareSum += bucket.getScoreSquareSum();
+            lowestScore = Math.min(lowestScore, bucket.getLowestScore());
+            highestScore = Math.max(highestScore, bucket.getHighestScore());
+        }
+        
+        QuantileSketch scores = new QuantileSketch(SCORE_SKETCH_SIZE);
+        if (scoredSubmissions > 0) {
+            try (Stream<Double> stream = submissionRepository.streamGradedScores(assignmentId)) {
+                stream.forEach(scores::add);
+            }
+        }
+        
+        boolean scored = scoredSubmissions > 0;
+        double averageScore = scored ? scoreSum / scoredSubmissions : 0.0;
+        // Population standard deviation; the difference can dip below zero through rounding
+        double variance = scored ? Math.max(0, scoreSquareSum / scoredSubmissions - averageScore * averageScore) : 0;
+        
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("totalSubmissions", totalSubmissions);
+        stats.put("gradedSubmissions", gradedSubmissions);
+        stats.put("ungradedSubmissions", totalSubmissions - gradedSubmissions);
+        stats.put("averageScore", averageScore);
+        stats.put("maxScore", assignment.getMaxScore());
+        stats.put("lowestScore", scored ? lowestScore : 0.0);
+        stats.put("highestScore", scored ? highestScore : 0.0);
+        stats.put("scoreStandardDeviation", Math.sqrt(variance));
+        stats.put("medianScore", scored ? scores.quantile(0.5) : 0.0);
+        stats.put("p90Score", scored ? scores.quantile(0.9) : 0.0);
+        stats.put("scoreDistribution", scoreDistribution(distribution));
         
         return stats;
     }
+    
+    private static List<Map<String, Object>> scoreDistribution(long[] distribution) {
+        List<Map<String, Object>> buckets = new ArrayList<>(distribution.length);
+        for (int i = 0; i < distribution.length; i++) {
+            Map<String, Object> bucket = new LinkedHashMap<>();
+            bucket.put("fromPercent", 100.0 * i / distribution.length);
+            bucket.put("toPercent", 100.0 * (i + 1) / distribution.length);
+            bucket.put("count", distribution[i]);
+            buckets.add(bucket);
+        }
+        return buckets;
+    }
 }
\ No newline at end of file
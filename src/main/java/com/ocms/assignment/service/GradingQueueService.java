@@ -0,0 +1,159 @@
+package com.ocms.assignment.service;
+
+import com.ocms.assignment.entity.GradingTask;
+import com.ocms.assignment.entity.Submission;
+import com.ocms.assignment.repository.GradingTaskRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Durable grading work queue shared by all application nodes.
+// Claims are leased; a task whose lease expires becomes claimable again.
+@Service
+@RequiredArgsConstructor
+public class GradingQueueService {
+    
+    // Candidates read per claim, as a multiple of the batch size, to spread a batch across assignments
+    private static final int FAIRNESS_WINDOW = 4;
+    
+    // Windows read per claim when concurrent claimers take some of the picked tasks first
+    private static final int MAX_CLAIM_ATTEMPTS = 3;
+    
+    private final GradingTaskRepository gradingTaskRepository;
+    
+    @Value("${grading.queue.lease-seconds:900}")
+    private long leaseSeconds;
+    
+    @Value("${grading.queue.max-batch-size:50}")
+    private int maxBatchSize;
+    
+    @Value("${grading.queue.max-page-size:100}")
+    private int maxPageSize;
+    
+    // Queues the ungraded submissions made before the grading_tasks table existed, which intake never enqueued
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillTasks() {
+        gradingTaskRepository.insertMissing(GradingTask.TaskStatus.PENDING);
+    }
+    
+    @Transactional
+    public GradingTask enqueue(Submission submission) {
+        GradingTask task = new GradingTask();
+        task.setSubmissionId(submission.getId());
+        task.setAssignmentId(submission.getAssignment().getId());
+        task.setDueDate(submission.getAssignment().getDueDate());
+        return gradingTaskRepository.save(task);
+    }
+    
+    // Claims up to batchSize tasks, earliest deadline first, taking them round-robin across assignments.
+    // The candidate window is read without locks and only the picked tasks are locked, skipping any another
+    // claimer holds, so concurrent claimers never hold rows they do not take. Tasks lost to them are replaced from
+    // a larger window that leaves them out, since their claims may not be visible to it yet.
+    @Transactional
+    public List<GradingTask> claim(String grader, int batchSize) {
+        int limit = Math.max(1, Math.min(batchSize, maxBatchSize));
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime leaseExpiresAt = now.plusSeconds(leaseSeconds);
+        
+        List<GradingTask> claimed = new ArrayList<>();
+        Set<Long> lost = new HashSet<>();
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS && claimed.size() < limit; attempt++) {
+            int wanted = limit - claimed.size();
+            List<GradingTaskRepository.ClaimCandidate> candidates = gradingTaskRepository.findClaimCandidates(
+                    GradingTask.TaskStatus.PENDING, GradingTask.TaskStatus.CLAIMED, now,
+                    PageRequest.of(0, (wanted + lost.size()) * FAIRNESS_WINDOW));
+            candidates.removeIf(candidate -> lost.contains(candidate.getId()));
+            if (candidates.isEmpty()) {
+                break;
+            }
+            List<Long> picked = pickRoundRobin(candidates, wanted);
+            
+            Map<Long, GradingTask> locked = new HashMap<>();
+            for (GradingTask task : gradingTaskRepository.lockClaimableTasks(picked,
+                    GradingTask.TaskStatus.PENDING, GradingTask.TaskStatus.CLAIMED, now)) {
+                locked.put(task.getId(), task);
+            }
+            // Marked before the next window is read, which flushes them and so no longer sees them as claimable
+            for (Long id : picked) {
+                GradingTask task = locked.get(id);
+                if (task != null) {
+                    task.setStatus(GradingTask.TaskStatus.CLAIMED);
+                    task.setClaimedBy(grader);
+                    task.setLeaseExpiresAt(leaseExpiresAt);
+                    task.setAttempts(task.getAttempts() + 1);
+                    claimed.add(task);
+                } else {
+                    lost.add(id);
+                }
+            }
+        }
+        
+        return gradingTaskRepository.saveAll(claimed);
+    }
+    
+    // Candidates arrive in deadline order, so assignments are visited by their earliest deadline
+    private static List<Long> pickRoundRobin(List<GradingTaskRepository.ClaimCandidate> candidates, int limit) {
+        Map<Long, Deque<Long>> byAssignment = new LinkedHashMap<>();
+        for (GradingTaskRepository.ClaimCandidate candidate : candidates) {
+            byAssignment.computeIfAbsent(candidate.getAssignmentId(), k -> new ArrayDeque<>()).add(candidate.getId());
+        }
+        
+        List<Long> picked = new ArrayList<>();
+        while (picked.size() < limit && !byAssignment.isEmpty()) {
+            Iterator<Deque<Long>> queues = byAssignment.values().iterator();
+            while (queues.hasNext() && picked.size() < limit) {
+                Deque<Long> queue = queues.next();
+                picked.add(queue.poll());
+                if (queue.isEmpty()) {
+                    queues.remove();
+                }
+            }
+        }
+        return picked;
+    }
+    
+    // Hands an abandoned claim back to the queue immediately instead of waiting for the lease to expire
+    @Transactional
+    public boolean release(Long submissionId, String grader) {
+        return gradingTaskRepository.releaseClaim(submissionId, grader, GradingTask.TaskStatus.PENDING) > 0;
+    }
+    
+    @Transactional
+    public void complete(Long submissionId) {
+        gradingTaskRepository.deleteBySubmissionId(submissionId);
+    }
+    
+    @Transactional
+    public void updateDueDate(Long assignmentId, LocalDateTime dueDate) {
+        gradingTaskRepository.updateDueDateByAssignment(assignmentId, dueDate);
+    }
+    
+    // Ids of the queued submissions, optionally of one course or assignment, in deadline order.
+    // Pages hold at most grading.queue.max-page-size ids.
+    @Transactional(readOnly = true)
+    public List<Long> getPendingSubmissionIds(Long courseId, Long assignmentId, int page, int size) {
+        return gradingTaskRepository.findPendingSubmissionIds(courseId, assignmentId,
+                PageRequest.of(page, getPageSize(size)));
+    }
+    
+    private int getPageSize(int size) {
+        return Math.max(1, Math.min(size, maxPageSize));
+    }
+}
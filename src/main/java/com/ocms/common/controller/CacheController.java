@@ -0,0 +1,32 @@
+package com.ocms.common.controller;
+
+import com.ocms.common.dto.ApiResponse;
+import com.ocms.common.service.SecondLevelCacheService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/cache")
+@RequiredArgsConstructor
+public class CacheController {
+    
+    private final SecondLevelCacheService secondLevelCacheService;
+    
+    @GetMapping("/regions")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Map<String, SecondLevelCacheService.RegionStats>>> getRegionStats() {
+        Map<String, SecondLevelCacheService.RegionStats> stats = secondLevelCacheService.getRegionStats();
+        return ResponseEntity.ok(ApiResponse.success(stats));
+    }
+    
+    @DeleteMapping("/regions")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Void>> evictAll() {
+        secondLevelCacheService.evictAll();
+        return ResponseEntity.ok(ApiResponse.success("Second-level cache cleared", null));
+    }
+}
@@ -0,0 +1,143 @@
+package com.ocms.common.datastructures;
+
+import java.util.concurrent.locks.StampedLock;
+
+// Shared key handling for the primitive long-keyed maps: open addressing with linear probing over a flat long[],
+// so no key is boxed and no entry object is allocated. 0 marks a free slot; the key 0 itself is stored aside.
+// Writers are serialized by a StampedLock. Readers probe under an optimistic stamp and retry under the read lock
+// only if a writer ran in between, so concurrent reads never block each other.
+abstract class AbstractLongHashMap {
+
+    static final int DEFAULT_CAPACITY = 16;
+
+    // Linear probing degrades quickly past ~70% occupancy
+    private static final int MAX_FILL_NUMERATOR = 2;
+    private static final int MAX_FILL_DENOMINATOR = 3;
+
+    final StampedLock lock = new StampedLock();
+
+    long[] keys;
+    boolean hasZeroKey;
+    int size;
+
+    AbstractLongHashMap(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Illegal expected size: " + expectedSize);
+        }
+        this.keys = new long[tableSizeFor(expectedSize)];
+    }
+
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int result = size;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                result = size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return result;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean containsKey(long key) {
+        long stamp = lock.tryOptimisticRead();
+        boolean found = key == 0 ? hasZeroKey : indexOf(keys, key) >= 0;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                found = key == 0 ? hasZeroKey : indexOf(keys, key) >= 0;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return found;
+    }
+
+    // Slot holding the key, or -1. Safe to call on a torn view during an optimistic read:
+    // it never leaves the array and gives up after one full pass.
+    static int indexOf(long[] keys, long key) {
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        for (int probes = 0; probes < keys.length; probes++) {
+            long current = keys[index];
+            if (current == key) {
+                return index;
+            }
+            if (current == 0) {
+                return -1;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Slot holding the key, or (-(free slot) - 1). Writers only, with enough free slots guaranteed by ensureCapacity.
+    final int insertionIndex(long key) {
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (true) {
+            long current = keys[index];
+            if (current == key) {
+                return index;
+            }
+            if (current == 0) {
+                return -index - 1;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    // Backward-shift deletion: pulls later entries of the probe chain into the gap, so no tombstones are needed
+    final void removeAt(int index) {
+        int mask = keys.length - 1;
+        int gap = index;
+        int next = (gap + 1) & mask;
+        while (keys[next] != 0) {
+            int home = mix(keys[next]) & mask;
+            // Move the entry if its home slot is not cyclically within (gap, next]
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                moveValue(next, gap);
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = 0;
+        clearValue(gap);
+    }
+
+    // Grows the table before an insertion would push it past the maximum fill
+    final void ensureCapacity() {
+        int stored = hasZeroKey ? size - 1 : size;
+        if ((long) (stored + 1) * MAX_FILL_DENOMINATOR > (long) keys.length * MAX_FILL_NUMERATOR) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    // Copies every entry into tables of the given capacity and installs them
+    abstract void rehash(int capacity);
+
+    abstract void moveValue(int from, int to);
+
+    abstract void clearValue(int index);
+
+    static int tableSizeFor(int expectedSize) {
+        long required = (long) expectedSize * MAX_FILL_DENOMINATOR / MAX_FILL_NUMERATOR + 1;
+        if (required > (1 << 30)) {
+            throw new IllegalArgumentException("Expected size too large: " + expectedSize);
+        }
+        return Math.max(DEFAULT_CAPACITY, Integer.highestOneBit((int) required - 1) << 1);
+    }
+
+    // Fibonacci hashing spreads sequential ids evenly over the table
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
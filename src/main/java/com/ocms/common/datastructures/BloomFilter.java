@@ -0,0 +1,107 @@
+package com.ocms.common.datastructures;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Probabilistic set of strings: mightContain never returns false for a string that was put, and returns true for
+// an absent string with roughly the configured false-positive rate while no more than the expected number of
+// strings have been put. Strings cannot be removed; rebuild a new filter to drop them.
+// Bits are set with atomic ORs, so puts and lookups may run concurrently without locks.
+public class BloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray words;
+    private final long bitSize;
+    private final int hashCount;
+    private final LongAdder bitCount = new LongAdder();
+
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("Expected insertions must be > 0: " + expectedInsertions);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False positive rate must be in (0, 1): " + falsePositiveRate);
+        }
+        // Optimal size m = -n ln p / (ln 2)^2 and hash count k = m/n ln 2, with m rounded up to whole words
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (LN2 * LN2));
+        long wordCount = Math.max(1, (bits + 63) >>> 6);
+        if (wordCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bloom filter too large: " + bits + " bits");
+        }
+        this.words = new AtomicLongArray((int) wordCount);
+        this.bitSize = wordCount << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * LN2));
+    }
+
+    // Returns true if any bit changed, i.e. the string was definitely not present before
+    public boolean put(CharSequence value) {
+        long hash1 = mix(hashCode(value) + 0x9E3779B97F4A7C15L);
+        long hash2 = mix(hash1 ^ 0xC2B2AE3D27D4EB4FL) | 1;
+        boolean changed = false;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = indexOf(hash1 + i * hash2);
+            long mask = 1L << bit;
+            long previous = words.getAndAccumulate((int) (bit >>> 6), mask, (word, m) -> word | m);
+            if ((previous & mask) == 0) {
+                bitCount.increment();
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    public boolean mightContain(CharSequence value) {
+        long hash1 = mix(hashCode(value) + 0x9E3779B97F4A7C15L);
+        long hash2 = mix(hash1 ^ 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = indexOf(hash1 + i * hash2);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long bitSize() {
+        return bitSize;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    // Current false-positive probability, from the fraction of bits set; grows past the configured rate
+    // once more strings than expected have been put
+    public double expectedFalsePositiveRate() {
+        return Math.pow((double) bitCount.sum() / bitSize, hashCount);
+    }
+
+    // Maps the hash onto [0, bitSize) with a multiply instead of a division (Lemire's fast range reduction)
+    private long indexOf(long combinedHash) {
+        return Math.multiplyHigh(combinedHash & Long.MAX_VALUE, bitSize << 1);
+    }
+
+    // Same value as String.hashCode, which Strings cache, so repeated lookups of one instance hash only once.
+    // Two 64-bit hashes derived from it, combined as h1 + i * h2, give the k probe positions (Kirsch-Mitzenmacher).
+    private static int hashCode(CharSequence value) {
+        if (value instanceof String string) {
+            return string.hashCode();
+        }
+        int h = 0;
+        for (int i = 0; i < value.length(); i++) {
+            h = 31 * h + value.charAt(i);
+        }
+        return h;
+    }
+
+    // MurmurHash3 finalizer: every input bit affects every output bit
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -5,6 +5,9 @@ import lombok.Data;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
+// No longer used: module sequences are PersistentList snapshots, which give O(log n) indexed access
+// without the per-node walk of get(index)
+@Deprecated
 public class LinkedList<T> implements Iterable<T> {
     
     @Data
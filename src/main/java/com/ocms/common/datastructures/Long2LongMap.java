@@ -0,0 +1,186 @@
+package com.ocms.common.datastructures;
+
+// Open-addressing map from primitive long keys to primitive long values, e.g. counters keyed by id.
+// Reads are lock-free in the common case and may run concurrently with writers; single-key updates are atomic.
+public class Long2LongMap extends AbstractLongHashMap {
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, long value);
+    }
+
+    private long[] values;
+    private long zeroValue;
+
+    public Long2LongMap() {
+        this(DEFAULT_CAPACITY / 2);
+    }
+
+    public Long2LongMap(int expectedSize) {
+        super(expectedSize);
+        this.values = new long[keys.length];
+    }
+
+    public long getOrDefault(long key, long defaultValue) {
+        long stamp = lock.tryOptimisticRead();
+        long value = read(key, defaultValue);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                value = read(key, defaultValue);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    public void put(long key, long value) {
+        long stamp = lock.writeLock();
+        try {
+            int index = slotFor(key);
+            if (index < 0) {
+                zeroValue = value;
+            } else {
+                values[index] = value;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Atomically adds the delta, treating an absent key as 0; returns the updated value
+    public long addTo(long key, long delta) {
+        long stamp = lock.writeLock();
+        try {
+            int index = slotFor(key);
+            if (index < 0) {
+                return zeroValue += delta;
+            }
+            return values[index] += delta;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Returns whether the key was present
+    public boolean remove(long key) {
+        long stamp = lock.writeLock();
+        try {
+            if (key == 0) {
+                if (!hasZeroKey) {
+                    return false;
+                }
+                hasZeroKey = false;
+                zeroValue = 0;
+                size--;
+                return true;
+            }
+            int index = indexOf(keys, key);
+            if (index < 0) {
+                return false;
+            }
+            removeAt(index);
+            size--;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            keys = new long[DEFAULT_CAPACITY];
+            values = new long[DEFAULT_CAPACITY];
+            hasZeroKey = false;
+            zeroValue = 0;
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Visits a consistent snapshot of the entries; the action must not modify this map
+    public void forEach(EntryConsumer action) {
+        long stamp = lock.readLock();
+        try {
+            if (hasZeroKey) {
+                action.accept(0L, zeroValue);
+            }
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    action.accept(keys[i], values[i]);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private long read(long key, long defaultValue) {
+        if (key == 0) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+        // Take both arrays once; a rehash may swap them underneath an optimistic read
+        long[] currentKeys = keys;
+        long[] currentValues = values;
+        if (currentKeys.length != currentValues.length) {
+            return defaultValue;
+        }
+        int index = indexOf(currentKeys, key);
+        return index >= 0 ? currentValues[index] : defaultValue;
+    }
+
+    // Slot of the key, inserting it with value 0 if absent; -1 stands for the zero key
+    private int slotFor(long key) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                zeroValue = 0;
+                size++;
+            }
+            return -1;
+        }
+        int index = insertionIndex(key);
+        if (index >= 0) {
+            return index;
+        }
+        ensureCapacity();
+        index = -insertionIndex(key) - 1;
+        values[index] = 0;
+        keys[index] = key;
+        size++;
+        return index;
+    }
+
+    @Override
+    void rehash(int capacity) {
+        long[] newKeys = new long[capacity];
+        long[] newValues = new long[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < keys.length; i++) {
+            long key = keys[i];
+            if (key != 0) {
+                int index = mix(key) & mask;
+                while (newKeys[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                newKeys[index] = key;
+                newValues[index] = values[i];
+            }
+        }
+        keys = newKeys;
+        values = newValues;
+    }
+
+    @Override
+    void moveValue(int from, int to) {
+        values[to] = values[from];
+    }
+
+    @Override
+    void clearValue(int index) {
+        values[index] = 0;
+    }
+}
@@ -0,0 +1,247 @@
+package com.ocms.common.datastructures;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Open-addressing map from primitive long keys to objects. Null values are not allowed; a null result means absent.
+// Reads are lock-free in the common case and may run concurrently with writers; single-key updates are atomic.
+public class Long2ObjectMap<V> extends AbstractLongHashMap {
+
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    private Object[] values;
+    private V zeroValue;
+
+    public Long2ObjectMap() {
+        this(DEFAULT_CAPACITY / 2);
+    }
+
+    public Long2ObjectMap(int expectedSize) {
+        super(expectedSize);
+        this.values = new Object[keys.length];
+    }
+
+    public V get(long key) {
+        long stamp = lock.tryOptimisticRead();
+        V value = read(key);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                value = read(key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    // Returns the previous value, or null
+    public V put(long key, V value) {
+        requireValue(value);
+        long stamp = lock.writeLock();
+        try {
+            return write(key, value, true);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Returns the value already present, or null if the given value was stored
+    public V putIfAbsent(long key, V value) {
+        requireValue(value);
+        long stamp = lock.writeLock();
+        try {
+            return write(key, value, false);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Returns the mapped value, loading and storing it first if absent. The loader runs under the write lock.
+    public V computeIfAbsent(long key, Supplier<? extends V> loader) {
+        V existing = get(key);
+        if (existing != null) {
+            return existing;
+        }
+        long stamp = lock.writeLock();
+        try {
+            existing = read(key);
+            if (existing != null) {
+                return existing;
+            }
+            V loaded = loader.get();
+            if (loaded != null) {
+                write(key, loaded, true);
+            }
+            return loaded;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Atomically replaces a present value; a null result removes the key. Returns the new value, or null.
+    public V computeIfPresent(long key, Function<? super V, ? extends V> remapping) {
+        long stamp = lock.writeLock();
+        try {
+            V existing = read(key);
+            if (existing == null) {
+                return null;
+            }
+            V updated = remapping.apply(existing);
+            if (updated == null) {
+                delete(key);
+            } else {
+                write(key, updated, true);
+            }
+            return updated;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Returns the removed value, or null
+    public V remove(long key) {
+        long stamp = lock.writeLock();
+        try {
+            return delete(key);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            keys = new long[DEFAULT_CAPACITY];
+            values = new Object[DEFAULT_CAPACITY];
+            hasZeroKey = false;
+            zeroValue = null;
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Visits a consistent snapshot of the entries; the action must not modify this map
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> action) {
+        long stamp = lock.readLock();
+        try {
+            if (hasZeroKey) {
+                action.accept(0L, zeroValue);
+            }
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    action.accept(keys[i], (V) values[i]);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V read(long key) {
+        if (key == 0) {
+            return hasZeroKey ? zeroValue : null;
+        }
+        // Take both arrays once; a rehash may swap them underneath an optimistic read
+        long[] currentKeys = keys;
+        Object[] currentValues = values;
+        if (currentKeys.length != currentValues.length) {
+            return null;
+        }
+        int index = indexOf(currentKeys, key);
+        return index >= 0 ? (V) currentValues[index] : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V write(long key, V value, boolean replace) {
+        if (key == 0) {
+            V previous = zeroValue;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            if (previous == null || replace) {
+                zeroValue = value;
+            }
+            return previous;
+        }
+        int index = insertionIndex(key);
+        if (index >= 0) {
+            V previous = (V) values[index];
+            if (replace) {
+                values[index] = value;
+            }
+            return previous;
+        }
+        ensureCapacity();
+        index = -insertionIndex(key) - 1;
+        values[index] = value;
+        keys[index] = key;
+        size++;
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V delete(long key) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                return null;
+            }
+            V previous = zeroValue;
+            hasZeroKey = false;
+            zeroValue = null;
+            size--;
+            return previous;
+        }
+        int index = indexOf(keys, key);
+        if (index < 0) {
+            return null;
+        }
+        V previous = (V) values[index];
+        removeAt(index);
+        size--;
+        return previous;
+    }
+
+    @Override
+    void rehash(int capacity) {
+        long[] newKeys = new long[capacity];
+        Object[] newValues = new Object[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < keys.length; i++) {
+            long key = keys[i];
+            if (key != 0) {
+                int index = mix(key) & mask;
+                while (newKeys[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                newKeys[index] = key;
+                newValues[index] = values[i];
+            }
+        }
+        keys = newKeys;
+        values = newValues;
+    }
+
+    @Override
+    void moveValue(int from, int to) {
+        values[to] = values[from];
+    }
+
+    @Override
+    void clearValue(int index) {
+        values[index] = null;
+    }
+
+    private static void requireValue(Object value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not supported");
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.ocms.common.datastructures;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// Immutable list backed by a persistent AVL tree indexed by position.
+// Every update returns a new list that shares all untouched nodes with the old one (O(log n) new nodes),
+// so published instances can be read from any number of threads without locking.
+public final class PersistentList<T> extends AbstractList<T> {
+
+    private static final PersistentList<?> EMPTY = new PersistentList<>(null);
+
+    private static final class Node<T> {
+        final T value;
+        final Node<T> left;
+        final Node<T> right;
+        final int size;
+        final int height;
+
+        Node(Node<T> left, T value, Node<T> right) {
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.size = size(left) + 1 + size(right);
+            this.height = Math.max(height(left), height(right)) + 1;
+        }
+    }
+
+    private final Node<T> root;
+
+    private PersistentList(Node<T> root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> PersistentList<T> empty() {
+        return (PersistentList<T>) EMPTY;
+    }
+
+    // Builds a perfectly balanced tree in O(n)
+    public static <T> PersistentList<T> copyOf(List<? extends T> values) {
+        if (values.isEmpty()) {
+            return empty();
+        }
+        return new PersistentList<>(build(values, 0, values.size()));
+    }
+
+    @Override
+    public T get(int index) {
+        checkIndex(index, size());
+        Node<T> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.value;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    public PersistentList<T> plus(T value) {
+        return plus(size(), value);
+    }
+
+    public PersistentList<T> plus(int index, T value) {
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        return new PersistentList<>(insertAt(root, index, value));
+    }
+
+    public PersistentList<T> minus(int index) {
+        checkIndex(index, size());
+        Node<T> updated = removeAt(root, index);
+        return updated == null ? empty() : new PersistentList<>(updated);
+    }
+
+    public PersistentList<T> with(int index, T value) {
+        checkIndex(index, size());
+        return new PersistentList<>(setAt(root, index, value));
+    }
+
+    // For lists kept sorted by the comparator: index of the key, or (-(insertion point) - 1)
+    // as in Collections.binarySearch. O(log n).
+    public int binarySearch(T key, Comparator<? super T> comparator) {
+        Node<T> node = root;
+        int offset = 0;
+        while (node != null) {
+            int result = comparator.compare(node.value, key);
+            if (result < 0) {
+                offset += size(node.left) + 1;
+                node = node.right;
+            } else if (result > 0) {
+                node = node.left;
+            } else {
+                return offset + size(node.left);
+            }
+        }
+        return -offset - 1;
+    }
+
+    // Inserts into a sorted list, after any equal elements
+    public PersistentList<T> plusSorted(T value, Comparator<? super T> comparator) {
+        int index = binarySearch(value, comparator);
+        return plus(index >= 0 ? index + 1 : -index - 1, value);
+    }
+
+    // Removes the element equal to key from a sorted list; returns this list if there is none
+    public PersistentList<T> minusSorted(T key, Comparator<? super T> comparator) {
+        int index = binarySearch(key, comparator);
+        return index >= 0 ? minus(index) : this;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private final Deque<Node<T>> path = new ArrayDeque<>();
+
+            {
+                pushLeft(root);
+            }
+
+            private void pushLeft(Node<T> node) {
+                while (node != null) {
+                    path.push(node);
+                    node = node.left;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !path.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                if (path.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                Node<T> node = path.pop();
+                pushLeft(node.right);
+                return node.value;
+            }
+        };
+    }
+
+    private static <T> Node<T> build(List<? extends T> values, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        return new Node<>(build(values, from, mid), values.get(mid), build(values, mid + 1, to));
+    }
+
+    private static <T> Node<T> insertAt(Node<T> node, int index, T value) {
+        if (node == null) {
+            return new Node<>(null, value, null);
+        }
+        int leftSize = size(node.left);
+        if (index <= leftSize) {
+            return balance(insertAt(node.left, index, value), node.value, node.right);
+        }
+        return balance(node.left, node.value, insertAt(node.right, index - leftSize - 1, value));
+    }
+
+    private static <T> Node<T> removeAt(Node<T> node, int index) {
+        int leftSize = size(node.left);
+        if (index < leftSize) {
+            return balance(removeAt(node.left, index), node.value, node.right);
+        }
+        if (index > leftSize) {
+            return balance(node.left, node.value, removeAt(node.right, index - leftSize - 1));
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        // Replace with the in-order successor
+        T successor = first(node.right);
+        return balance(node.left, successor, removeAt(node.right, 0));
+    }
+
+    private static <T> Node<T> setAt(Node<T> node, int index, T value) {
+        int leftSize = size(node.left);
+        if (index < leftSize) {
+            return new Node<>(setAt(node.left, index, value), node.value, node.right);
+        }
+        if (index > leftSize) {
+            return new Node<>(node.left, node.value, setAt(node.right, index - leftSize - 1, value));
+        }
+        return new Node<>(node.left, value, node.right);
+    }
+
+    private static <T> T first(Node<T> node) {
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node.value;
+    }
+
+    private static <T> Node<T> balance(Node<T> left, T value, Node<T> right) {
+        int diff = height(left) - height(right);
+        if (diff > 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node<>(left.left, left.value, new Node<>(left.right, value, right));
+            }
+            return new Node<>(
+                    new Node<>(left.left, left.value, left.right.left),
+                    left.right.value,
+                    new Node<>(left.right.right, value, right));
+        }
+        if (diff < -1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node<>(new Node<>(left, value, right.left), right.value, right.right);
+            }
+            return new Node<>(
+                    new Node<>(left, value, right.left.left),
+                    right.left.value,
+                    new Node<>(right.left.right, right.value, right.right));
+        }
+        return new Node<>(left, value, right);
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
@@ -1,91 +1,205 @@
 package com.ocms.common.datastructures;
 
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.NoSuchElementException;
 
 public class PriorityQueue<T> {
-    
-    private static class Node<T> {
-        T data;
-        Node<T> next;
-        
-        Node(T data) {
+
+    private static final int DEFAULT_ARITY = 4;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // Handle returned by enqueue, used to reprioritize or remove an element in O(log n)
+    public static final class Handle<T> {
+        private final T data;
+        private final long sequence;
+        private int index;
+
+        private Handle(T data, long sequence) {
             this.data = data;
-            this.next = null;
+            this.sequence = sequence;
+            this.index = -1;
+        }
+
+        public T get() {
+            return data;
+        }
+
+        public boolean isQueued() {
+            return index >= 0;
         }
     }
-    
-    private Node<T> head;
-    private final Comparator<T> comparator;
+
+    // Array-backed d-ary heap; each handle keeps its own slot index
+    private Handle<T>[] heap;
+    private final Comparator<? super T> comparator;
+    private final int arity;
     private int size;
-    
-    public PriorityQueue(Comparator<T> comparator) {
-        this.head = null;
+    private long nextSequence;
+
+    public PriorityQueue(Comparator<? super T> comparator) {
+        this(comparator, DEFAULT_ARITY);
+    }
+
+    @SuppressWarnings("unchecked")
+    public PriorityQueue(Comparator<? super T> comparator, int arity) {
+        if (arity < 2) {
+            throw new IllegalArgumentException("Arity must be at least 2");
+        }
+        this.heap = (Handle<T>[]) new Handle<?>[DEFAULT_CAPACITY];
         this.comparator = comparator;
+        this.arity = arity;
         this.size = 0;
+        this.nextSequence = 0;
     }
-    
-    public void enqueue(T data) {
-        Node<T> newNode = new Node<>(data);
-        
-        if (head == null || comparator.compare(data, head.data) < 0) {
-            newNode.next = head;
-            head = newNode;
-        } else {
-            Node<T> current = head;
-            while (current.next != null && comparator.compare(data, current.next.data) >= 0) {
-                current = current.next;
-            }
-            newNode.next = current.next;
-            current.next = newNode;
+
+    public Handle<T> enqueue(T data) {
+        Handle<T> handle = new Handle<>(data, nextSequence++);
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, heap.length * 2);
         }
+        place(handle, size);
         size++;
+        siftUp(handle.index);
+        return handle;
     }
-    
+
     public T dequeue() {
         if (isEmpty()) {
             throw new NoSuchElementException("Priority queue is empty");
         }
-        
-        T data = head.data;
-        head = head.next;
-        size--;
-        return data;
+        return removeAt(0).data;
     }
-    
+
     public T peek() {
         if (isEmpty()) {
             throw new NoSuchElementException("Priority queue is empty");
         }
-        return head.data;
+        return heap[0].data;
+    }
+
+    // Restores heap order after the priority of the handle's element has changed
+    public void reprioritize(Handle<T> handle) {
+        checkOwned(handle);
+        int index = handle.index;
+        siftUp(index);
+        if (handle.index == index) {
+            siftDown(index);
+        }
     }
-    
+
+    public boolean remove(Handle<T> handle) {
+        if (!owns(handle)) {
+            return false;
+        }
+        removeAt(handle.index);
+        return true;
+    }
+
     public boolean isEmpty() {
-        return head == null;
+        return size == 0;
     }
-    
+
     public int size() {
         return size;
     }
-    
+
     public void clear() {
-        head = null;
+        for (int i = 0; i < size; i++) {
+            heap[i].index = -1;
+            heap[i] = null;
+        }
         size = 0;
     }
-    
+
+    private Handle<T> removeAt(int index) {
+        Handle<T> removed = heap[index];
+        size--;
+        if (index != size) {
+            Handle<T> last = heap[size];
+            place(last, index);
+            heap[size] = null;
+            siftDown(index);
+            if (last.index == index) {
+                siftUp(index);
+            }
+        } else {
+            heap[size] = null;
+        }
+        removed.index = -1;
+        return removed;
+    }
+
+    private void siftUp(int index) {
+        Handle<T> moving = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) / arity;
+            if (compare(moving, heap[parent]) >= 0) {
+                break;
+            }
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(moving, index);
+    }
+
+    private void siftDown(int index) {
+        Handle<T> moving = heap[index];
+        while (true) {
+            int firstChild = index * arity + 1;
+            if (firstChild >= size) {
+                break;
+            }
+            int lastChild = Math.min(firstChild + arity, size);
+            int best = firstChild;
+            for (int child = firstChild + 1; child < lastChild; child++) {
+                if (compare(heap[child], heap[best]) < 0) {
+                    best = child;
+                }
+            }
+            if (compare(heap[best], moving) >= 0) {
+                break;
+            }
+            place(heap[best], index);
+            index = best;
+        }
+        place(moving, index);
+    }
+
+    private void place(Handle<T> handle, int index) {
+        heap[index] = handle;
+        handle.index = index;
+    }
+
+    // Equal priorities are served in insertion order, as the linked implementation did
+    private int compare(Handle<T> a, Handle<T> b) {
+        int result = comparator.compare(a.data, b.data);
+        return result != 0 ? result : Long.compare(a.sequence, b.sequence);
+    }
+
+    private boolean owns(Handle<T> handle) {
+        return handle != null && handle.isQueued() && handle.index < size && heap[handle.index] == handle;
+    }
+
+    private void checkOwned(Handle<T> handle) {
+        if (!owns(handle)) {
+            throw new NoSuchElementException("Handle is not queued in this priority queue");
+        }
+    }
+
     @Override
     public String toString() {
+        Handle<T>[] ordered = Arrays.copyOf(heap, size);
+        Arrays.sort(ordered, this::compare);
         StringBuilder sb = new StringBuilder();
         sb.append("[");
-        Node<T> current = head;
-        while (current != null) {
-            sb.append(current.data);
-            if (current.next != null) {
+        for (int i = 0; i < ordered.length; i++) {
+            sb.append(ordered[i].data);
+            if (i < ordered.length - 1) {
                 sb.append(", ");
             }
-            current = current.next;
         }
         sb.append("]");
         return sb.toString();
     }
-}
\ No newline at end of file
+}
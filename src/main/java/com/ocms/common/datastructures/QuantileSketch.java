@@ -0,0 +1,161 @@
+package com.ocms.common.datastructures;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Streaming quantile sketch over doubles (KLL: Karnin, Lang and Liberty, "Optimal Quantile Approximation in
+// Streams"). Keeps O(k log(n / k)) values however many are added; quantile(q) returns a value whose rank is within
+// roughly 1.7 / k * n of q * n (about 1% of the values for k = 200). Exact while fewer than k values were added.
+// Values live in levels; a value on level h stands for 2^h added values. A full level is sorted and every other
+// value, starting at a random one of the first two, is promoted to the level above; the rest are discarded.
+// Not thread-safe: one sketch per computation.
+public class QuantileSketch {
+
+    // Lower levels get geometrically smaller capacities, which keeps the total size at about 3k
+    private static final double CAPACITY_DECAY = 2.0 / 3.0;
+    private static final int MIN_LEVEL_CAPACITY = 2;
+
+    private final int k;
+    private final SplittableRandom random;
+
+    private double[][] levels = new double[1][];
+    private int[] sizes = new int[1];
+    private long count;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    public QuantileSketch(int k) {
+        this(k, new SplittableRandom());
+    }
+
+    QuantileSketch(int k, SplittableRandom random) {
+        if (k < MIN_LEVEL_CAPACITY) {
+            throw new IllegalArgumentException("k must be >= " + MIN_LEVEL_CAPACITY + ": " + k);
+        }
+        this.k = k;
+        this.random = random;
+        levels[0] = new double[k];
+    }
+
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("NaN cannot be added to a quantile sketch");
+        }
+        if (count == 0) {
+            min = value;
+            max = value;
+        } else {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        count++;
+        append(0, value);
+        // Compact upwards from the lowest full level until every level is back within its capacity
+        for (int level = 0; level < levels.length; level++) {
+            if (sizes[level] >= capacity(level)) {
+                compact(level);
+            }
+        }
+    }
+
+    // Value at quantile q in [0, 1]: the smallest retained value whose cumulative weight reaches q * count.
+    // NaN while the sketch is empty; 0 and 1 give the exact minimum and maximum.
+    public double quantile(double q) {
+        if (!(q >= 0 && q <= 1)) {
+            throw new IllegalArgumentException("Quantile must be in [0, 1]: " + q);
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (q == 0) {
+            return min;
+        }
+        if (q == 1) {
+            return max;
+        }
+        // Every retained value with its level, visited in value order
+        int retained = retainedValues();
+        int[] levelOf = new int[retained];
+        double[] values = new double[retained];
+        int i = 0;
+        for (int level = 0; level < levels.length; level++) {
+            for (int j = 0; j < sizes[level]; j++) {
+                values[i] = levels[level][j];
+                levelOf[i] = level;
+                i++;
+            }
+        }
+        Integer[] order = new Integer[retained];
+        for (i = 0; i < retained; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+
+        double target = q * count;
+        long cumulative = 0;
+        for (int index : order) {
+            cumulative += 1L << levelOf[index];
+            if (cumulative >= target) {
+                return values[index];
+            }
+        }
+        return max;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public double min() {
+        return min;
+    }
+
+    public double max() {
+        return max;
+    }
+
+    public int retainedValues() {
+        int retained = 0;
+        for (int size : sizes) {
+            retained += size;
+        }
+        return retained;
+    }
+
+    // k for the top level, shrinking by CAPACITY_DECAY per level below it
+    private int capacity(int level) {
+        int depth = levels.length - 1 - level;
+        return Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+    }
+
+    private void append(int level, double value) {
+        double[] values = levels[level];
+        if (sizes[level] == values.length) {
+            values = Arrays.copyOf(values, Math.max(MIN_LEVEL_CAPACITY, values.length * 2));
+            levels[level] = values;
+        }
+        values[sizes[level]++] = value;
+    }
+
+    private void compact(int level) {
+        if (level == levels.length - 1) {
+            levels = Arrays.copyOf(levels, levels.length + 1);
+            sizes = Arrays.copyOf(sizes, sizes.length + 1);
+            levels[level + 1] = new double[k];
+        }
+        double[] values = levels[level];
+        int size = sizes[level];
+        Arrays.sort(values, 0, size);
+        // With an odd number of values the largest stays behind, so the promoted pairs keep the weight exact
+        int paired = size & ~1;
+        for (int i = random.nextInt(2); i < paired; i += 2) {
+            append(level + 1, values[i]);
+        }
+        if (paired < size) {
+            values[0] = values[size - 1];
+            sizes[level] = 1;
+        } else {
+            sizes[level] = 0;
+        }
+    }
+}
@@ -0,0 +1,533 @@
+package com.ocms.common.datastructures;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntBiFunction;
+
+// Bounded concurrent cache with segmented-LRU eviction. New entries start in a probation segment and are promoted to
+// a protected segment on their second hit, so a burst of one-off keys cannot flush the entries that are actually
+// reused. Keys are striped over independently locked shards. Entries expire a fixed time after they were written;
+// a read past the refresh threshold returns the current value and reloads it in the background on the configured
+// refresh executor, which must be one the loader may block.
+// With a weigher the bound applies to the summed entry weights instead of the entry count.
+public class SegmentedLruCache<K, V> {
+
+    // Share of each shard reserved for entries that were hit at least twice
+    private static final double PROTECTED_RATIO = 0.8;
+
+    public record Stats(long hits, long misses, long evictions, long expirations, long refreshes,
+                        long size, double hitRate) {
+    }
+
+    public static final class Builder<K, V> {
+        private long maximumSize = 10_000;
+        private long maximumWeight = -1;
+        private ToIntBiFunction<? super K, ? super V> weigher;
+        private Duration expireAfterWrite;
+        private Duration refreshAfterWrite;
+        private int concurrencyLevel = 16;
+        private Executor refreshExecutor;
+        private LongSupplier nanoTime = System::nanoTime;
+
+        private Builder() {
+        }
+
+        public Builder<K, V> maximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        // Bounds the summed weights instead of the entry count; requires a weigher
+        public Builder<K, V> maximumWeight(long maximumWeight) {
+            this.maximumWeight = maximumWeight;
+            return this;
+        }
+
+        // Weight of an entry, e.g. the number of elements of a cached collection; evaluated on every write
+        public Builder<K, V> weigher(ToIntBiFunction<? super K, ? super V> weigher) {
+            this.weigher = weigher;
+            return this;
+        }
+
+        public Builder<K, V> expireAfterWrite(Duration expireAfterWrite) {
+            this.expireAfterWrite = expireAfterWrite;
+            return this;
+        }
+
+        // Requires a refresh executor
+        public Builder<K, V> refreshAfterWrite(Duration refreshAfterWrite) {
+            this.refreshAfterWrite = refreshAfterWrite;
+            return this;
+        }
+
+        public Builder<K, V> concurrencyLevel(int concurrencyLevel) {
+            this.concurrencyLevel = concurrencyLevel;
+            return this;
+        }
+
+        // Runs background reloads. They call the loader, which typically blocks on I/O, so this should be a dedicated
+        // bounded pool; a refresh the executor rejects is skipped and retried on a later read.
+        public Builder<K, V> refreshExecutor(Executor refreshExecutor) {
+            this.refreshExecutor = refreshExecutor;
+            return this;
+        }
+
+        // Time source in nanoseconds, for tests
+        public Builder<K, V> nanoTime(LongSupplier nanoTime) {
+            this.nanoTime = nanoTime;
+            return this;
+        }
+
+        public SegmentedLruCache<K, V> build() {
+            return new SegmentedLruCache<>(this);
+        }
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        V value;
+        int weight;
+        long writeTime;
+        // Bumped by every write to the entry, so that a refresh which raced with one is discarded
+        long stamp;
+        boolean inProtected;
+        boolean refreshing;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value, long writeTime) {
+            this.key = key;
+            this.value = value;
+            this.writeTime = writeTime;
+        }
+    }
+
+    // Loads of one key in flight; any write to the key bumps the version, and a load that sees it moved is discarded
+    private static final class PendingLoad {
+        int count;
+        long version;
+    }
+
+    // Circular doubly linked list with a sentinel; head.next is the most recently used entry
+    private static final class AccessOrder<K, V> {
+        final Node<K, V> head = new Node<>(null, null, 0);
+        long weight;
+
+        AccessOrder() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        void addFirst(Node<K, V> node) {
+            node.next = head.next;
+            node.prev = head;
+            head.next.prev = node;
+            head.next = node;
+            weight += node.weight;
+        }
+
+        void unlink(Node<K, V> node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+            weight -= node.weight;
+        }
+
+        Node<K, V> last() {
+            return head.prev == head ? null : head.prev;
+        }
+
+        void clear() {
+            head.prev = head;
+            head.next = head;
+            weight = 0;
+        }
+    }
+
+    private final class Shard {
+        final ReentrantLock lock = new ReentrantLock();
+        final Map<K, Node<K, V>> nodes = new HashMap<>();
+        final AccessOrder<K, V> probation = new AccessOrder<>();
+        final AccessOrder<K, V> protectedOrder = new AccessOrder<>();
+        final long capacity;
+        final long protectedCapacity;
+        // Only keys being loaded have an entry, so writes to other keys never discard a load
+        final Map<K, PendingLoad> loads = new HashMap<>();
+
+        Shard(long capacity) {
+            this.capacity = capacity;
+            this.protectedCapacity = Math.max(1, (long) (capacity * PROTECTED_RATIO));
+        }
+
+        // Outdates the loads of the key in flight, which may have read the value from before this write
+        void written(K key) {
+            PendingLoad pending = loads.get(key);
+            if (pending != null) {
+                pending.version++;
+            }
+        }
+
+        void recordHit(Node<K, V> node) {
+            if (node.inProtected) {
+                protectedOrder.unlink(node);
+                protectedOrder.addFirst(node);
+                return;
+            }
+            probation.unlink(node);
+            node.inProtected = true;
+            protectedOrder.addFirst(node);
+            // Demote the least recently used protected entry; it gets another chance in probation
+            while (protectedOrder.weight > protectedCapacity && protectedOrder.last() != node) {
+                Node<K, V> demoted = protectedOrder.last();
+                protectedOrder.unlink(demoted);
+                demoted.inProtected = false;
+                probation.addFirst(demoted);
+            }
+        }
+
+        void insert(Node<K, V> node) {
+            nodes.put(node.key, node);
+            probation.addFirst(node);
+            evictIfNeeded();
+        }
+
+        // Re-links the node so that both segment weights pick up its new weight
+        void reweigh(Node<K, V> node, int weight) {
+            AccessOrder<K, V> order = node.inProtected ? protectedOrder : probation;
+            order.unlink(node);
+            node.weight = weight;
+            order.addFirst(node);
+            evictIfNeeded();
+        }
+
+        void evictIfNeeded() {
+            while (probation.weight + protectedOrder.weight > capacity) {
+                Node<K, V> victim = probation.last() != null ? probation.last() : protectedOrder.last();
+                unlink(victim);
+                evictions.increment();
+            }
+        }
+
+        void clear() {
+            nodes.clear();
+            probation.clear();
+            protectedOrder.clear();
+        }
+
+        void unlink(Node<K, V> node) {
+            nodes.remove(node.key);
+            if (node.inProtected) {
+                protectedOrder.unlink(node);
+            } else {
+                probation.unlink(node);
+            }
+        }
+    }
+
+    private final Shard[] shards;
+    private final ToIntBiFunction<? super K, ? super V> weigher;
+    private final long expireAfterWriteNanos;
+    private final long refreshAfterWriteNanos;
+    private final Executor refreshExecutor;
+    private final LongSupplier nanoTime;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    private SegmentedLruCache(Builder<K, V> builder) {
+        if ((builder.weigher == null) != (builder.maximumWeight < 0)) {
+            throw new IllegalArgumentException("A maximum weight and a weigher must be configured together");
+        }
+        if (builder.refreshAfterWrite != null && builder.refreshExecutor == null) {
+            throw new IllegalArgumentException("refreshAfterWrite requires a refresh executor");
+        }
+        long maximum = builder.weigher == null ? builder.maximumSize : builder.maximumWeight;
+        if (maximum <= 0 || builder.concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("Maximum size or weight and concurrency level must be > 0");
+        }
+        int shardCount = Integer.highestOneBit((int) Math.min(builder.concurrencyLevel, maximum));
+        this.shards = (Shard[]) new SegmentedLruCache<?, ?>.Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            // Spread the capacity so that the shards add up to exactly the maximum
+            long capacity = maximum / shardCount + (i < maximum % shardCount ? 1 : 0);
+            shards[i] = new Shard(capacity);
+        }
+        this.weigher = builder.weigher;
+        this.expireAfterWriteNanos = builder.expireAfterWrite == null ? Long.MAX_VALUE : builder.expireAfterWrite.toNanos();
+        this.refreshAfterWriteNanos = builder.refreshAfterWrite == null ? Long.MAX_VALUE : builder.refreshAfterWrite.toNanos();
+        this.refreshExecutor = builder.refreshExecutor;
+        this.nanoTime = builder.nanoTime;
+    }
+
+    public static <K, V> Builder<K, V> builder() {
+        return new Builder<>();
+    }
+
+    public V getIfPresent(K key) {
+        return lookup(key, null);
+    }
+
+    // Returns the cached value, or loads it on a miss. The loader runs outside the shard lock and may throw;
+    // a null result is returned but not cached. Concurrent misses on the same key may each run the loader.
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = lookup(key, loader);
+        if (value != null) {
+            return value;
+        }
+        Shard shard = shardFor(key);
+        PendingLoad pending;
+        long versionBefore;
+        shard.lock.lock();
+        try {
+            pending = shard.loads.computeIfAbsent(key, k -> new PendingLoad());
+            pending.count++;
+            versionBefore = pending.version;
+        } finally {
+            shard.lock.unlock();
+        }
+        V loaded = null;
+        try {
+            loaded = loader.apply(key);
+        } finally {
+            shard.lock.lock();
+            try {
+                if (--pending.count == 0) {
+                    shard.loads.remove(key);
+                }
+                // Dropped if the key was written to meanwhile; the load may predate that write
+                if (loaded != null && pending.version == versionBefore) {
+                    write(shard, key, loaded);
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return loaded;
+    }
+
+    public void put(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not supported");
+        }
+        Shard shard = shardFor(key);
+        shard.lock.lock();
+        try {
+            shard.written(key);
+            write(shard, key, value);
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    // Atomically replaces a cached value; a null result removes the entry. Returns the new value, or null if the key
+    // was not cached. Unlike put this keeps the original write time, so the entry still expires on schedule.
+    // Loads of the key that raced with the update are discarded either way, even if the key was not cached.
+    public V computeIfPresent(K key, Function<? super V, ? extends V> remapping) {
+        Shard shard = shardFor(key);
+        long now = nanoTime.getAsLong();
+        shard.lock.lock();
+        try {
+            shard.written(key);
+            Node<K, V> node = shard.nodes.get(key);
+            if (node == null) {
+                return null;
+            }
+            if (now - node.writeTime >= expireAfterWriteNanos) {
+                shard.unlink(node);
+                expirations.increment();
+                return null;
+            }
+            V updated = remapping.apply(node.value);
+            if (updated == null) {
+                shard.unlink(node);
+                return null;
+            }
+            node.value = updated;
+            node.stamp++;
+            shard.reweigh(node, weigh(key, updated));
+            return updated;
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        Shard shard = shardFor(key);
+        shard.lock.lock();
+        try {
+            shard.written(key);
+            Node<K, V> node = shard.nodes.get(key);
+            if (node != null) {
+                shard.unlink(node);
+            }
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                for (PendingLoad pending : shard.loads.values()) {
+                    pending.version++;
+                }
+                shard.clear();
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                size += shard.nodes.size();
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    // Copy of the live entries; reading it does not count as access
+    public Map<K, V> asMap() {
+        Map<K, V> snapshot = new HashMap<>();
+        long now = nanoTime.getAsLong();
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                for (Node<K, V> node : shard.nodes.values()) {
+                    if (now - node.writeTime < expireAfterWriteNanos) {
+                        snapshot.put(node.key, node.value);
+                    }
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return snapshot;
+    }
+
+    public Stats stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+        return new Stats(hitCount, missCount, evictions.sum(), expirations.sum(), refreshes.sum(), size(),
+                requests == 0 ? 1.0 : (double) hitCount / requests);
+    }
+
+    private V lookup(K key, Function<? super K, ? extends V> loader) {
+        Shard shard = shardFor(key);
+        long now = nanoTime.getAsLong();
+        Node<K, V> refreshNode = null;
+        long stamp = 0;
+        V value;
+        shard.lock.lock();
+        try {
+            Node<K, V> node = shard.nodes.get(key);
+            if (node == null) {
+                misses.increment();
+                return null;
+            }
+            long age = now - node.writeTime;
+            if (age >= expireAfterWriteNanos) {
+                shard.unlink(node);
+                expirations.increment();
+                misses.increment();
+                return null;
+            }
+            shard.recordHit(node);
+            hits.increment();
+            value = node.value;
+            if (loader != null && age >= refreshAfterWriteNanos && !node.refreshing) {
+                node.refreshing = true;
+                refreshNode = node;
+                stamp = node.stamp;
+            }
+        } finally {
+            shard.lock.unlock();
+        }
+        if (refreshNode != null) {
+            scheduleRefresh(shard, refreshNode, stamp, loader);
+        }
+        return value;
+    }
+
+    private void scheduleRefresh(Shard shard, Node<K, V> node, long stampBefore,
+                                 Function<? super K, ? extends V> loader) {
+        Runnable refresh = () -> {
+            V refreshed = null;
+            try {
+                refreshed = loader.apply(node.key);
+            } catch (RuntimeException e) {
+                // Keep serving the current value; it is reloaded on a later read or once it expires
+            }
+            shard.lock.lock();
+            try {
+                node.refreshing = false;
+                // Drop the result if the entry was updated or invalidated meanwhile
+                if (refreshed != null && node.stamp == stampBefore && shard.nodes.get(node.key) == node) {
+                    node.value = refreshed;
+                    node.writeTime = nanoTime.getAsLong();
+                    node.stamp++;
+                    refreshes.increment();
+                    shard.reweigh(node, weigh(node.key, refreshed));
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+        };
+        try {
+            refreshExecutor.execute(refresh);
+        } catch (RejectedExecutionException e) {
+            // Saturated or shut down; the entry keeps its value and a later read schedules the refresh again
+            shard.lock.lock();
+            try {
+                node.refreshing = false;
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+    }
+
+    // Called with the shard lock held
+    private void write(Shard shard, K key, V value) {
+        long now = nanoTime.getAsLong();
+        Node<K, V> existing = shard.nodes.get(key);
+        if (existing != null) {
+            existing.value = value;
+            existing.writeTime = now;
+            existing.stamp++;
+            shard.reweigh(existing, weigh(key, value));
+            return;
+        }
+        Node<K, V> node = new Node<>(key, value, now);
+        node.weight = weigh(key, value);
+        shard.insert(node);
+    }
+
+    private int weigh(K key, V value) {
+        return weigher == null ? 1 : Math.max(weigher.applyAsInt(key, value), 0);
+    }
+
+    private Shard shardFor(K key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return shards[h & (shards.length - 1)];
+    }
+}
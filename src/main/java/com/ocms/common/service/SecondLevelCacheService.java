@@ -0,0 +1,55 @@
+package com.ocms.common.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+// Read-side view of the Hibernate second-level cache: entity, collection and query result regions,
+// sized per region in ehcache.xml
+@Service
+@RequiredArgsConstructor
+public class SecondLevelCacheService {
+    
+    private final EntityManagerFactory entityManagerFactory;
+    
+    public record RegionStats(long hits, long misses, long puts, double hitRate) {
+    }
+    
+    // Empty unless Hibernate statistics are enabled (second-level-cache.statistics)
+    public Map<String, RegionStats> getRegionStats() {
+        Statistics statistics = sessionFactory().getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            return Map.of();
+        }
+        Map<String, RegionStats> stats = new TreeMap<>();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            if (regionStatistics != null) {
+                stats.put(region, toRegionStats(regionStatistics));
+            }
+        }
+        return stats;
+    }
+    
+    // Needed after writes that bypass Hibernate, e.g. manual SQL; otherwise they stay invisible until entries expire
+    public void evictAll() {
+        sessionFactory().getCache().evictAll();
+    }
+    
+    private SessionFactory sessionFactory() {
+        return entityManagerFactory.unwrap(SessionFactory.class);
+    }
+    
+    private static RegionStats toRegionStats(CacheRegionStatistics statistics) {
+        long hits = statistics.getHitCount();
+        long misses = statistics.getMissCount();
+        long requests = hits + misses;
+        return new RegionStats(hits, misses, statistics.getPutCount(), requests == 0 ? 0.0 : (double) hits / requests);
+    }
+}
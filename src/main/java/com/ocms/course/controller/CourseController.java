@@ -1,9 +1,11 @@
 package com.ocms.course.controller;
 
-import com.ocms.common.datastructures.LinkedList;
+import com.ocms.common.datastructures.PersistentList;
+import com.ocms.common.datastructures.SegmentedLruCache;
 import com.ocms.common.dto.ApiResponse;
 import com.ocms.course.dto.CourseDto;
 import com.ocms.course.dto.ModuleDto;
+import com.ocms.course.dto.ModuleReorderDto;
 import com.ocms.course.entity.Course;
 import com.ocms.course.entity.CourseEnrollment;
 import com.ocms.course.entity.Module;
@@ -99,6 +101,14 @@ public class CourseController {
         return ResponseEntity.ok(ApiResponse.success("Module updated successfully", module));
     }
     
+    @PutMapping("/{courseId}/modules/order")
+    @PreAuthorize("hasRole('INSTRUCTOR') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<Module>>> reorderModules(@PathVariable Long courseId,
+                                                                  @Valid @RequestBody ModuleReorderDto reorderDto) {
+        List<Module> modules = courseService.reorderModules(courseId, reorderDto);
+        return ResponseEntity.ok(ApiResponse.success("Modules reordered successfully", modules));
+    }
+    
     @DeleteMapping("/modules/{id}")
     @PreAuthorize("hasRole('INSTRUCTOR') or hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<String>> deleteModule(@PathVariable Long id) {
@@ -114,6 +124,42 @@ public class CourseController {
         return ResponseEntity.ok(ApiResponse.success("Student enrolled successfully", enrollment));
     }
     
+    @DeleteMapping("/{courseId}/enroll/{studentId}")
+    @PreAuthorize("hasRole('STUDENT') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<CourseEnrollment>> dropStudent(@PathVariable Long courseId, 
+                                                                    @PathVariable Long studentId) {
+        CourseEnrollment enrollment = courseService.dropStudent(courseId, studentId);
+        return ResponseEntity.ok(ApiResponse.success("Student dropped successfully", enrollment));
+    }
+    
+    @GetMapping("/{courseId}/enrolled/{studentId}")
+    public ResponseEntity<ApiResponse<Boolean>> isEnrolled(@PathVariable Long courseId, @PathVariable Long studentId) {
+        boolean enrolled = courseService.isEnrolled(courseId, studentId);
+        return ResponseEntity.ok(ApiResponse.success(enrolled));
+    }
+    
+    @GetMapping("/{courseId}/enrollments/count")
+    @PreAuthorize("hasRole('INSTRUCTOR') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Integer>> countEnrolledStudents(@PathVariable Long courseId) {
+        int count = courseService.countEnrolledStudents(courseId);
+        return ResponseEntity.ok(ApiResponse.success(count));
+    }
+    
+    @GetMapping("/{courseId}/common-students/{otherCourseId}")
+    @PreAuthorize("hasRole('INSTRUCTOR') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<Long>>> getCommonStudentIds(@PathVariable Long courseId, 
+                                                                      @PathVariable Long otherCourseId) {
+        List<Long> studentIds = courseService.getCommonStudentIds(courseId, otherCourseId);
+        return ResponseEntity.ok(ApiResponse.success(studentIds));
+    }
+    
+    @GetMapping("/student/{studentId}/course-ids")
+    @PreAuthorize("hasRole('STUDENT') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<Long>>> getEnrolledCourseIds(@PathVariable Long studentId) {
+        List<Long> courseIds = courseService.getEnrolledCourseIds(studentId);
+        return ResponseEntity.ok(ApiResponse.success(courseIds));
+    }
+    
     @GetMapping("/{courseId}/enrollments")
     @PreAuthorize("hasRole('INSTRUCTOR') or hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<List<CourseEnrollment>>> getEnrollmentsByCourse(@PathVariable Long courseId) {
@@ -122,15 +168,15 @@ public class CourseController {
     }
     
     @GetMapping("/{courseId}/module-sequence")
-    public ResponseEntity<ApiResponse<LinkedList<Module>>> getModuleSequence(@PathVariable Long courseId) {
-        LinkedList<Module> sequence = courseService.getModuleSequence(courseId);
+    public ResponseEntity<ApiResponse<PersistentList<Module>>> getModuleSequence(@PathVariable Long courseId) {
+        PersistentList<Module> sequence = courseService.getModuleSequence(courseId);
         return ResponseEntity.ok(ApiResponse.success(sequence));
     }
     
     @GetMapping("/module-sequences")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ApiResponse<Map<Long, LinkedList<Module>>>> getCourseModuleSequences() {
-        Map<Long, LinkedList<Module>> sequences = courseService.getCourseModuleSequences();
+    public ResponseEntity<ApiResponse<Map<Long, PersistentList<Module>>>> getCourseModuleSequences() {
+        Map<Long, PersistentList<Module>> sequences = courseService.getCourseModuleSequences();
         return ResponseEntity.ok(ApiResponse.success(sequences));
     }
     
@@ -140,4 +186,11 @@ public class CourseController {
         Map<Long, List<CourseEnrollment>> cache = courseService.getCourseEnrollmentCache();
         return ResponseEntity.ok(ApiResponse.success(cache));
     }
+    
+    @GetMapping("/enrollment-cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<SegmentedLruCache.Stats>> getCourseEnrollmentCacheStats() {
+        SegmentedLruCache.Stats stats = courseService.getCourseEnrollmentCacheStats();
+        return ResponseEntity.ok(ApiResponse.success(stats));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.ocms.course.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ModuleReorderDto {
+    
+    // Every module id of the course, in the desired order
+    @NotEmpty(message = "Module IDs are required")
+    private List<Long> moduleIds;
+}
@@ -9,7 +9,12 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "course_enrollments")
+@Table(name = "course_enrollments", indexes = {
+    // Covers the per-course enrollment totals, so they are counted from the index alone
+    @Index(name = "idx_course_enrollments_course_status", columnList = "course_id, completion_status"),
+    // Enrollment index refreshes read the rows changed since the previous one
+    @Index(name = "idx_course_enrollments_updated_at", columnList = "updated_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -37,9 +42,18 @@ public class CourseEnrollment {
     @Column(name = "completion_percentage")
     private Double completionPercentage = 0.0;
     
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
     @PrePersist
     protected void onCreate() {
         enrolledAt = LocalDateTime.now();
+        updatedAt = enrolledAt;
+    }
+    
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
     }
     
     public enum EnrollmentStatus {
@@ -1,12 +1,20 @@
 package com.ocms.course.repository;
 
 import com.ocms.course.entity.CourseEnrollment;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CourseEnrollmentRepository extends JpaRepository<CourseEnrollment, Long> {
@@ -17,10 +25,73 @@ public interface CourseEnrollmentRepository extends JpaRepository<CourseEnrollme
     
     boolean existsByCourseIdAndStudentId(Long courseId, Long studentId);
     
+    Optional<CourseEnrollment> findFirstByCourseIdAndStudentIdAndStatusNot(Long courseId, Long studentId,
+                                                                           CourseEnrollment.EnrollmentStatus status);
+    
+    // Id pairs only, streamed so that rebuilding the enrollment index never loads entities
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT ce.course.id AS courseId, ce.student.id AS studentId FROM CourseEnrollment ce WHERE ce.status <> :dropped")
+    Stream<EnrollmentKey> streamActiveEnrollmentKeys(@Param("dropped") CourseEnrollment.EnrollmentStatus dropped);
+    
+    // SELECT ... FOR UPDATE reads the latest committed rows rather than the transaction's snapshot
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT ce FROM CourseEnrollment ce WHERE ce.course.id = :courseId AND ce.student.id = :studentId " +
+           "AND ce.status <> :dropped")
+    List<CourseEnrollment> findActiveForUpdate(@Param("courseId") Long courseId, @Param("studentId") Long studentId,
+                                               @Param("dropped") CourseEnrollment.EnrollmentStatus dropped);
+    
+    // Enrollments created or changed since the given time, in the order the changes were made
+    @Query("SELECT ce.course.id AS courseId, ce.student.id AS studentId, ce.status AS status " +
+           "FROM CourseEnrollment ce WHERE ce.updatedAt >= :since ORDER BY ce.updatedAt, ce.id")
+    List<EnrollmentChange> findChangesSince(@Param("since") LocalDateTime since);
+    
+    long countByCourseIdAndStatusNot(Long courseId, CourseEnrollment.EnrollmentStatus status);
+    
+    // Answer the enrollment index's questions from the database, in the same ascending id order, before it is built
+    @Query("SELECT ce.course.id FROM CourseEnrollment ce WHERE ce.student.id = :studentId AND ce.status <> :dropped " +
+           "ORDER BY ce.course.id")
+    List<Long> findActiveCourseIds(@Param("studentId") Long studentId,
+                                   @Param("dropped") CourseEnrollment.EnrollmentStatus dropped);
+    
+    @Query("SELECT ce.student.id FROM CourseEnrollment ce WHERE ce.course.id = :courseId AND ce.status <> :dropped " +
+           "AND ce.student.id IN (SELECT other.student.id FROM CourseEnrollment other " +
+           "WHERE other.course.id = :otherCourseId AND other.status <> :dropped) ORDER BY ce.student.id")
+    List<Long> findCommonStudentIds(@Param("courseId") Long courseId, @Param("otherCourseId") Long otherCourseId,
+                                    @Param("dropped") CourseEnrollment.EnrollmentStatus dropped);
+    
     @Query("SELECT ce FROM CourseEnrollment ce WHERE ce.course.id = :courseId AND ce.status = :status")
     List<CourseEnrollment> findByCourseIdAndStatus(@Param("courseId") Long courseId, 
                                                    @Param("status") CourseEnrollment.EnrollmentStatus status);
     
     @Query("SELECT COUNT(ce) FROM CourseEnrollment ce WHERE ce.course.id = :courseId")
     long countByCourseId(@Param("courseId") Long courseId);
+    
+    // Enrollment totals of an instructor's courses with ids in [firstCourseId, lastCourseId], in one grouped query;
+    // courses without enrollments are absent
+    @Query("SELECT ce.course.id AS courseId, COUNT(ce) AS totalEnrollments, " +
+           "SUM(CASE WHEN ce.status = :completed THEN 1 ELSE 0 END) AS completedEnrollments " +
+           "FROM CourseEnrollment ce WHERE ce.course.instructor.id = :instructorId " +
+           "AND ce.course.id BETWEEN :firstCourseId AND :lastCourseId GROUP BY ce.course.id")
+    List<EnrollmentTotals> countEnrollmentsByInstructor(@Param("instructorId") Long instructorId,
+                                                        @Param("firstCourseId") Long firstCourseId,
+                                                        @Param("lastCourseId") Long lastCourseId,
+                                                        @Param("completed") CourseEnrollment.EnrollmentStatus completed);
+    
+    interface EnrollmentTotals {
+        Long getCourseId();
+        
+        long getTotalEnrollments();
+        
+        long getCompletedEnrollments();
+    }
+    
+    interface EnrollmentKey {
+        Long getCourseId();
+        
+        Long getStudentId();
+    }
+    
+    interface EnrollmentChange extends EnrollmentKey {
+        CourseEnrollment.EnrollmentStatus getStatus();
+    }
 }
\ No newline at end of file
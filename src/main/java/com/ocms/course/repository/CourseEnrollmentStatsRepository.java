@@ -0,0 +1,61 @@
+package com.ocms.course.repository;
+
+import com.ocms.course.entity.CourseEnrollment;
+import com.ocms.course.entity.CourseEnrollmentStats;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface CourseEnrollmentStatsRepository extends JpaRepository<CourseEnrollmentStats, Long> {
+    
+    // SELECT ... FOR UPDATE: concurrent changes to the same course wait for each other instead of overwriting
+    // each other's totals
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM CourseEnrollmentStats s WHERE s.courseId = :courseId")
+    Optional<CourseEnrollmentStats> findForUpdate(@Param("courseId") Long courseId);
+    
+    // Counts the enrollments of every course that has no stats row yet, e.g. courses created before the table
+    @Modifying
+    @Query("INSERT INTO CourseEnrollmentStats (courseId, totalEnrollments, completedEnrollments, " +
+           "completionPercentageSum) " +
+           "SELECT c.id, COUNT(ce), COALESCE(SUM(CASE WHEN ce.status = :completed THEN 1 ELSE 0 END), 0), " +
+           "COALESCE(SUM(ce.completionPercentage), 0.0) " +
+           "FROM Course c LEFT JOIN c.enrollments ce " +
+           "WHERE NOT EXISTS (SELECT 1 FROM CourseEnrollmentStats s WHERE s.courseId = c.id) " +
+           "GROUP BY c.id")
+    int insertMissing(@Param("completed") CourseEnrollment.EnrollmentStatus completed);
+    
+    @Modifying
+    @Query("INSERT INTO CourseEnrollmentStats (courseId, totalEnrollments, completedEnrollments, " +
+           "completionPercentageSum) " +
+           "SELECT c.id, COUNT(ce), COALESCE(SUM(CASE WHEN ce.status = :completed THEN 1 ELSE 0 END), 0), " +
+           "COALESCE(SUM(ce.completionPercentage), 0.0) " +
+           "FROM Course c LEFT JOIN c.enrollments ce " +
+           "WHERE c.id = :courseId AND NOT EXISTS (SELECT 1 FROM CourseEnrollmentStats s WHERE s.courseId = c.id) " +
+           "GROUP BY c.id")
+    int insertMissingForCourse(@Param("courseId") Long courseId,
+                               @Param("completed") CourseEnrollment.EnrollmentStatus completed);
+    
+    // The same totals counted from the enrollments of one course, for a course without a stats row
+    @Query("SELECT COUNT(ce) AS totalEnrollments, " +
+           "SUM(CASE WHEN ce.status = :completed THEN 1 ELSE 0 END) AS completedEnrollments, " +
+           "SUM(ce.completionPercentage) AS completionPercentageSum " +
+           "FROM CourseEnrollment ce WHERE ce.course.id = :courseId")
+    EnrollmentSums sumByCourseId(@Param("courseId") Long courseId,
+                                 @Param("completed") CourseEnrollment.EnrollmentStatus completed);
+    
+    interface EnrollmentSums {
+        long getTotalEnrollments();
+        
+        Long getCompletedEnrollments();
+        
+        Double getCompletionPercentageSum();
+    }
+}
\ No newline at end of file
@@ -1,8 +1,11 @@
 package com.ocms.course.repository;
 
 import com.ocms.course.entity.Course;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -13,6 +16,11 @@ public interface CourseRepository extends JpaRepository<Course, Long> {
     
     List<Course> findByInstructorId(Long instructorId);
     
+    // The course catalog; cached until the next write to the courses table
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "query.course.active")
+    })
     List<Course> findByIsActiveTrue();
     
     @Query("SELECT c FROM Course c WHERE c.instructor.id = :instructorId AND c.isActive = true")
@@ -1,8 +1,11 @@
 package com.ocms.course.repository;
 
 import com.ocms.course.entity.Module;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -13,7 +16,12 @@ public interface ModuleRepository extends JpaRepository<Module, Long> {
     
     List<Module> findByCourseIdOrderByModuleOrder(Long courseId);
     
-    @Query("SELECT m FROM Module m WHERE m.course.id = :courseId ORDER BY m.moduleOrder")
+    // Cached per course until the next write to the modules table
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "query.module.by-course")
+    })
+    @Query("SELECT m FROM Module m WHERE m.course.id = :courseId ORDER BY m.moduleOrder, m.id")
     List<Module> findModulesByCourseOrdered(@Param("courseId") Long courseId);
     
     @Query("SELECT MAX(m.moduleOrder) FROM Module m WHERE m.course.id = :courseId")
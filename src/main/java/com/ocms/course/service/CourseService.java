@@ -1,23 +1,47 @@
 package com.ocms.course.service;
 
-import com.ocms.common.datastructures.LinkedList;
+import com.ocms.common.datastructures.Long2LongMap;
+import com.ocms.common.datastructures.Long2ObjectMap;
+import com.ocms.common.datastructures.PersistentList;
+import com.ocms.common.datastructures.SegmentedLruCache;
 import com.ocms.common.exception.ResourceNotFoundException;
 import com.ocms.course.dto.CourseDto;
 import com.ocms.course.dto.ModuleDto;
+import com.ocms.course.dto.ModuleReorderDto;
 import com.ocms.course.entity.Course;
 import com.ocms.course.entity.CourseEnrollment;
+import com.ocms.course.entity.CourseEnrollmentStats;
 import com.ocms.course.entity.Module;
 import com.ocms.course.repository.CourseEnrollmentRepository;
+import com.ocms.course.repository.CourseEnrollmentStatsRepository;
 import com.ocms.course.repository.CourseRepository;
 import com.ocms.course.repository.ModuleRepository;
 import com.ocms.user.entity.User;
 import com.ocms.user.service.UserService;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -26,14 +50,56 @@ public class CourseService {
     private final CourseRepository courseRepository;
     private final ModuleRepository moduleRepository;
     private final CourseEnrollmentRepository enrollmentRepository;
+    private final CourseEnrollmentStatsRepository enrollmentStatsRepository;
     private final UserService userService;
+    private final EnrollmentIndex enrollmentIndex;
     
-    // HashMap for storing course enrollments
-    private final Map<Long, List<CourseEnrollment>> courseEnrollmentCache = new HashMap<>();
+    @Value("${course.enrollment-cache.max-enrollments:500000}")
+    private long enrollmentCacheMaxEnrollments;
     
-    // LinkedList for managing course modules in sequence
-    private final Map<Long, LinkedList<Module>> courseModuleSequences = new HashMap<>();
+    @Value("${course.enrollment-cache.expire-after-write-seconds:900}")
+    private long enrollmentCacheExpireAfterWriteSeconds;
     
+    // Rows are re-read with this much overlap, covering clock skew between instances and slow commits
+    @Value("${course.enrollment-index.refresh-overlap-seconds:60}")
+    private long enrollmentIndexRefreshOverlapSeconds;
+    
+    // Start of the last enrollment index load or refresh; null until the index has been built
+    private volatile LocalDateTime enrollmentIndexRefreshedAt;
+    
+    // Cached enrollment lists are kept sorted by id so that a single enrollment can be found by binary search
+    private static final Comparator<CourseEnrollment> ENROLLMENT_ORDER = Comparator.comparing(CourseEnrollment::getId);
+    
+    // Immutable enrollment list snapshots per course, updated by applying each change as a delta.
+    // Bounded by the total number of cached enrollments, so a few very large courses cannot exhaust the heap.
+    private SegmentedLruCache<Long, PersistentList<CourseEnrollment>> courseEnrollmentCache;
+    
+    // Module sequences are ordered by moduleOrder, with the id as a tie-breaker
+    private static final Comparator<Module> MODULE_ORDER = Comparator
+            .comparing(Module::getModuleOrder, Comparator.nullsFirst(Comparator.<Integer>naturalOrder()))
+            .thenComparing(Module::getId);
+    
+    // Spacing between module orders after renumbering, leaving room to move modules without touching neighbours
+    private static final int MODULE_ORDER_GAP = 1024;
+    
+    // Immutable module sequence snapshots; writers swap in a new version, readers only read the reference.
+    // A course without an entry has not been loaded yet; an empty entry is a course without modules.
+    private final Long2ObjectMap<PersistentList<Module>> courseModuleSequences = new Long2ObjectMap<>();
+    
+    // Module changes committed per course; a load that sees the count move may have missed one of them
+    private final Long2LongMap moduleSequenceVersions = new Long2LongMap();
+    
+    @PostConstruct
+    void initEnrollmentCache() {
+        courseEnrollmentCache = SegmentedLruCache.<Long, PersistentList<CourseEnrollment>>builder()
+                .maximumWeight(enrollmentCacheMaxEnrollments)
+                .weigher((courseId, enrollments) -> enrollments.size() + 1)
+                .concurrencyLevel(4)
+                .expireAfterWrite(Duration.ofSeconds(enrollmentCacheExpireAfterWriteSeconds))
+                .build();
+    }
+    
+    @Transactional
     public Course createCourse(CourseDto courseDto) {
         User instructor = userService.getUserById(courseDto.getInstructorId());
         
@@ -43,9 +109,11 @@ public class CourseService {
         course.setInstructor(instructor);
         
         Course savedCourse = courseRepository.save(course);
+        enrollmentStatsRepository.save(CourseEnrollmentStats.empty(savedCourse.getId()));
         
-        // Initialize LinkedList for this course
-        courseModuleSequences.put(savedCourse.getId(), new LinkedList<>());
+        // Initialize module sequence for this course
+        Long courseId = savedCourse.getId();
+        afterCommit(() -> courseModuleSequences.putIfAbsent(courseId, PersistentList.empty()));
         
         return savedCourse;
     }
@@ -91,9 +159,10 @@ public class CourseService {
         
         // Clear related caches
         courseModuleSequences.remove(id);
-        courseEnrollmentCache.remove(id);
+        courseEnrollmentCache.invalidate(id);
     }
     
+    @Transactional
     public Module addModule(ModuleDto moduleDto) {
         Course course = getCourseById(moduleDto.getCourseId());
         
@@ -105,13 +174,12 @@ public class CourseService {
         
         Module savedModule = moduleRepository.save(module);
         
-        // Add to LinkedList sequence
-        LinkedList<Module> sequence = courseModuleSequences.get(course.getId());
-        if (sequence == null) {
-            sequence = new LinkedList<>();
-            courseModuleSequences.put(course.getId(), sequence);
-        }
-        sequence.add(savedModule);
+        // Insert into the loaded module sequence at its position once committed. A sequence loaded after the
+        // commit already holds the module; its copy is replaced instead.
+        publishModuleChange(course.getId(), sequence -> {
+            int index = sequence.binarySearch(savedModule, MODULE_ORDER);
+            return index >= 0 ? sequence.with(index, savedModule) : sequence.plus(-index - 1, savedModule);
+        });
         
         return savedModule;
     }
@@ -125,8 +193,10 @@ public class CourseService {
                 .orElseThrow(() -> new ResourceNotFoundException("Module not found with id: " + id));
     }
     
+    @Transactional
     public Module updateModule(Long id, ModuleDto moduleDto) {
         Module module = getModuleById(id);
+        Module previousPosition = orderKey(module);
         
         if (moduleDto.getModuleTitle() != null) {
             module.setModuleTitle(moduleDto.getModuleTitle());
@@ -138,29 +208,198 @@ public class CourseService {
             module.setModuleOrder(moduleDto.getModuleOrder());
         }
         
-        return moduleRepository.save(module);
+        Module savedModule = moduleRepository.save(module);
+        
+        // Move the module within the loaded sequence and replace the cached copy once committed
+        publishModuleChange(module.getCourse().getId(), sequence -> {
+            PersistentList<Module> remaining = sequence.minusSorted(previousPosition, MODULE_ORDER);
+            if (remaining == sequence) {
+                // Loaded after the commit, the module is already at its new position; any other miss means the
+                // cached sequence is out of date, so it is dropped for the next read to reload
+                int index = sequence.binarySearch(savedModule, MODULE_ORDER);
+                return index >= 0 ? sequence.with(index, savedModule) : null;
+            }
+            return remaining.plusSorted(savedModule, MODULE_ORDER);
+        });
+        
+        return savedModule;
+    }
+    
+    // Applies a new module order in one transaction. Modules on the longest run that is already in order keep
+    // their moduleOrder; only the moved ones are given a value between their new neighbours, so moving a single
+    // module rewrites a single row. The course is renumbered with gaps only when there is no room left.
+    @Transactional
+    public List<Module> reorderModules(Long courseId, ModuleReorderDto reorderDto) {
+        getCourseById(courseId);
+        Map<Long, Module> modulesById = moduleRepository.findModulesByCourseOrdered(courseId).stream()
+                .collect(Collectors.toMap(Module::getId, Function.identity()));
+        
+        List<Long> moduleIds = reorderDto.getModuleIds();
+        if (moduleIds.size() != modulesById.size() || !new HashSet<>(moduleIds).equals(modulesById.keySet())) {
+            throw new IllegalArgumentException("Module IDs must list every module of the course exactly once");
+        }
+        
+        List<Module> ordered = new ArrayList<>(moduleIds.size());
+        for (Long moduleId : moduleIds) {
+            ordered.add(modulesById.get(moduleId));
+        }
+        
+        int[] newOrders = assignModuleOrders(ordered);
+        List<Module> changed = new ArrayList<>();
+        for (int i = 0; i < ordered.size(); i++) {
+            Module module = ordered.get(i);
+            if (module.getModuleOrder() == null || module.getModuleOrder() != newOrders[i]) {
+                module.setModuleOrder(newOrders[i]);
+                changed.add(module);
+            }
+        }
+        moduleRepository.saveAll(changed);
+        
+        PersistentList<Module> sequence = PersistentList.copyOf(ordered);
+        afterCommit(() -> courseModuleSequences.put(courseId, sequence));
+        
+        return ordered;
+    }
+    
+    private int[] assignModuleOrders(List<Module> ordered) {
+        int n = ordered.size();
+        boolean[] kept = longestIncreasingRun(ordered);
+        int[] orders = new int[n];
+        
+        int i = 0;
+        while (i < n) {
+            if (kept[i]) {
+                orders[i] = ordered.get(i).getModuleOrder();
+                i++;
+                continue;
+            }
+            // Spread the run of moved modules [i, j) evenly between its kept neighbours
+            int j = i;
+            while (j < n && !kept[j]) {
+                j++;
+            }
+            int movers = j - i;
+            long low = i > 0 ? orders[i - 1] : 0;
+            long high = j < n ? ordered.get(j).getModuleOrder() : low + (long) (movers + 1) * MODULE_ORDER_GAP;
+            long step = (high - low) / (movers + 1);
+            if (step < 1 || high > Integer.MAX_VALUE) {
+                return renumberedOrders(n);
+            }
+            for (int k = 0; k < movers; k++) {
+                orders[i + k] = (int) (low + step * (k + 1));
+            }
+            i = j;
+        }
+        return orders;
+    }
+    
+    // Marks a longest strictly increasing subsequence of the current module orders (patience sorting, O(n log n))
+    private boolean[] longestIncreasingRun(List<Module> ordered) {
+        int n = ordered.size();
+        int[] tails = new int[n];
+        int[] previous = new int[n];
+        int length = 0;
+        for (int i = 0; i < n; i++) {
+            Integer order = ordered.get(i).getModuleOrder();
+            previous[i] = -1;
+            if (order == null || order <= 0) {
+                continue;
+            }
+            int lo = 0;
+            int hi = length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (ordered.get(tails[mid]).getModuleOrder() < order) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            previous[i] = lo > 0 ? tails[lo - 1] : -1;
+            tails[lo] = i;
+            if (lo == length) {
+                length++;
+            }
+        }
+        
+        boolean[] kept = new boolean[n];
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+            kept[i] = true;
+        }
+        return kept;
+    }
+    
+    private int[] renumberedOrders(int count) {
+        int[] orders = new int[count];
+        Arrays.setAll(orders, i -> (i + 1) * MODULE_ORDER_GAP);
+        return orders;
     }
     
+    @Transactional
     public void deleteModule(Long id) {
         Module module = getModuleById(id);
         Long courseId = module.getCourse().getId();
         
         moduleRepository.delete(module);
         
-        // Remove from LinkedList sequence
-        LinkedList<Module> sequence = courseModuleSequences.get(courseId);
-        if (sequence != null) {
-            // Rebuild sequence after deletion
-            rebuildModuleSequence(courseId);
+        // Remove from the loaded module sequence once committed
+        publishModuleChange(courseId, sequence -> {
+            PersistentList<Module> remaining = sequence.minusSorted(module, MODULE_ORDER);
+            // A miss means the cached sequence is out of date; drop it so the next read reloads it
+            return remaining != sequence ? remaining : null;
+        });
+    }
+    
+    // Rebuilds the enrollment index from the database; enrollments committed here meanwhile are replayed over the
+    // load, and those committed on other instances are picked up by the next refresh
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuildEnrollmentIndex() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        enrollmentIndex.rebuild(() -> enrollmentRepository
+                .streamActiveEnrollmentKeys(CourseEnrollment.EnrollmentStatus.DROPPED)
+                .map(key -> new long[]{key.getCourseId(), key.getStudentId()}));
+        enrollmentIndexRefreshedAt = startedAt;
+    }
+    
+    // Picks up enrollments and drops made on other instances; local ones are applied as they commit
+    @Scheduled(fixedDelayString = "${course.enrollment-index.refresh-interval-ms:30000}")
+    public void refreshEnrollmentIndex() {
+        LocalDateTime since = enrollmentIndexRefreshedAt;
+        if (since == null) {
+            return;
         }
+        LocalDateTime startedAt = LocalDateTime.now();
+        // Applied in the order they were made, so a drop followed by a new enrollment leaves the student enrolled.
+        // Enrolls and drops committed here while the rows are read are replayed after them, so they are never undone.
+        enrollmentIndex.refresh(() -> enrollmentRepository.findChangesSince(
+                        since.minusSeconds(enrollmentIndexRefreshOverlapSeconds)).stream()
+                .map(change -> new long[]{change.getCourseId(), change.getStudentId(),
+                        change.getStatus() == CourseEnrollment.EnrollmentStatus.DROPPED ? 0 : 1}));
+        enrollmentIndexRefreshedAt = startedAt;
+    }
+    
+    // Creates the stats rows of courses from before the stats table, counting their enrollments once
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillEnrollmentStats() {
+        enrollmentStatsRepository.insertMissing(CourseEnrollment.EnrollmentStatus.COMPLETED);
     }
     
+    @Transactional
     public CourseEnrollment enrollStudent(Long courseId, Long studentId) {
+        // Rejected before any write, since the enrollment index applied after commit could not hold it
+        if (!EnrollmentIndex.isIndexable(courseId) || !EnrollmentIndex.isIndexable(studentId)) {
+            throw new IllegalArgumentException("Course or student id out of range for enrollment: "
+                    + courseId + ", " + studentId);
+        }
         Course course = getCourseById(courseId);
         User student = userService.getUserById(studentId);
         
-        // Check if already enrolled
-        if (enrollmentRepository.existsByCourseIdAndStudentId(courseId, studentId)) {
+        // Holding the course's stats row lock, the check below cannot race a duplicate request on any instance
+        CourseEnrollmentStats stats = lockEnrollmentStats(courseId);
+        if (!enrollmentRepository.findActiveForUpdate(
+                courseId, studentId, CourseEnrollment.EnrollmentStatus.DROPPED).isEmpty()) {
             throw new IllegalArgumentException("Student is already enrolled in this course");
         }
         
@@ -169,58 +408,228 @@ public class CourseService {
         enrollment.setStudent(student);
         
         CourseEnrollment savedEnrollment = enrollmentRepository.save(enrollment);
+        updateEnrollmentStats(stats, null, savedEnrollment);
         
-        // Update cache
-        updateEnrollmentCache(courseId);
+        // The index and the cache only ever show committed enrollments
+        afterCommit(() -> {
+            enrollmentIndex.add(courseId, studentId);
+            applyEnrollmentDelta(savedEnrollment);
+        });
         
         return savedEnrollment;
     }
     
-    public List<CourseEnrollment> getEnrollmentsByCourse(Long courseId) {
-        // Check cache first
-        List<CourseEnrollment> cached = courseEnrollmentCache.get(courseId);
-        if (cached != null) {
-            return cached;
-        }
+    // Marks the enrollment as dropped; the record is kept and the student may enroll again later
+    @Transactional
+    public CourseEnrollment dropStudent(Long courseId, Long studentId) {
+        CourseEnrollmentStats stats = lockEnrollmentStats(courseId);
+        CourseEnrollment enrollment = enrollmentRepository.findActiveForUpdate(
+                        courseId, studentId, CourseEnrollment.EnrollmentStatus.DROPPED).stream()
+                .findFirst()
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "Student " + studentId + " is not enrolled in course " + courseId));
+        CourseEnrollment previousState = statsKey(enrollment);
+        
+        enrollment.setStatus(CourseEnrollment.EnrollmentStatus.DROPPED);
+        CourseEnrollment savedEnrollment = enrollmentRepository.save(enrollment);
+        updateEnrollmentStats(stats, previousState, savedEnrollment);
         
-        // If not in cache, get from database
-        List<CourseEnrollment> enrollments = enrollmentRepository.findByCourseId(courseId);
-        courseEnrollmentCache.put(courseId, enrollments);
+        afterCommit(() -> {
+            enrollmentIndex.remove(courseId, studentId);
+            applyEnrollmentDelta(savedEnrollment);
+        });
         
-        return enrollments;
+        return savedEnrollment;
+    }
+    
+    // Until the enrollment index is first built at startup, these are answered by the database
+    public boolean isEnrolled(Long courseId, Long studentId) {
+        if (!enrollmentIndex.isLoaded()) {
+            return findActiveEnrollment(courseId, studentId).isPresent();
+        }
+        return enrollmentIndex.isEnrolled(courseId, studentId);
+    }
+    
+    public int countEnrolledStudents(Long courseId) {
+        if (!enrollmentIndex.isLoaded()) {
+            return (int) enrollmentRepository.countByCourseIdAndStatusNot(courseId,
+                    CourseEnrollment.EnrollmentStatus.DROPPED);
+        }
+        return enrollmentIndex.countStudents(courseId);
+    }
+    
+    public List<Long> getEnrolledCourseIds(Long studentId) {
+        if (!enrollmentIndex.isLoaded()) {
+            return enrollmentRepository.findActiveCourseIds(studentId, CourseEnrollment.EnrollmentStatus.DROPPED);
+        }
+        return enrollmentIndex.getCourseIds(studentId);
+    }
+    
+    public List<Long> getCommonStudentIds(Long courseId, Long otherCourseId) {
+        if (!enrollmentIndex.isLoaded()) {
+            return enrollmentRepository.findCommonStudentIds(courseId, otherCourseId,
+                    CourseEnrollment.EnrollmentStatus.DROPPED);
+        }
+        return enrollmentIndex.getCommonStudentIds(courseId, otherCourseId);
+    }
+    
+    public List<CourseEnrollment> getEnrollmentsByCourse(Long courseId) {
+        // Check cache first; if not in cache, get from database
+        return courseEnrollmentCache.get(courseId, this::loadEnrollments);
+    }
+    
+    // Total and completed enrollments per course of an instructor, for the courses with ids in
+    // [firstCourseId, lastCourseId], counted by the database without loading enrollments
+    public Map<Long, CourseEnrollmentRepository.EnrollmentTotals> countEnrollmentsByInstructor(
+            Long instructorId, Long firstCourseId, Long lastCourseId) {
+        return enrollmentRepository.countEnrollmentsByInstructor(instructorId, firstCourseId, lastCourseId,
+                        CourseEnrollment.EnrollmentStatus.COMPLETED).stream()
+                .collect(Collectors.toMap(CourseEnrollmentRepository.EnrollmentTotals::getCourseId,
+                        Function.identity()));
     }
     
-    public LinkedList<Module> getModuleSequence(Long courseId) {
-        LinkedList<Module> sequence = courseModuleSequences.get(courseId);
-        if (sequence == null || sequence.isEmpty()) {
-            // Rebuild sequence from database
-            rebuildModuleSequence(courseId);
-            sequence = courseModuleSequences.get(courseId);
+    // Enrollment totals of a course from its stats row; a course without one yet is counted by the database
+    public CourseEnrollmentStats getEnrollmentStats(Long courseId) {
+        return enrollmentStatsRepository.findById(courseId).orElseGet(() -> {
+            CourseEnrollmentStatsRepository.EnrollmentSums sums = enrollmentStatsRepository.sumByCourseId(
+                    courseId, CourseEnrollment.EnrollmentStatus.COMPLETED);
+            return new CourseEnrollmentStats(courseId, sums.getTotalEnrollments(),
+                    sums.getCompletedEnrollments() != null ? sums.getCompletedEnrollments() : 0,
+                    sums.getCompletionPercentageSum() != null ? sums.getCompletionPercentageSum() : 0.0);
+        });
+    }
+    
+    private PersistentList<CourseEnrollment> loadEnrollments(Long courseId) {
+        List<CourseEnrollment> enrollments = new ArrayList<>(enrollmentRepository.findByCourseId(courseId));
+        enrollments.sort(ENROLLMENT_ORDER);
+        return PersistentList.copyOf(enrollments);
+    }
+    
+    public PersistentList<Module> getModuleSequence(Long courseId) {
+        PersistentList<Module> sequence = courseModuleSequences.get(courseId);
+        if (sequence == null) {
+            // Load sequence from database on first access
+            sequence = loadModuleSequence(courseId);
         }
         return sequence;
     }
     
-    private void rebuildModuleSequence(Long courseId) {
-        List<Module> modules = moduleRepository.findModulesByCourseOrdered(courseId);
-        LinkedList<Module> sequence = new LinkedList<>();
-        
-        for (Module module : modules) {
-            sequence.add(module);
+    // Queried outside the map's lock, so reads of other courses never wait on it. A concurrent load that stored its
+    // sequence first wins. If a module change of the course committed while the query ran, the result may predate
+    // it, so it is served to this caller but not kept; the next read loads again.
+    private PersistentList<Module> loadModuleSequence(Long courseId) {
+        long version = moduleSequenceVersions.getOrDefault(courseId, 0);
+        PersistentList<Module> loaded = PersistentList.copyOf(moduleRepository.findModulesByCourseOrdered(courseId));
+        PersistentList<Module> existing = courseModuleSequences.putIfAbsent(courseId, loaded);
+        if (existing != null) {
+            return existing;
         }
-        
-        courseModuleSequences.put(courseId, sequence);
+        if (moduleSequenceVersions.getOrDefault(courseId, 0) != version) {
+            courseModuleSequences.computeIfPresent(courseId, sequence -> sequence == loaded ? null : sequence);
+        }
+        return loaded;
+    }
+    
+    // Applies a module change to the loaded sequence of its course once committed. The version is counted first,
+    // so a load that stored its sequence before the change could be applied to it sees the count move.
+    private void publishModuleChange(Long courseId, UnaryOperator<PersistentList<Module>> change) {
+        afterCommit(() -> {
+            moduleSequenceVersions.addTo(courseId, 1);
+            courseModuleSequences.computeIfPresent(courseId, change);
+        });
+    }
+    
+    // Detached copy of the fields the sequence is ordered by, taken before an update changes them
+    private static Module orderKey(Module module) {
+        Module key = new Module();
+        key.setId(module.getId());
+        key.setModuleOrder(module.getModuleOrder());
+        return key;
+    }
+    
+    // Detached copy of the fields the course stats are summed from, taken before an update changes them
+    private static CourseEnrollment statsKey(CourseEnrollment enrollment) {
+        CourseEnrollment key = new CourseEnrollment();
+        key.setStatus(enrollment.getStatus());
+        key.setCompletionPercentage(enrollment.getCompletionPercentage());
+        return key;
+    }
+    
+    // Locks the stats row of a course for the caller's transaction, which serializes enrollment changes in the
+    // course across instances
+    private CourseEnrollmentStats lockEnrollmentStats(Long courseId) {
+        Optional<CourseEnrollmentStats> row = enrollmentStatsRepository.findForUpdate(courseId);
+        if (row.isPresent()) {
+            return row.get();
+        }
+        // A course from before the stats table that the backfill has not reached; its row is counted from the
+        // enrollments, before the caller's change
+        enrollmentStatsRepository.insertMissingForCourse(courseId, CourseEnrollment.EnrollmentStatus.COMPLETED);
+        return enrollmentStatsRepository.findForUpdate(courseId)
+                .orElseThrow(() -> new ResourceNotFoundException("Course not found with id: " + courseId));
+    }
+    
+    // Adds the difference between an enrollment's previous state (null for a new enrollment) and its current one
+    // to the locked stats row of its course; written back when the transaction commits, still holding the lock
+    private static void updateEnrollmentStats(CourseEnrollmentStats stats, CourseEnrollment previous,
+                                              CourseEnrollment current) {
+        long enrollments = previous == null ? 1 : 0;
+        long completed = completedCount(current) - completedCount(previous);
+        double completionPercentage = completionPercentage(current) - completionPercentage(previous);
+        stats.setTotalEnrollments(stats.getTotalEnrollments() + enrollments);
+        stats.setCompletedEnrollments(stats.getCompletedEnrollments() + completed);
+        stats.setCompletionPercentageSum(stats.getCompletionPercentageSum() + completionPercentage);
+    }
+    
+    private static long completedCount(CourseEnrollment enrollment) {
+        return enrollment != null && enrollment.getStatus() == CourseEnrollment.EnrollmentStatus.COMPLETED ? 1 : 0;
+    }
+    
+    private static double completionPercentage(CourseEnrollment enrollment) {
+        return enrollment != null && enrollment.getCompletionPercentage() != null
+                ? enrollment.getCompletionPercentage()
+                : 0.0;
+    }
+    
+    private Optional<CourseEnrollment> findActiveEnrollment(Long courseId, Long studentId) {
+        return enrollmentRepository.findFirstByCourseIdAndStudentIdAndStatusNot(
+                courseId, studentId, CourseEnrollment.EnrollmentStatus.DROPPED);
+    }
+    
+    // Runs the action once the current transaction has committed, and not at all if it rolls back
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
     
-    private void updateEnrollmentCache(Long courseId) {
-        List<CourseEnrollment> enrollments = enrollmentRepository.findByCourseId(courseId);
-        courseEnrollmentCache.put(courseId, enrollments);
+    // Inserts a new enrollment into the cached list of its course, or replaces the cached copy of an existing one.
+    // O(log n) instead of reloading the course; a course that is not cached is left to load on its next read.
+    private void applyEnrollmentDelta(CourseEnrollment enrollment) {
+        courseEnrollmentCache.computeIfPresent(enrollment.getCourse().getId(), enrollments -> {
+            int index = enrollments.binarySearch(enrollment, ENROLLMENT_ORDER);
+            return index >= 0 ? enrollments.with(index, enrollment) : enrollments.plus(-index - 1, enrollment);
+        });
     }
     
-    public Map<Long, LinkedList<Module>> getCourseModuleSequences() {
-        return new HashMap<>(courseModuleSequences);
+    public Map<Long, PersistentList<Module>> getCourseModuleSequences() {
+        Map<Long, PersistentList<Module>> snapshot = new HashMap<>();
+        courseModuleSequences.forEach(snapshot::put);
+        return snapshot;
     }
     
     public Map<Long, List<CourseEnrollment>> getCourseEnrollmentCache() {
-        return new HashMap<>(courseEnrollmentCache);
+        return new HashMap<>(courseEnrollmentCache.asMap());
+    }
+    
+    public SegmentedLruCache.Stats getCourseEnrollmentCacheStats() {
+        return courseEnrollmentCache.stats();
     }
 }
\ No newline at end of file
@@ -0,0 +1,266 @@
+package com.ocms.course.service;
+
+import com.ocms.common.datastructures.Long2ObjectMap;
+import com.ocms.common.datastructures.RoaringBitmap;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// In-memory view of the active (not dropped) enrollments in both directions: the students of each course and the
+// courses of each student, as compressed bitmaps. Membership, counts and intersections never touch the database.
+// The database stays the source of truth; the index is rebuilt from it at startup, updated as enrolls and drops
+// commit, and refreshed with the changes made on other instances.
+// Published bitmaps are never modified: a writer swaps in an updated copy that shares the untouched chunks, so a
+// read is a single optimistic map lookup and takes no lock of its own.
+@Component
+public class EnrollmentIndex {
+
+    // Serializes writers with each other; readers never take it
+    private final Lock writeLock = new ReentrantLock();
+    // Serializes rebuilds and refreshes with each other
+    private final Lock loadLock = new ReentrantLock();
+    // Replaced as a whole by a rebuild
+    private volatile Long2ObjectMap<RoaringBitmap> studentsByCourse = new Long2ObjectMap<>();
+    private volatile Long2ObjectMap<RoaringBitmap> coursesByStudent = new Long2ObjectMap<>();
+    // Changes made while a rebuild or refresh is loading, as {courseId, studentId, 1 for add / 0 for remove};
+    // null otherwise. Guarded by writeLock.
+    private List<long[]> pendingChanges;
+    private volatile boolean loaded;
+
+    // False until the first rebuild completes; until then callers must ask the database
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // Bitmaps hold ints; enrollments with ids beyond that range cannot be indexed and must be rejected up front
+    public static boolean isIndexable(long id) {
+        return id >= 0 && id <= Integer.MAX_VALUE;
+    }
+
+    // Returns false if the student was already enrolled
+    public boolean add(long courseId, long studentId) {
+        int course = toIndexKey(courseId);
+        int student = toIndexKey(studentId);
+        writeLock.lock();
+        try {
+            record(courseId, studentId, true);
+            if (!addTo(studentsByCourse, courseId, student)) {
+                return false;
+            }
+            addTo(coursesByStudent, studentId, course);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Returns false if the student was not enrolled; ids that cannot be indexed were never added
+    public boolean remove(long courseId, long studentId) {
+        if (!isIndexable(courseId) || !isIndexable(studentId)) {
+            return false;
+        }
+        writeLock.lock();
+        try {
+            record(courseId, studentId, false);
+            if (!removeFrom(studentsByCourse, courseId, (int) studentId)) {
+                return false;
+            }
+            removeFrom(coursesByStudent, studentId, (int) courseId);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public boolean isEnrolled(long courseId, long studentId) {
+        RoaringBitmap students = studentsByCourse.get(courseId);
+        return students != null && isIndexable(studentId) && students.contains((int) studentId);
+    }
+
+    public int countStudents(long courseId) {
+        RoaringBitmap students = studentsByCourse.get(courseId);
+        return students == null ? 0 : students.cardinality();
+    }
+
+    public List<Long> getStudentIds(long courseId) {
+        return toIds(studentsByCourse.get(courseId));
+    }
+
+    public List<Long> getCourseIds(long studentId) {
+        return toIds(coursesByStudent.get(studentId));
+    }
+
+    // Students enrolled in both courses
+    public List<Long> getCommonStudentIds(long courseId, long otherCourseId) {
+        Long2ObjectMap<RoaringBitmap> bitmaps = studentsByCourse;
+        RoaringBitmap students = bitmaps.get(courseId);
+        RoaringBitmap otherStudents = bitmaps.get(otherCourseId);
+        if (students == null || otherStudents == null) {
+            return List.of();
+        }
+        return toIds(RoaringBitmap.and(students, otherStudents));
+    }
+
+    public int countCommonStudents(long courseId, long otherCourseId) {
+        Long2ObjectMap<RoaringBitmap> bitmaps = studentsByCourse;
+        RoaringBitmap students = bitmaps.get(courseId);
+        RoaringBitmap otherStudents = bitmaps.get(otherCourseId);
+        if (students == null || otherStudents == null) {
+            return 0;
+        }
+        return RoaringBitmap.andCardinality(students, otherStudents);
+    }
+
+    // Replaces the contents with the (courseId, studentId) pairs of the stream, which is opened only after changes
+    // start being recorded. The pairs are loaded without blocking readers or writers; the changes made meanwhile
+    // are then replayed over them in order, so an enroll or drop committed after the query took its snapshot is not
+    // lost, and one the snapshot already includes is applied a second time without effect.
+    public void rebuild(Supplier<Stream<long[]>> pairs) {
+        loadLock.lock();
+        try {
+            startRecording();
+            Long2ObjectMap<RoaringBitmap> loadedStudentsByCourse = new Long2ObjectMap<>();
+            Long2ObjectMap<RoaringBitmap> loadedCoursesByStudent = new Long2ObjectMap<>();
+            boolean complete = false;
+            try (Stream<long[]> stream = pairs.get()) {
+                // Not yet published, so the bitmaps can be filled in place
+                stream.forEach(pair -> {
+                    bitmapFor(loadedStudentsByCourse, pair[0]).add(toIndexKey(pair[1]));
+                    bitmapFor(loadedCoursesByStudent, pair[1]).add(toIndexKey(pair[0]));
+                });
+                complete = true;
+            } finally {
+                writeLock.lock();
+                try {
+                    List<long[]> changes = stopRecording();
+                    if (complete) {
+                        studentsByCourse = loadedStudentsByCourse;
+                        coursesByStudent = loadedCoursesByStudent;
+                        apply(changes);
+                        loaded = true;
+                    }
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    // Applies changes read from the database, as {courseId, studentId, 1 for add / 0 for remove} in the order they
+    // were made. The stream is opened only after changes start being recorded; the changes made here meanwhile are
+    // replayed after it, so a row read before a local enroll or drop committed never undoes that change.
+    public void refresh(Supplier<Stream<long[]>> changes) {
+        loadLock.lock();
+        try {
+            startRecording();
+            List<long[]> read = null;
+            try (Stream<long[]> stream = changes.get()) {
+                read = stream.toList();
+            } finally {
+                writeLock.lock();
+                try {
+                    List<long[]> local = stopRecording();
+                    if (read != null) {
+                        apply(read);
+                        apply(local);
+                    }
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private void startRecording() {
+        writeLock.lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private List<long[]> stopRecording() {
+        List<long[]> changes = pendingChanges;
+        pendingChanges = null;
+        return changes;
+    }
+
+    private void apply(List<long[]> changes) {
+        for (long[] change : changes) {
+            if (change[2] == 1) {
+                add(change[0], change[1]);
+            } else {
+                remove(change[0], change[1]);
+            }
+        }
+    }
+
+    private void record(long courseId, long studentId, boolean added) {
+        if (pendingChanges != null) {
+            pendingChanges.add(new long[]{courseId, studentId, added ? 1 : 0});
+        }
+    }
+
+    private static RoaringBitmap bitmapFor(Long2ObjectMap<RoaringBitmap> bitmaps, long id) {
+        return bitmaps.computeIfAbsent(id, RoaringBitmap::new);
+    }
+
+    private static boolean addTo(Long2ObjectMap<RoaringBitmap> bitmaps, long id, int value) {
+        RoaringBitmap bitmap = bitmaps.get(id);
+        if (bitmap == null) {
+            bitmap = new RoaringBitmap();
+            bitmap.add(value);
+            bitmaps.put(id, bitmap);
+            return true;
+        }
+        RoaringBitmap updated = bitmap.plus(value);
+        if (updated == bitmap) {
+            return false;
+        }
+        bitmaps.put(id, updated);
+        return true;
+    }
+
+    private static boolean removeFrom(Long2ObjectMap<RoaringBitmap> bitmaps, long id, int value) {
+        RoaringBitmap bitmap = bitmaps.get(id);
+        if (bitmap == null) {
+            return false;
+        }
+        RoaringBitmap updated = bitmap.minus(value);
+        if (updated == bitmap) {
+            return false;
+        }
+        if (updated.isEmpty()) {
+            bitmaps.remove(id);
+        } else {
+            bitmaps.put(id, updated);
+        }
+        return true;
+    }
+
+    private static List<Long> toIds(RoaringBitmap bitmap) {
+        if (bitmap == null) {
+            return List.of();
+        }
+        List<Long> ids = new ArrayList<>(bitmap.cardinality());
+        bitmap.forEach(value -> ids.add((long) value));
+        return ids;
+    }
+
+    private static int toIndexKey(long id) {
+        if (!isIndexable(id)) {
+            throw new IllegalArgumentException("Id out of range for the enrollment index: " + id);
+        }
+        return (int) id;
+    }
+}
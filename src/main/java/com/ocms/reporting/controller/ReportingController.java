@@ -1,16 +1,22 @@
 package com.ocms.reporting.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.ocms.common.dto.ApiResponse;
 import com.ocms.reporting.dto.ReportDto;
+import com.ocms.reporting.dto.ReportJobDto;
+import com.ocms.reporting.service.ReportJobService;
 import com.ocms.reporting.service.ReportingService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -20,6 +26,7 @@ import java.util.TreeMap;
 public class ReportingController {
     
     private final ReportingService reportingService;
+    private final ReportJobService reportJobService;
     
     @PostMapping("/custom")
     @PreAuthorize("hasRole('ADMIN') or hasRole('INSTRUCTOR')")
@@ -28,6 +35,47 @@ public class ReportingController {
         return ResponseEntity.ok(ApiResponse.success("Report generated successfully", report));
     }
     
+    // Same reports as /custom, generated in the background; poll the returned job and fetch its result when completed
+    @PostMapping("/jobs")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('INSTRUCTOR')")
+    public ResponseEntity<ApiResponse<ReportJobDto>> submitReportJob(@Valid @RequestBody ReportDto reportDto,
+                                                                     Authentication authentication) {
+        ReportJobDto job = reportJobService.submit(reportDto, authentication.getName());
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success("Report job submitted", job));
+    }
+    
+    @GetMapping("/jobs")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('INSTRUCTOR')")
+    public ResponseEntity<ApiResponse<List<ReportJobDto>>> getReportJobs(Authentication authentication) {
+        List<ReportJobDto> jobs = reportJobService.getJobs(authentication.getName());
+        return ResponseEntity.ok(ApiResponse.success(jobs));
+    }
+    
+    @GetMapping("/jobs/{jobId}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('INSTRUCTOR')")
+    public ResponseEntity<ApiResponse<ReportJobDto>> getReportJob(@PathVariable String jobId,
+                                                                  Authentication authentication) {
+        ReportJobDto job = reportJobService.getJob(jobId, authentication.getName(), isAdmin(authentication));
+        return ResponseEntity.ok(ApiResponse.success(job));
+    }
+    
+    @GetMapping("/jobs/{jobId}/result")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('INSTRUCTOR')")
+    public ResponseEntity<ApiResponse<JsonNode>> getReportJobResult(@PathVariable String jobId,
+                                                                    Authentication authentication) {
+        JsonNode report = reportJobService.getResult(jobId, authentication.getName(), isAdmin(authentication));
+        return ResponseEntity.ok(ApiResponse.success("Report generated successfully", report));
+    }
+    
+    // Cancels a queued or running job; a finished one is discarded along with its result
+    @DeleteMapping("/jobs/{jobId}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('INSTRUCTOR')")
+    public ResponseEntity<ApiResponse<ReportJobDto>> cancelReportJob(@PathVariable String jobId,
+                                                                     Authentication authentication) {
+        ReportJobDto job = reportJobService.cancel(jobId, authentication.getName(), isAdmin(authentication));
+        return ResponseEntity.ok(ApiResponse.success("Report job cancelled", job));
+    }
+    
     @GetMapping("/student-performance/{studentId}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('INSTRUCTOR')")
     public ResponseEntity<ApiResponse<Map<String, Object>>> generateStudentPerformanceReport(
@@ -94,4 +142,10 @@ public class ReportingController {
         reportingService.logActivity(activity);
         return ResponseEntity.ok(ApiResponse.success("Activity logged successfully", null));
     }
+    
+    // Admins may see and cancel every user's report jobs
+    private static boolean isAdmin(Authentication authentication) {
+        return authentication.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+    }
 }
\ No newline at end of file
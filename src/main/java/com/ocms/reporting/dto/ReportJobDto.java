@@ -0,0 +1,35 @@
+package com.ocms.reporting.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class ReportJobDto {
+    
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+    
+    private String jobId;
+    
+    private String reportType;
+    
+    private String requestedBy;
+    
+    private Status status;
+    
+    // 0-100; reports that cannot tell their progress jump from 0 to 100 when they complete
+    private int progress;
+    
+    private LocalDateTime submittedAt;
+    
+    private LocalDateTime startedAt;
+    
+    private LocalDateTime finishedAt;
+    
+    // When the result, and the job itself, are discarded
+    private LocalDateTime expiresAt;
+    
+    private String error;
+}
\ No newline at end of file
@@ -0,0 +1,424 @@
+package com.ocms.reporting.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ocms.common.exception.ResourceNotFoundException;
+import com.ocms.common.exception.ServiceUnavailableException;
+import com.ocms.common.exception.TooManyRequestsException;
+import com.ocms.reporting.dto.ReportDto;
+import com.ocms.reporting.dto.ReportJobDto;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Runs custom reports in the background for clients that cannot hold a request open until they are done: a job is
+// submitted, polled for its status and progress, and its result fetched once it has completed. At most `threads`
+// reports run at once; beyond threads + queue-capacity active jobs, or max-active-per-user for one user, submissions
+// are refused with a Retry-After estimated from the backlog. Results are written to result-dir as JSON and kept,
+// together with the finished job's status, for result-ttl-seconds; completed jobs are picked up again after a restart.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReportJobService {
+    
+    private static final String RESULT_SUFFIX = ".json";
+    private static final String JOB_SUFFIX = ".job.json";
+    private static final String TEMP_SUFFIX = ".tmp";
+    
+    // Assumed run time of a report until one has completed, for Retry-After
+    private static final long DEFAULT_RUN_NANOS = 5_000_000_000L;
+    
+    private final ReportingService reportingService;
+    private final ObjectMapper objectMapper;
+    
+    @Value("${reporting.jobs.threads:2}")
+    private int threads;
+    
+    // Runs each job on its own virtual thread (Java 21+); at most `threads` of them generate a report at a time
+    @Value("${reporting.jobs.virtual-threads:false}")
+    private boolean virtualThreads;
+    
+    @Value("${reporting.jobs.queue-capacity:50}")
+    private int queueCapacity;
+    
+    @Value("${reporting.jobs.max-active-per-user:3}")
+    private int maxActivePerUser;
+    
+    @Value("${reporting.jobs.result-dir:${java.io.tmpdir}/ocms-report-jobs}")
+    private String resultDir;
+    
+    @Value("${reporting.jobs.result-ttl-seconds:86400}")
+    private long resultTtlSeconds;
+    
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    
+    // Queued and running jobs, in total and per user; released when a job finishes, fails or is cancelled
+    private final AtomicInteger activeJobs = new AtomicInteger();
+    private final Map<String, Integer> activeJobsByUser = new ConcurrentHashMap<>();
+    
+    private final LongAdder completedJobs = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+    
+    private Path resultPath;
+    private Semaphore runSlots;
+    private ExecutorService executor;
+    
+    @PostConstruct
+    void init() throws IOException {
+        resultPath = Files.createDirectories(Path.of(resultDir));
+        runSlots = new Semaphore(threads);
+        executor = virtualThreads ? newVirtualThreadExecutor() : null;
+        if (executor == null) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(threads, task -> {
+                Thread thread = new Thread(task, "report-job-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+    
+    // Looked up at runtime, as this is built for Java 17; older runtimes fall back to the platform pool
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    public ReportJobDto submit(ReportDto request, String username) {
+        if (activeJobs.incrementAndGet() > threads + queueCapacity) {
+            activeJobs.decrementAndGet();
+            throw new ServiceUnavailableException("Too many reports in progress, please retry",
+                    retryAfterSeconds(activeJobs.get()));
+        }
+        try {
+            activeJobsByUser.compute(username, (user, count) -> {
+                int active = count != null ? count : 0;
+                if (active >= maxActivePerUser) {
+                    throw new TooManyRequestsException("At most " + maxActivePerUser
+                            + " reports can be queued or running per user", retryAfterSeconds(threads));
+                }
+                return active + 1;
+            });
+        } catch (TooManyRequestsException e) {
+            activeJobs.decrementAndGet();
+            throw e;
+        }
+        
+        Job job = new Job(UUID.randomUUID().toString(), request, username);
+        jobs.put(job.id, job);
+        try {
+            job.future = executor.submit(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            finish(job, ReportJobDto.Status.FAILED, "Report jobs are shutting down", LocalDateTime.now());
+        }
+        return job.toDto();
+    }
+    
+    public ReportJobDto getJob(String jobId, String username, boolean admin) {
+        return findJob(jobId, username, admin).toDto();
+    }
+    
+    // The user's jobs that are active or still within their retention, newest first
+    public List<ReportJobDto> getJobs(String username) {
+        return jobs.values().stream()
+                .filter(job -> job.requestedBy.equals(username))
+                .map(Job::toDto)
+                .sorted(Comparator.comparing(ReportJobDto::getSubmittedAt).reversed())
+                .toList();
+    }
+    
+    // Result of a completed job, as written when it completed
+    public JsonNode getResult(String jobId, String username, boolean admin) {
+        Job job = findJob(jobId, username, admin);
+        ReportJobDto.Status status = job.toDto().getStatus();
+        Path resultFile = resultPath.resolve(job.id + RESULT_SUFFIX);
+        if (status != ReportJobDto.Status.COMPLETED || !Files.exists(resultFile)) {
+            throw new ResourceNotFoundException("No result for report job " + jobId + " (" + status + ")");
+        }
+        try {
+            return objectMapper.readTree(resultFile.toFile());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    // Cancels a queued or running job, which keeps its CANCELLED status until it expires; a finished job is
+    // discarded along with its result. A running report is not interrupted, as that could break the database
+    // connection it is using: it stops at its next progress report, or its result is discarded when it completes.
+    public ReportJobDto cancel(String jobId, String username, boolean admin) {
+        Job job = findJob(jobId, username, admin);
+        ReportJobDto.Status previous = finish(job, ReportJobDto.Status.CANCELLED, null, LocalDateTime.now());
+        if (previous == null) {
+            jobs.remove(job.id);
+            deleteFiles(job.id);
+        } else if (previous == ReportJobDto.Status.QUEUED && job.future != null) {
+            job.future.cancel(true);
+        }
+        return job.toDto();
+    }
+    
+    private Job findJob(String jobId, String username, boolean admin) {
+        Job job = jobs.get(jobId);
+        // Other users' jobs are reported as missing rather than forbidden, so that their ids cannot be probed
+        if (job == null || !(admin || job.requestedBy.equals(username))) {
+            throw new ResourceNotFoundException("Report job not found with id: " + jobId);
+        }
+        return job;
+    }
+    
+    private void run(Job job) {
+        try {
+            runSlots.acquire();
+        } catch (InterruptedException e) {
+            // Cancelled while waiting for a slot
+            return;
+        }
+        try {
+            if (!job.start()) {
+                return;
+            }
+            long startedAt = System.nanoTime();
+            Map<String, Object> result = reportingService.generateCustomReport(job.request, fraction -> {
+                if (job.isCancelled()) {
+                    throw new CancellationException("Report job cancelled: " + job.id);
+                }
+                job.progress = (int) (fraction * 100);
+            });
+            write(job.id + RESULT_SUFFIX, result);
+            runNanos.add(System.nanoTime() - startedAt);
+            completedJobs.increment();
+            
+            // The status is stored after the result, so that only jobs with a complete result are picked up after a
+            // restart, and before the job shows as completed, so that discarding the completed job removes both
+            LocalDateTime now = LocalDateTime.now();
+            ReportJobDto completed = job.toDto();
+            completed.setStatus(ReportJobDto.Status.COMPLETED);
+            completed.setProgress(100);
+            completed.setFinishedAt(now);
+            completed.setExpiresAt(now.plusSeconds(resultTtlSeconds));
+            write(job.id + JOB_SUFFIX, completed);
+            if (finish(job, ReportJobDto.Status.COMPLETED, null, now) == null) {
+                deleteFiles(job.id);
+            }
+        } catch (RuntimeException e) {
+            // Nothing to record if the job was cancelled meanwhile
+            finish(job, ReportJobDto.Status.FAILED, e.getMessage() != null ? e.getMessage() : e.toString(),
+                    LocalDateTime.now());
+            deleteFiles(job.id);
+        } finally {
+            runSlots.release();
+        }
+    }
+    
+    // Moves an active job to its final status and releases its place; the previous status, or null if the job
+    // had already finished
+    private ReportJobDto.Status finish(Job job, ReportJobDto.Status status, String error, LocalDateTime now) {
+        ReportJobDto.Status previous = job.finish(status, error, now, now.plusSeconds(resultTtlSeconds));
+        if (previous != null) {
+            activeJobs.decrementAndGet();
+            activeJobsByUser.computeIfPresent(job.requestedBy, (user, count) -> count > 1 ? count - 1 : null);
+        }
+        return previous;
+    }
+    
+    // Time to work off the given number of jobs, at the average run time so far
+    private long retryAfterSeconds(int backlog) {
+        long count = completedJobs.sum();
+        double averageRunNanos = count == 0 ? DEFAULT_RUN_NANOS : (double) runNanos.sum() / count;
+        return Math.max(1, (long) Math.ceil(backlog * averageRunNanos / threads / 1e9));
+    }
+    
+    private void write(String fileName, Object value) {
+        Path target = resultPath.resolve(fileName);
+        Path temp = resultPath.resolve(fileName + TEMP_SUFFIX);
+        try {
+            objectMapper.writeValue(temp.toFile(), value);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private void deleteFiles(String jobId) {
+        try {
+            Files.deleteIfExists(resultPath.resolve(jobId + JOB_SUFFIX));
+            Files.deleteIfExists(resultPath.resolve(jobId + RESULT_SUFFIX));
+            Files.deleteIfExists(resultPath.resolve(jobId + RESULT_SUFFIX + TEMP_SUFFIX));
+        } catch (IOException e) {
+            // Left for the next purge
+        }
+    }
+    
+    // Completed jobs whose results outlived a restart. Files that cannot be read are logged and discarded rather
+    // than failing startup.
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadStoredJobs() {
+        LocalDateTime now = LocalDateTime.now();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(resultPath, "*" + JOB_SUFFIX)) {
+            for (Path file : files) {
+                loadStoredJob(file, now);
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            log.warn("Could not list stored report jobs in {}", resultPath, e);
+        }
+    }
+    
+    private void loadStoredJob(Path file, LocalDateTime now) {
+        String fileName = file.getFileName().toString();
+        String jobId = fileName.substring(0, fileName.length() - JOB_SUFFIX.length());
+        ReportJobDto stored;
+        try {
+            stored = objectMapper.readValue(file.toFile(), ReportJobDto.class);
+        } catch (IOException e) {
+            log.warn("Discarding unreadable report job file {}", file, e);
+            deleteFiles(jobId);
+            return;
+        }
+        if (jobId.equals(stored.getJobId()) && stored.getExpiresAt() != null && stored.getExpiresAt().isAfter(now)
+                && Files.exists(resultPath.resolve(jobId + RESULT_SUFFIX))) {
+            jobs.putIfAbsent(jobId, new Job(stored));
+        } else {
+            deleteFiles(jobId);
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${reporting.jobs.cleanup-interval-ms:300000}")
+    public void purgeExpiredJobs() throws IOException {
+        LocalDateTime now = LocalDateTime.now();
+        for (Job job : jobs.values()) {
+            LocalDateTime expiresAt = job.toDto().getExpiresAt();
+            if (expiresAt != null && expiresAt.isBefore(now)) {
+                jobs.remove(job.id);
+                deleteFiles(job.id);
+            }
+        }
+        // Files of no known job, e.g. left by a crash while writing, once they are older than any result is kept
+        Instant cutoff = Instant.now().minusSeconds(resultTtlSeconds);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(resultPath)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                String jobId = fileName.contains(".") ? fileName.substring(0, fileName.indexOf('.')) : fileName;
+                if (!jobs.containsKey(jobId) && Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+    
+    private static final class Job {
+        private final String id;
+        private final String reportType;
+        private final String requestedBy;
+        private final ReportDto request;
+        private final LocalDateTime submittedAt;
+        
+        private volatile Future<?> future;
+        private volatile int progress;
+        
+        // Guarded by this
+        private ReportJobDto.Status status;
+        private LocalDateTime startedAt;
+        private LocalDateTime finishedAt;
+        private LocalDateTime expiresAt;
+        private String error;
+        
+        Job(String id, ReportDto request, String requestedBy) {
+            this.id = id;
+            this.reportType = request.getReportType();
+            this.requestedBy = requestedBy;
+            this.request = request;
+            this.submittedAt = LocalDateTime.now();
+            this.status = ReportJobDto.Status.QUEUED;
+        }
+        
+        // A completed job read back from its stored status
+        Job(ReportJobDto stored) {
+            this.id = stored.getJobId();
+            this.reportType = stored.getReportType();
+            this.requestedBy = stored.getRequestedBy();
+            this.request = null;
+            this.submittedAt = stored.getSubmittedAt();
+            this.progress = stored.getProgress();
+            this.status = stored.getStatus();
+            this.startedAt = stored.getStartedAt();
+            this.finishedAt = stored.getFinishedAt();
+            this.expiresAt = stored.getExpiresAt();
+        }
+        
+        synchronized boolean start() {
+            if (status != ReportJobDto.Status.QUEUED) {
+                return false;
+            }
+            status = ReportJobDto.Status.RUNNING;
+            startedAt = LocalDateTime.now();
+            return true;
+        }
+        
+        synchronized boolean isCancelled() {
+            return status == ReportJobDto.Status.CANCELLED;
+        }
+        
+        synchronized ReportJobDto.Status finish(ReportJobDto.Status newStatus, String newError,
+                                                LocalDateTime now, LocalDateTime newExpiresAt) {
+            ReportJobDto.Status previous = status;
+            if (previous != ReportJobDto.Status.QUEUED && previous != ReportJobDto.Status.RUNNING) {
+                return null;
+            }
+            status = newStatus;
+            error = newError;
+            finishedAt = now;
+            expiresAt = newExpiresAt;
+            if (newStatus == ReportJobDto.Status.COMPLETED) {
+                progress = 100;
+            }
+            return previous;
+        }
+        
+        synchronized ReportJobDto toDto() {
+            ReportJobDto dto = new ReportJobDto();
+            dto.setJobId(id);
+            dto.setReportType(reportType);
+            dto.setRequestedBy(requestedBy);
+            dto.setStatus(status);
+            dto.setProgress(progress);
+            dto.setSubmittedAt(submittedAt);
+            dto.setStartedAt(startedAt);
+            dto.setFinishedAt(finishedAt);
+            dto.setExpiresAt(expiresAt);
+            dto.setError(error);
+            return dto;
+        }
+    }
+}
\ No newline at end of file
@@ -1,53 +1,80 @@
 package com.ocms.reporting.service;
 
 import com.ocms.assignment.entity.Assignment;
-import com.ocms.assignment.entity.Submission;
+import com.ocms.assignment.repository.SubmissionRepository;
 import com.ocms.assignment.service.AssignmentService;
 import com.ocms.course.entity.Course;
-import com.ocms.course.entity.CourseEnrollment;
+import com.ocms.course.entity.CourseEnrollmentStats;
+import com.ocms.course.repository.CourseEnrollmentRepository;
 import com.ocms.course.service.CourseService;
 import com.ocms.reporting.dto.ReportDto;
 import com.ocms.user.entity.User;
 import com.ocms.user.service.UserService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleConsumer;
 
 @Service
 @RequiredArgsConstructor
 public class ReportingService {
     
+    private static final DoubleConsumer NO_PROGRESS = fraction -> { };
+    
     private final CourseService courseService;
     private final AssignmentService assignmentService;
     private final UserService userService;
     
-    // TreeMap for generating reports sorted by date
-    private final TreeMap<LocalDateTime, Object> activityLog = new TreeMap<>();
+    // Sorted by date for range reports; written from request and report-job threads while reports iterate it.
+    // Activities logged at the same instant share an entry, in logging order.
+    private final ConcurrentSkipListMap<LocalDateTime, List<Object>> activityLog = new ConcurrentSkipListMap<>();
+    
+    // Courses per grouped enrollment query in the instructor report
+    @Value("${reporting.instructor-report.course-chunk-size:200}")
+    private int courseChunkSize;
+    
+    @Value("${reporting.parallelism:4}")
+    private int parallelism;
+    
+    // Runs the chunks of large reports concurrently, each on its own database connection
+    private ExecutorService reportExecutor;
+    
+    @PostConstruct
+    void initReportExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        reportExecutor = Executors.newFixedThreadPool(parallelism, task -> {
+            Thread thread = new Thread(task, "report-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    void shutdownReportExecutor() {
+        reportExecutor.shutdownNow();
+    }
     
     public Map<String, Object> generateStudentPerformanceReport(Long studentId, LocalDateTime startDate, LocalDateTime endDate) {
         User student = userService.getUserById(studentId);
-        List<Submission> submissions = assignmentService.getSubmissionsByUser(studentId);
-        
-        // Filter submissions by date range
-        List<Submission> filteredSubmissions = submissions.stream()
-                .filter(s -> s.getSubmittedOn().isAfter(startDate) && s.getSubmittedOn().isBefore(endDate))
-                .collect(Collectors.toList());
         
-        // Calculate statistics
-        double averageScore = filteredSubmissions.stream()
-                .filter(Submission::isGraded)
-                .mapToDouble(Submission::getScore)
-                .average()
-                .orElse(0.0);
-        
-        long totalAssignments = filteredSubmissions.size();
-        long gradedAssignments = filteredSubmissions.stream()
-                .filter(Submission::isGraded)
-                .count();
+        // Aggregated by the database over the date range; no submission is loaded
+        SubmissionRepository.SubmissionSummary summary =
+                assignmentService.summarizeSubmissionsByUser(studentId, startDate, endDate);
+        long totalAssignments = summary.getTotal();
+        long gradedAssignments = summary.getGraded() != null ? summary.getGraded() : 0;
+        double averageScore = summary.getAverageScore() != null ? summary.getAverageScore() : 0.0;
         
         Map<String, Object> report = new HashMap<>();
         report.put("studentId", studentId);
@@ -60,24 +87,21 @@ public class ReportingService {
         report.put("endDate", endDate);
         
         // Add to activity log
-        activityLog.put(LocalDateTime.now(), "Student Performance Report Generated for " + student.getUsername());
+        logActivity("Student Performance Report Generated for " + student.getUsername());
         
         return report;
     }
     
     public Map<String, Object> generateCourseCompletionReport(Long courseId) {
         Course course = courseService.getCourseById(courseId);
-        List<CourseEnrollment> enrollments = courseService.getEnrollmentsByCourse(courseId);
-        
-        long totalEnrollments = enrollments.size();
-        long completedEnrollments = enrollments.stream()
-                .filter(e -> e.getStatus() == CourseEnrollment.EnrollmentStatus.COMPLETED)
-                .count();
+        // Read from the course's running totals rather than counted over its enrollments
+        CourseEnrollmentStats stats = courseService.getEnrollmentStats(courseId);
         
-        double averageCompletionPercentage = enrollments.stream()
-                .mapToDouble(CourseEnrollment::getCompletionPercentage)
-                .average()
-                .orElse(0.0);
+        long totalEnrollments = stats.getTotalEnrollments();
+        long completedEnrollments = stats.getCompletedEnrollments();
+        double averageCompletionPercentage = totalEnrollments > 0
+                ? stats.getCompletionPercentageSum() / totalEnrollments
+                : 0.0;
         
         Map<String, Object> report = new HashMap<>();
         report.put("courseId", courseId);
@@ -88,7 +112,7 @@ public class ReportingService {
         report.put("averageCompletionPercentage", averageCompletionPercentage);
         
         // Add to activity log
-        activityLog.put(LocalDateTime.now(), "Course Completion Report Generated for " + course.getTitle());
+        logActivity("Course Completion Report Generated for " + course.getTitle());
         
         return report;
     }
@@ -99,20 +123,23 @@ public class ReportingService {
     
     public Map<String, Object> generateSystemActivityReport(LocalDateTime startDate, LocalDateTime endDate) {
         // Get activities within date range
-        NavigableMap<LocalDateTime, Object> activitiesInRange = activityLog.subMap(startDate, true, endDate, true);
+        NavigableMap<LocalDateTime, List<Object>> activitiesInRange =
+                activityLog.subMap(startDate, true, endDate, true);
+        
+        List<Object> activities = new ArrayList<>();
+        Map<String, Long> activitiesByDate = new HashMap<>();
+        for (Map.Entry<LocalDateTime, List<Object>> entry : activitiesInRange.entrySet()) {
+            activities.addAll(entry.getValue());
+            // Group activities by date
+            activitiesByDate.merge(entry.getKey().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")),
+                    (long) entry.getValue().size(), Long::sum);
+        }
         
         Map<String, Object> report = new HashMap<>();
-        report.put("totalActivities", activitiesInRange.size());
+        report.put("totalActivities", activities.size());
         report.put("startDate", startDate);
         report.put("endDate", endDate);
-        report.put("activities", new ArrayList<>(activitiesInRange.values()));
-        
-        // Group activities by date
-        Map<String, Long> activitiesByDate = activitiesInRange.entrySet().stream()
-                .collect(Collectors.groupingBy(
-                    entry -> entry.getKey().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")),
-                    Collectors.counting()
-                ));
+        report.put("activities", activities);
         
         report.put("activitiesByDate", activitiesByDate);
         
@@ -121,24 +148,20 @@ public class ReportingService {
     
     public Map<String, Object> generateUserActivityReport(Long userId, LocalDateTime startDate, LocalDateTime endDate) {
         User user = userService.getUserById(userId);
-        List<Submission> submissions = assignmentService.getSubmissionsByUser(userId);
         
-        // Filter submissions by date range
-        List<Submission> filteredSubmissions = submissions.stream()
-                .filter(s -> s.getSubmittedOn().isAfter(startDate) && s.getSubmittedOn().isBefore(endDate))
-                .collect(Collectors.toList());
-        
-        // Group submissions by date
-        Map<String, Long> submissionsByDate = filteredSubmissions.stream()
-                .collect(Collectors.groupingBy(
-                    s -> s.getSubmittedOn().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")),
-                    Collectors.counting()
-                ));
+        // Grouped by day in the database, in date order
+        Map<String, Long> submissionsByDate = new LinkedHashMap<>();
+        long totalSubmissions = 0;
+        for (SubmissionRepository.DailySubmissions day :
+                assignmentService.countSubmissionsByUserPerDay(userId, startDate, endDate)) {
+            submissionsByDate.put(day.getDay().toString(), day.getSubmissions());
+            totalSubmissions += day.getSubmissions();
+        }
         
         Map<String, Object> report = new HashMap<>();
         report.put("userId", userId);
         report.put("userName", user.getFirstName() + " " + user.getLastName());
-        report.put("totalSubmissions", filteredSubmissions.size());
+        report.put("totalSubmissions", totalSubmissions);
         report.put("submissionsByDate", submissionsByDate);
         report.put("startDate", startDate);
         report.put("endDate", endDate);
@@ -147,6 +170,11 @@ public class ReportingService {
     }
     
     public Map<String, Object> generateInstructorPerformanceReport(Long instructorId, LocalDateTime startDate, LocalDateTime endDate) {
+        return generateInstructorPerformanceReport(instructorId, startDate, endDate, NO_PROGRESS);
+    }
+    
+    public Map<String, Object> generateInstructorPerformanceReport(Long instructorId, LocalDateTime startDate,
+                                                                   LocalDateTime endDate, DoubleConsumer progress) {
         List<Course> courses = courseService.getCoursesByInstructor(instructorId);
         
         Map<String, Object> report = new HashMap<>();
@@ -155,14 +183,14 @@ public class ReportingService {
         report.put("startDate", startDate);
         report.put("endDate", endDate);
         
-        // Calculate course statistics
+        // Calculate course statistics; enrollments are counted by the database, not loaded
+        Map<Long, CourseEnrollmentRepository.EnrollmentTotals> totals =
+                countEnrollments(instructorId, courses.stream().map(Course::getId).sorted().toList(), progress);
         List<Map<String, Object>> courseStats = new ArrayList<>();
         for (Course course : courses) {
-            List<CourseEnrollment> enrollments = courseService.getEnrollmentsByCourse(course.getId());
-            long totalEnrollments = enrollments.size();
-            long completedEnrollments = enrollments.stream()
-                    .filter(e -> e.getStatus() == CourseEnrollment.EnrollmentStatus.COMPLETED)
-                    .count();
+            CourseEnrollmentRepository.EnrollmentTotals courseTotals = totals.get(course.getId());
+            long totalEnrollments = courseTotals != null ? courseTotals.getTotalEnrollments() : 0;
+            long completedEnrollments = courseTotals != null ? courseTotals.getCompletedEnrollments() : 0;
             
             Map<String, Object> courseStat = new HashMap<>();
             courseStat.put("courseId", course.getId());
@@ -179,15 +207,69 @@ public class ReportingService {
         return report;
     }
     
+    // One grouped query for up to chunk-size courses; more courses are split into ranges of chunk-size course ids
+    // that are counted concurrently on the report pool and merged. Ranges rather than id lists keep the queries
+    // small however many courses there are.
+    // Progress is reported as each range completes.
+    private Map<Long, CourseEnrollmentRepository.EnrollmentTotals> countEnrollments(Long instructorId,
+                                                                                    List<Long> sortedCourseIds,
+                                                                                    DoubleConsumer progress) {
+        if (sortedCourseIds.isEmpty()) {
+            return Map.of();
+        }
+        if (sortedCourseIds.size() <= courseChunkSize) {
+            return courseService.countEnrollmentsByInstructor(instructorId, sortedCourseIds.get(0),
+                    sortedCourseIds.get(sortedCourseIds.size() - 1));
+        }
+        List<CompletableFuture<Map<Long, CourseEnrollmentRepository.EnrollmentTotals>>> chunks = new ArrayList<>();
+        for (int from = 0; from < sortedCourseIds.size(); from += courseChunkSize) {
+            Long firstCourseId = sortedCourseIds.get(from);
+            Long lastCourseId = sortedCourseIds.get(Math.min(from + courseChunkSize, sortedCourseIds.size()) - 1);
+            chunks.add(CompletableFuture.supplyAsync(
+                    () -> courseService.countEnrollmentsByInstructor(instructorId, firstCourseId, lastCourseId),
+                    reportExecutor));
+        }
+        Map<Long, CourseEnrollmentRepository.EnrollmentTotals> totals = new HashMap<>();
+        try {
+            for (int i = 0; i < chunks.size(); i++) {
+                totals.putAll(chunks.get(i).join());
+                progress.accept((double) (i + 1) / chunks.size());
+            }
+        } catch (RuntimeException e) {
+            // A failed chunk, or the progress callback cancelling the report
+            chunks.forEach(chunk -> chunk.cancel(false));
+            if (e instanceof CompletionException && e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return totals;
+    }
+    
+    // A single activity is returned as is; several logged at the same instant as a list
     public TreeMap<LocalDateTime, Object> getActivityLog() {
-        return new TreeMap<>(activityLog);
+        TreeMap<LocalDateTime, Object> snapshot = new TreeMap<>();
+        activityLog.forEach((time, activities) ->
+                snapshot.put(time, activities.size() == 1 ? activities.get(0) : activities));
+        return snapshot;
     }
     
     public void logActivity(String activity) {
-        activityLog.put(LocalDateTime.now(), activity);
+        // Entries are replaced rather than mutated, so readers iterating the log never see a list change
+        activityLog.merge(LocalDateTime.now(), List.of(activity), (logged, added) -> {
+            List<Object> combined = new ArrayList<>(logged);
+            combined.addAll(added);
+            return List.copyOf(combined);
+        });
     }
     
     public Map<String, Object> generateCustomReport(ReportDto reportDto) {
+        return generateCustomReport(reportDto, NO_PROGRESS);
+    }
+    
+    // Reports the completed fraction (0-1) to progress where the report can tell it; the callback may throw to
+    // abandon the report
+    public Map<String, Object> generateCustomReport(ReportDto reportDto, DoubleConsumer progress) {
         switch (reportDto.getReportType().toLowerCase()) {
             case "student_performance":
                 return generateStudentPerformanceReport(
@@ -214,7 +296,8 @@ public class ReportingService {
                 return generateInstructorPerformanceReport(
                     reportDto.getUserId(), 
                     reportDto.getStartDate(), 
-                    reportDto.getEndDate()
+                    reportDto.getEndDate(), 
+                    progress
                 );
             default:
                 throw new IllegalArgumentException("Unknown report type: " + reportDto.getReportType());
@@ -1,17 +1,21 @@
 package com.ocms.security;
 
+import com.ocms.user.entity.User;
+import com.ocms.user.service.TokenRevocationService;
+import com.ocms.user.service.TokenVersionTable;
 import com.ocms.user.service.UserService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
@@ -22,17 +26,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
     private final JwtTokenProvider tokenProvider;
     private final UserService userService;
+    private final TokenVersionTable tokenVersionTable;
+    private final TokenRevocationService tokenRevocationService;
+    
+    // Build the principal from the token claims instead of loading the user on every request
+    @Value("${jwt.stateless:true}")
+    private boolean stateless;
     
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         try {
-            String jwt = getJwtFromRequest(request);
+            String jwt = tokenProvider.resolveToken(request);
             
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                String username = tokenProvider.getUsernameFromJWT(jwt);
-                UserDetails userDetails = userService.getUserByUsername(username);
-                
+            // One verification per request: the claims come back with the signature check
+            Claims claims = tokenProvider.verify(jwt);
+            UserDetails userDetails = claims == null ? null : resolvePrincipal(claims);
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -46,11 +56,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
     
-    private String getJwtFromRequest(HttpServletRequest request) {
-        String bearerToken = request.getHeader("Authorization");
-        if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
-            return bearerToken.substring(7);
+    // Returns null for a revoked token or a disabled user
+    private UserDetails resolvePrincipal(Claims claims) {
+        if (tokenRevocationService.isRevoked(claims.getId())) {
+            return null;
+        }
+        JwtPrincipal principal = stateless && tokenVersionTable.isLoaded() ? tokenProvider.getPrincipal(claims) : null;
+        if (principal != null) {
+            return tokenVersionTable.isCurrent(principal.getId(), tokenProvider.getTokenVersion(claims)) ? principal : null;
+        }
+        // Stateful mode, tokens issued without the user claims, or the version table not loaded yet
+        User user = userService.getUserByUsername(claims.getSubject());
+        Integer tokenVersion = tokenProvider.getTokenVersion(claims);
+        if (!user.isEnabled() || (tokenVersion != null && tokenVersion != user.getTokenVersion())) {
+            return null;
         }
-        return null;
+        return user;
     }
 }
\ No newline at end of file
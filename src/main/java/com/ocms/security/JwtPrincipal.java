@@ -0,0 +1,54 @@
+package com.ocms.security;
+
+import com.ocms.user.entity.User;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+// Authenticated user rebuilt from token claims alone, without loading the user row. Exposes the same id, username
+// and authorities as User, so `authentication.principal.id` checks work in either authentication mode.
+@Getter
+@AllArgsConstructor
+public class JwtPrincipal implements UserDetails {
+    
+    private final Long id;
+    private final String username;
+    private final User.UserRole role;
+    
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+    
+    // Credentials are never part of a token
+    @Override
+    public String getPassword() {
+        return null;
+    }
+    
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+    
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+    
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+    
+    // Disabled users are rejected before a principal is built, by the token version check
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+}
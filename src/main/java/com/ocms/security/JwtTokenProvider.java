@@ -1,26 +1,72 @@
 package com.ocms.security;
 
+import com.ocms.common.datastructures.SegmentedLruCache;
+import com.ocms.user.entity.User;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.Date;
+import java.util.UUID;
 
 @Component
 public class JwtTokenProvider {
     
+    // Claims that let the authentication filter build the principal without loading the user
+    static final String USER_ID_CLAIM = "uid";
+    static final String ROLE_CLAIM = "role";
+    static final String TOKEN_VERSION_CLAIM = "ver";
+    
     @Value("${jwt.secret}")
     private String jwtSecret;
     
     @Value("${jwt.expiration}")
     private int jwtExpirationInMs;
     
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    @Value("${jwt.verified-token-cache.max-size:10000}")
+    private long verifiedTokenCacheMaxSize;
+    
+    @Value("${jwt.verified-token-cache.expire-after-write-seconds:300}")
+    private long verifiedTokenCacheExpireAfterWriteSeconds;
+    
+    // Built once; the parser is immutable and shared by all request threads
+    private Key signingKey;
+    private JwtParser parser;
+    
+    // Claims of recently verified tokens, keyed by the SHA-256 digest of the token so that the bearer
+    // credentials themselves are not kept on the heap. Entries are only trusted until the token expires.
+    private SegmentedLruCache<ByteBuffer, Claims> verifiedTokens;
+    
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+    
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        verifiedTokens = SegmentedLruCache.<ByteBuffer, Claims>builder()
+                .maximumSize(verifiedTokenCacheMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(verifiedTokenCacheExpireAfterWriteSeconds))
+                .build();
     }
     
     public String generateToken(Authentication authentication) {
@@ -29,33 +75,95 @@ public class JwtTokenProvider {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationInMs);
         
-        return Jwts.builder()
+        // The id (jti) lets a single token be revoked, e.g. on logout
+        JwtBuilder builder = Jwts.builder()
+                .setId(UUID.randomUUID().toString())
                 .setSubject(userPrincipal.getUsername())
                 .setIssuedAt(new Date())
-                .setExpiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+                .setExpiration(expiryDate);
+        if (userPrincipal instanceof User user) {
+            builder.claim(USER_ID_CLAIM, user.getId())
+                    .claim(ROLE_CLAIM, user.getRole().name())
+                    .claim(TOKEN_VERSION_CLAIM, user.getTokenVersion());
+        }
+        return builder
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
     
+    // The principal carried by the token, or null for tokens issued without the user claims
+    public JwtPrincipal getPrincipal(Claims claims) {
+        Long userId = getUserId(claims);
+        String role = claims.get(ROLE_CLAIM, String.class);
+        if (userId == null || role == null || claims.get(TOKEN_VERSION_CLAIM) == null) {
+            return null;
+        }
+        return new JwtPrincipal(userId, claims.getSubject(), User.UserRole.valueOf(role));
+    }
+    
+    public Long getUserId(Claims claims) {
+        Number userId = claims.get(USER_ID_CLAIM, Number.class);
+        return userId == null ? null : userId.longValue();
+    }
+    
+    // The user's token version when the token was issued, or null for tokens issued without it
+    public Integer getTokenVersion(Claims claims) {
+        Number version = claims.get(TOKEN_VERSION_CLAIM, Number.class);
+        return version == null ? null : version.intValue();
+    }
+    
+    // Verifies the signature and expiry and returns the claims, or null if the token is invalid.
+    // A token seen recently is answered from the cache without parsing it again.
+    public Claims verify(String token) {
+        if (!StringUtils.hasText(token)) {
+            return null;
+        }
+        ByteBuffer digest = digest(token);
+        Claims claims = verifiedTokens.get(digest, key -> parse(token));
+        if (claims == null) {
+            return null;
+        }
+        if (claims.getExpiration() != null && claims.getExpiration().getTime() <= System.currentTimeMillis()) {
+            verifiedTokens.invalidate(digest);
+            return null;
+        }
+        return claims;
+    }
+    
+    // The bearer token of the request, or null
+    public String resolveToken(HttpServletRequest request) {
+        String bearerToken = request.getHeader("Authorization");
+        if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
+            return bearerToken.substring(7);
+        }
+        return null;
+    }
+    
     public String getUsernameFromJWT(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        
+        Claims claims = verify(token);
+        if (claims == null) {
+            throw new JwtException("Invalid JWT token");
+        }
         return claims.getSubject();
     }
     
     public boolean validateToken(String authToken) {
+        return verify(authToken) != null;
+    }
+    
+    public SegmentedLruCache.Stats getVerifiedTokenCacheStats() {
+        return verifiedTokens.stats();
+    }
+    
+    private Claims parse(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(authToken);
-            return true;
+            return parser.parseClaimsJws(token).getBody();
         } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            return null;
         }
     }
-}
\ No newline at end of file
+    
+    private static ByteBuffer digest(String token) {
+        return ByteBuffer.wrap(SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII)));
+    }
+}
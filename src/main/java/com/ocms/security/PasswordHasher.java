@@ -0,0 +1,218 @@
+package com.ocms.security;
+
+import com.ocms.common.exception.ServiceUnavailableException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Runs BCrypt on a dedicated, bounded pool instead of the request threads. A login storm then occupies at most
+// threads + queue-capacity request threads, parked rather than hashing; everything beyond that, and every request
+// that waited longer than max-wait-ms, fails fast with 503 and a Retry-After estimated from the backlog.
+@Component
+@RequiredArgsConstructor
+public class PasswordHasher {
+    
+    public record Stats(int threads, int queueCapacity, int queued, int active, long completed, long rejected,
+                        long timedOut, double averageQueueWaitMillis, double maxQueueWaitMillis,
+                        double averageHashMillis, double maxHashMillis) {
+    }
+    
+    private static final long RETRY_BACKOFF_MILLIS = 20;
+    
+    private final PasswordEncoder passwordEncoder;
+    
+    // 0 uses one thread per available processor
+    @Value("${password-hashing.threads:0}")
+    private int threads;
+    
+    @Value("${password-hashing.queue-capacity:100}")
+    private int queueCapacity;
+    
+    @Value("${password-hashing.max-wait-ms:5000}")
+    private long maxWaitMillis;
+    
+    private ThreadPoolExecutor executor;
+    
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAccumulator maxQueueWaitNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder hashNanos = new LongAdder();
+    private final LongAccumulator maxHashNanos = new LongAccumulator(Math::max, 0);
+    
+    @PostConstruct
+    void init() {
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                task -> {
+                    Thread thread = new Thread(task, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    public String encode(CharSequence rawPassword) {
+        return await(() -> passwordEncoder.encode(rawPassword));
+    }
+    
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return await(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+    
+    // True if the hash was made with a lower cost factor than the configured one
+    public boolean upgradeEncoding(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+    
+    // Hashes in the background; when the pool is saturated the returned future fails instead of queueing
+    public CompletableFuture<String> encodeAsync(CharSequence rawPassword) {
+        try {
+            return submit(() -> passwordEncoder.encode(rawPassword));
+        } catch (ServiceUnavailableException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    // Hashes a batch on the pool, in parallel across its threads. At most one hash per thread is queued at a time,
+    // so interactive logins wait behind no more than one batch hash; a full queue is waited out rather than failed.
+    public List<String> encodeAll(List<? extends CharSequence> rawPasswords) {
+        Semaphore inFlight = new Semaphore(threads);
+        List<CompletableFuture<String>> futures = new ArrayList<>(rawPasswords.size());
+        try {
+            for (CharSequence rawPassword : rawPasswords) {
+                inFlight.acquire();
+                CompletableFuture<String> future = submitWhenAccepted(() -> passwordEncoder.encode(rawPassword));
+                future.whenComplete((encoded, e) -> inFlight.release());
+                futures.add(future);
+            }
+            List<String> encoded = new ArrayList<>(futures.size());
+            for (CompletableFuture<String> future : futures) {
+                encoded.add(future.get());
+            }
+            return encoded;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(false));
+            throw new IllegalStateException("Interrupted while hashing passwords", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+    
+    public Stats getStats() {
+        long count = completed.sum();
+        return new Stats(threads, queueCapacity, executor.getQueue().size(), executor.getActiveCount(), count,
+                rejected.sum(), timedOut.sum(),
+                averageMillis(queueWaitNanos.sum(), count), maxQueueWaitNanos.get() / 1e6,
+                averageMillis(hashNanos.sum(), count), maxHashNanos.get() / 1e6);
+    }
+    
+    private <T> T await(Supplier<T> hash) {
+        CompletableFuture<T> future = submit(hash);
+        try {
+            return future.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // The task is skipped if it has not started yet; see submit
+            timedOut.increment();
+            future.cancel(false);
+            throw unavailable();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw unavailable();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+    
+    private <T> CompletableFuture<T> submit(Supplier<T> hash) {
+        try {
+            return submit(hash, TimeUnit.MILLISECONDS.toNanos(maxWaitMillis));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw unavailable();
+        }
+    }
+    
+    private <T> CompletableFuture<T> submitWhenAccepted(Supplier<T> hash) throws InterruptedException {
+        while (true) {
+            try {
+                return submit(hash, Long.MAX_VALUE);
+            } catch (RejectedExecutionException e) {
+                Thread.sleep(RETRY_BACKOFF_MILLIS);
+            }
+        }
+    }
+    
+    private <T> CompletableFuture<T> submit(Supplier<T> hash, long maxWaitNanos) {
+        long enqueuedAt = System.nanoTime();
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            long startedAt = System.nanoTime();
+            // Nobody is waiting for the result any more; don't spend a hash on it
+            if (future.isDone() || startedAt - enqueuedAt > maxWaitNanos) {
+                future.cancel(false);
+                return;
+            }
+            T result;
+            try {
+                result = hash.get();
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+                return;
+            }
+            // Recorded before completing, so a caller that got its result also sees it counted
+            record(startedAt - enqueuedAt, System.nanoTime() - startedAt);
+            future.complete(result);
+        });
+        return future;
+    }
+    
+    private void record(long queueWait, long hashTime) {
+        completed.increment();
+        queueWaitNanos.add(queueWait);
+        maxQueueWaitNanos.accumulate(queueWait);
+        hashNanos.add(hashTime);
+        maxHashNanos.accumulate(hashTime);
+    }
+    
+    // Time for the pool to work off its current backlog, at the average hash time so far
+    private ServiceUnavailableException unavailable() {
+        long count = completed.sum();
+        double averageHashNanos = count == 0 ? 100_000_000 : (double) hashNanos.sum() / count;
+        int backlog = executor.getQueue().size() + executor.getActiveCount();
+        long retryAfter = Math.max(1, (long) Math.ceil(backlog * averageHashNanos / threads / 1e9));
+        return new ServiceUnavailableException("Too many password checks in progress, please retry", retryAfter);
+    }
+    
+    private static double averageMillis(long totalNanos, long count) {
+        return count == 0 ? 0 : totalNanos / 1e6 / count;
+    }
+}
\ No newline at end of file
@@ -1,20 +1,26 @@
 package com.ocms.user.controller;
 
+import com.ocms.common.datastructures.SegmentedLruCache;
 import com.ocms.common.dto.ApiResponse;
 import com.ocms.security.JwtTokenProvider;
+import com.ocms.security.PasswordHasher;
 import com.ocms.user.dto.LoginDto;
+import com.ocms.user.dto.UserImportResultDto;
 import com.ocms.user.dto.UserRegistrationDto;
 import com.ocms.user.entity.User;
+import com.ocms.user.service.UserImportService;
 import com.ocms.user.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,7 +31,7 @@ import java.util.Map;
 public class UserController {
     
     private final UserService userService;
-    private final AuthenticationManager authenticationManager;
+    private final UserImportService userImportService;
     private final JwtTokenProvider tokenProvider;
     
     @PostMapping("/register")
@@ -36,11 +42,11 @@ public class UserController {
     
     @PostMapping("/login")
     public ResponseEntity<ApiResponse<Map<String, Object>>> loginUser(@Valid @RequestBody LoginDto loginDto) {
-        Authentication authentication = authenticationManager.authenticate(
-            new UsernamePasswordAuthenticationToken(loginDto.getUsername(), loginDto.getPassword())
-        );
+        User user = userService.loginUser(loginDto);
         
-        String jwt = tokenProvider.generateToken(authentication);
+        String jwt = tokenProvider.generateToken(
+            new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities())
+        );
         
         Map<String, Object> response = new HashMap<>();
         response.put("token", jwt);
@@ -49,6 +55,32 @@ public class UserController {
         return ResponseEntity.ok(ApiResponse.success("Login successful", response));
     }
     
+    // The body is read as a stream, so files of any size are imported without being buffered in memory
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<UserImportResultDto>> importUsers(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            HttpServletRequest request) throws IOException {
+        UserImportService.Format format = contentType.isCompatibleWith(MediaType.APPLICATION_NDJSON)
+                ? UserImportService.Format.NDJSON
+                : UserImportService.Format.CSV;
+        UserImportResultDto result = userImportService.importUsers(request.getInputStream(), format);
+        return ResponseEntity.ok(ApiResponse.success("Users imported", result));
+    }
+    
+    @PostMapping("/logout")
+    public ResponseEntity<ApiResponse<String>> logoutUser(HttpServletRequest request) {
+        userService.logoutUser(tokenProvider.resolveToken(request));
+        return ResponseEntity.ok(ApiResponse.success("Logout successful", null));
+    }
+    
+    @PostMapping("/{id}/revoke-tokens")
+    @PreAuthorize("hasRole('ADMIN') or #id == authentication.principal.id")
+    public ResponseEntity<ApiResponse<String>> revokeAllTokens(@PathVariable Long id) {
+        userService.revokeAllTokens(id);
+        return ResponseEntity.ok(ApiResponse.success("All tokens revoked successfully", null));
+    }
+    
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN') or #id == authentication.principal.id")
     public ResponseEntity<ApiResponse<User>> getUserById(@PathVariable Long id) {
@@ -99,6 +131,27 @@ public class UserController {
         return ResponseEntity.ok(ApiResponse.success(cache));
     }
     
+    @GetMapping("/cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Map<String, SegmentedLruCache.Stats>>> getUserCacheStats() {
+        Map<String, SegmentedLruCache.Stats> stats = userService.getUserCacheStats();
+        return ResponseEntity.ok(ApiResponse.success(stats));
+    }
+    
+    @GetMapping("/token-cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<SegmentedLruCache.Stats>> getVerifiedTokenCacheStats() {
+        SegmentedLruCache.Stats stats = tokenProvider.getVerifiedTokenCacheStats();
+        return ResponseEntity.ok(ApiResponse.success(stats));
+    }
+    
+    @GetMapping("/password-hashing/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<PasswordHasher.Stats>> getPasswordHashingStats() {
+        PasswordHasher.Stats stats = userService.getPasswordHashingStats();
+        return ResponseEntity.ok(ApiResponse.success(stats));
+    }
+    
     @DeleteMapping("/cache")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<String>> clearUserCache() {
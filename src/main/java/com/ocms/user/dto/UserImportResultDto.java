@@ -0,0 +1,32 @@
+package com.ocms.user.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class UserImportResultDto {
+    
+    private int totalRows;
+    
+    private int imported;
+    
+    private int failed;
+    
+    private List<RowError> errors = new ArrayList<>();
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        // 1-based line in the uploaded file
+        private long line;
+        
+        private String username;
+        
+        private String message;
+    }
+}
\ No newline at end of file
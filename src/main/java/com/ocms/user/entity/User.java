@@ -4,6 +4,8 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -14,6 +16,8 @@ import java.util.List;
 
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -51,6 +55,10 @@ public class User implements UserDetails {
     @Column(name = "is_active")
     private boolean isActive = true;
     
+    // Embedded in issued tokens; bumping it revokes every token issued before (see TokenVersionTable)
+    @Column(name = "token_version", nullable = false)
+    private int tokenVersion;
+    
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -1,11 +1,16 @@
 package com.ocms.user.repository;
 
 import com.ocms.user.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,6 +27,13 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     List<User> findByRole(User.UserRole role);
     
+    // Set-based uniqueness checks for bulk import: which of the given identifiers are already taken
+    @Query("SELECT u.username FROM User u WHERE u.username IN :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+    
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+    
     @Query("SELECT u FROM User u WHERE u.isActive = true")
     List<User> findAllActiveUsers();
     
@@ -30,4 +42,40 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     @Query("SELECT COUNT(u) FROM User u WHERE u.role = :role")
     long countByRole(@Param("role") User.UserRole role);
+    
+    // Users whose tokens have been revoked at least once; every other user is implicitly at version 0
+    @Query("SELECT u.id AS id, u.tokenVersion AS tokenVersion FROM User u WHERE u.tokenVersion <> 0")
+    List<TokenVersion> findRevokedTokenVersions();
+    
+    @Query("SELECT u.id AS id, u.tokenVersion AS tokenVersion FROM User u WHERE u.tokenVersion <> 0 AND u.updatedAt >= :since")
+    List<TokenVersion> findRevokedTokenVersionsUpdatedSince(@Param("since") LocalDateTime since);
+    
+    @Query("SELECT u.id AS id, u.username AS username, u.email AS email FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<UserIdentifiers> findIdentifiersAfter(@Param("afterId") long afterId, Pageable pageable);
+    
+    @Query("SELECT u.id AS id, u.username AS username, u.email AS email FROM User u WHERE u.updatedAt >= :since")
+    List<UserIdentifiers> findIdentifiersUpdatedSince(@Param("since") LocalDateTime since);
+    
+    // Replaces the hash only if the password has not been changed since it was read. Bulk updates skip @PreUpdate,
+    // so updatedAt is set here for the refreshes that read changed rows by it.
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.password = :newPassword, u.updatedAt = CURRENT_TIMESTAMP "
+            + "WHERE u.id = :id AND u.password = :oldPassword")
+    int updatePasswordIfUnchanged(@Param("id") Long id, @Param("oldPassword") String oldPassword,
+                                  @Param("newPassword") String newPassword);
+    
+    interface TokenVersion {
+        Long getId();
+        
+        Integer getTokenVersion();
+    }
+    
+    interface UserIdentifiers {
+        Long getId();
+        
+        String getUsername();
+        
+        String getEmail();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+package com.ocms.user.service;
+
+import com.ocms.common.datastructures.Long2IntMap;
+import org.springframework.stereotype.Component;
+
+// In-memory copy of each user's token version, so that stateless authentication can reject revoked tokens
+// (disabled users, changed passwords) without reading the user row. Only users whose version was ever bumped
+// are stored; everyone else is at version 0. The database stays the source of truth: the table is loaded from
+// it at startup, updated on local writes and refreshed periodically with the rows changed since the last refresh.
+@Component
+public class TokenVersionTable {
+
+    private final Long2IntMap versions = new Long2IntMap();
+    private volatile boolean loaded;
+
+    // False until the first rebuild completes; until then callers must ask the database
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int getVersion(long userId) {
+        return versions.getOrDefault(userId, 0);
+    }
+
+    public boolean isCurrent(long userId, int tokenVersion) {
+        return getVersion(userId) == tokenVersion;
+    }
+
+    // Versions only move forward, so a refresh that read a row before a local bump cannot roll it back
+    public synchronized void advance(long userId, int tokenVersion) {
+        if (tokenVersion > versions.getOrDefault(userId, 0)) {
+            versions.put(userId, tokenVersion);
+        }
+    }
+
+    // Merges (userId, version) pairs read from the database and marks the table as usable
+    public synchronized void load(Iterable<long[]> userVersions) {
+        for (long[] userVersion : userVersions) {
+            advance(userVersion[0], (int) userVersion[1]);
+        }
+        loaded = true;
+    }
+
+    public int size() {
+        return versions.size();
+    }
+}
@@ -0,0 +1,132 @@
+package com.ocms.user.service;
+
+import com.ocms.common.datastructures.BloomFilter;
+import com.ocms.user.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+// Usernames and emails in use, as bloom filters, so that registration can skip the uniqueness queries for the common
+// "definitely not taken" case. A hit only means "maybe taken" and is confirmed with the query; the unique constraints
+// remain the source of truth for registrations this instance has not seen yet.
+// Filled from the user table at startup, on every local write, and with rows changed on other instances every 30s.
+// Identifiers are lower-cased, matching the case-insensitive collation the unique constraints compare with.
+@Service
+@RequiredArgsConstructor
+public class UserIdentifierFilter {
+    
+    private final UserRepository userRepository;
+    
+    @Value("${user.identifier-filter.expected-users:1000000}")
+    private long expectedUsers;
+    
+    @Value("${user.identifier-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+    
+    @Value("${user.identifier-filter.load-batch-size:10000}")
+    private int loadBatchSize;
+    
+    // Rows are re-read with this much overlap, covering clock skew between instances and slow commits
+    @Value("${user.identifier-filter.refresh-overlap-seconds:60}")
+    private long refreshOverlapSeconds;
+    
+    private record Filters(BloomFilter usernames, BloomFilter emails, long capacity) {
+    }
+    
+    // Replaced as a whole when the users outgrow it; until the first load completes every identifier is "maybe taken"
+    private volatile Filters filters;
+    private volatile boolean loaded;
+    private volatile LocalDateTime refreshedAt;
+    
+    @PostConstruct
+    void initFilters() {
+        filters = newFilters(expectedUsers);
+    }
+    
+    public boolean mightContainUsername(String username) {
+        return !loaded || filters.usernames().mightContain(normalize(username));
+    }
+    
+    public boolean mightContainEmail(String email) {
+        return !loaded || filters.emails().mightContain(normalize(email));
+    }
+    
+    public void add(String username, String email) {
+        Filters current = filters;
+        current.usernames().put(normalize(username));
+        current.emails().put(normalize(email));
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIdentifiers() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long users = userRepository.count();
+        Filters current = filters;
+        if (users > current.capacity()) {
+            current = newFilters(2 * users);
+        }
+        // Written into the live filters, so that users registered while loading are not lost
+        filters = current;
+        addAll(current);
+        refreshedAt = startedAt;
+        loaded = true;
+    }
+    
+    // Picks up users registered or changed on other instances; local writes are added as they happen
+    @Scheduled(fixedDelayString = "${user.identifier-filter.refresh-interval-ms:30000}")
+    public void refreshIdentifiers() {
+        LocalDateTime since = refreshedAt;
+        if (since == null) {
+            return;
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+        // Rebuilt twice as large once more users than it was sized for have been added, so that the
+        // false-positive rate stays near the configured one
+        long users = userRepository.count();
+        if (users > filters.capacity()) {
+            Filters rebuilt = newFilters(2 * users);
+            addAll(rebuilt);
+            filters = rebuilt;
+            // Users added to the old filters during the rebuild are picked up by the next refresh
+            refreshedAt = startedAt;
+            return;
+        }
+        for (UserRepository.UserIdentifiers user : userRepository.findIdentifiersUpdatedSince(
+                since.minusSeconds(refreshOverlapSeconds))) {
+            add(user.getUsername(), user.getEmail());
+        }
+        refreshedAt = startedAt;
+    }
+    
+    // Reads the table in id order, a batch at a time, rather than holding every user in memory at once
+    private void addAll(Filters target) {
+        long afterId = 0;
+        List<UserRepository.UserIdentifiers> batch;
+        do {
+            batch = userRepository.findIdentifiersAfter(afterId, PageRequest.ofSize(loadBatchSize));
+            for (UserRepository.UserIdentifiers user : batch) {
+                target.usernames().put(normalize(user.getUsername()));
+                target.emails().put(normalize(user.getEmail()));
+                afterId = user.getId();
+            }
+        } while (batch.size() == loadBatchSize);
+    }
+    
+    private Filters newFilters(long capacity) {
+        return new Filters(new BloomFilter(capacity, falsePositiveRate), new BloomFilter(capacity, falsePositiveRate),
+                capacity);
+    }
+    
+    private static String normalize(String identifier) {
+        return identifier.toLowerCase(Locale.ROOT);
+    }
+}
\ No newline at end of file
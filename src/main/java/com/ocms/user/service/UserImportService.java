@@ -0,0 +1,305 @@
+package com.ocms.user.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ocms.security.PasswordHasher;
+import com.ocms.user.dto.UserImportResultDto;
+import com.ocms.user.dto.UserRegistrationDto;
+import com.ocms.user.entity.User;
+import com.ocms.user.repository.UserRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+// Bulk registration from a CSV (with a header row) or NDJSON upload, read as a stream and imported a chunk at a time:
+// rows are parsed and validated, checked for uniqueness with one query per chunk for the identifiers the
+// UserIdentifierFilter has seen, hashed in parallel on the password-hashing pool, and inserted as one JDBC batch.
+// Users are inserted with plain JDBC because IDENTITY ids make Hibernate insert them one statement at a time.
+// Rows that fail are reported by line and skipped; the rest of the file is still imported.
+@Service
+@RequiredArgsConstructor
+public class UserImportService {
+    
+    public enum Format {
+        CSV, NDJSON
+    }
+    
+    private static final String INSERT_USER = "INSERT INTO users (username, email, password, role, first_name, " +
+            "last_name, created_at, updated_at, is_active, token_version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private static final List<String> REQUIRED_COLUMNS = List.of("username", "email", "password", "firstName",
+            "lastName");
+    
+    private final UserRepository userRepository;
+    private final UserIdentifierFilter userIdentifierFilter;
+    private final PasswordHasher passwordHasher;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    
+    @Value("${user.import.chunk-size:1000}")
+    private int chunkSize;
+    
+    private record Row(long line, UserRegistrationDto user) {
+    }
+    
+    // State of one import: the result so far, and the identifiers of earlier rows, to reject duplicates in the file
+    private static class ImportJob {
+        final UserImportResultDto result = new UserImportResultDto();
+        final Set<String> usernames = new HashSet<>();
+        final Set<String> emails = new HashSet<>();
+        
+        void fail(long line, String username, String message) {
+            result.getErrors().add(new UserImportResultDto.RowError(line, username, message));
+        }
+    }
+    
+    public UserImportResultDto importUsers(InputStream input, Format format) throws IOException {
+        ImportJob job = new ImportJob();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            long lineNumber = 0;
+            Map<String, Integer> columns = null;
+            if (format == Format.CSV) {
+                columns = readHeader(reader.readLine());
+                lineNumber++;
+            }
+            
+            List<Row> chunk = new ArrayList<>(chunkSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                job.result.setTotalRows(job.result.getTotalRows() + 1);
+                Row row = format == Format.CSV
+                        ? parseCsv(lineNumber, line, columns, job)
+                        : parseJson(lineNumber, line, job);
+                if (row != null) {
+                    chunk.add(row);
+                }
+                if (chunk.size() == chunkSize) {
+                    importChunk(chunk, job);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(chunk, job);
+            }
+        }
+        // Rows are checked in stages, so errors were found out of order
+        job.result.getErrors().sort(Comparator.comparingLong(UserImportResultDto.RowError::getLine));
+        job.result.setFailed(job.result.getErrors().size());
+        return job.result;
+    }
+    
+    private void importChunk(List<Row> chunk, ImportJob job) {
+        List<Row> unique = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            String username = normalize(row.user().getUsername());
+            String email = normalize(row.user().getEmail());
+            if (job.usernames.contains(username)) {
+                job.fail(row.line(), row.user().getUsername(), "Duplicate username in import");
+            } else if (job.emails.contains(email)) {
+                job.fail(row.line(), row.user().getUsername(), "Duplicate email in import");
+            } else {
+                job.usernames.add(username);
+                job.emails.add(email);
+                unique.add(row);
+            }
+        }
+        
+        // Only identifiers the filter has seen can be taken; the rest need no query at all
+        Set<String> takenUsernames = normalizeAll(findExisting(unique, UserRegistrationDto::getUsername,
+                userIdentifierFilter::mightContainUsername, userRepository::findExistingUsernames));
+        Set<String> takenEmails = normalizeAll(findExisting(unique, UserRegistrationDto::getEmail,
+                userIdentifierFilter::mightContainEmail, userRepository::findExistingEmails));
+        List<Row> accepted = new ArrayList<>(unique.size());
+        for (Row row : unique) {
+            if (takenUsernames.contains(normalize(row.user().getUsername()))) {
+                job.fail(row.line(), row.user().getUsername(), "Username already exists");
+            } else if (takenEmails.contains(normalize(row.user().getEmail()))) {
+                job.fail(row.line(), row.user().getUsername(), "Email already exists");
+            } else {
+                accepted.add(row);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+        
+        List<String> passwords = passwordHasher.encodeAll(accepted.stream()
+                .map(row -> row.user().getPassword())
+                .toList());
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> parameters = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            UserRegistrationDto user = accepted.get(i).user();
+            parameters.add(new Object[]{user.getUsername(), user.getEmail(), passwords.get(i), user.getRole().name(),
+                    user.getFirstName(), user.getLastName(), now, now, true, 0});
+        }
+        insert(accepted, parameters, job);
+    }
+    
+    private void insert(List<Row> rows, List<Object[]> parameters, ImportJob job) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_USER, parameters));
+            rows.forEach(row -> imported(row, job));
+        } catch (DataIntegrityViolationException e) {
+            // Taken by a registration since the check; the batch was rolled back, so retry its rows one at a time
+            for (int i = 0; i < rows.size(); i++) {
+                Row row = rows.get(i);
+                try {
+                    jdbcTemplate.update(INSERT_USER, parameters.get(i));
+                    imported(row, job);
+                } catch (DataIntegrityViolationException rowException) {
+                    job.fail(row.line(), row.user().getUsername(),
+                            userRepository.existsByUsername(row.user().getUsername())
+                                    ? "Username already exists"
+                                    : "Email already exists");
+                }
+            }
+        }
+    }
+    
+    private void imported(Row row, ImportJob job) {
+        userIdentifierFilter.add(row.user().getUsername(), row.user().getEmail());
+        job.result.setImported(job.result.getImported() + 1);
+    }
+    
+    private static Collection<String> findExisting(List<Row> rows, Function<UserRegistrationDto, String> identifier,
+                                                   Predicate<String> mightBeTaken,
+                                                   Function<Collection<String>, List<String>> query) {
+        List<String> candidates = rows.stream()
+                .map(row -> identifier.apply(row.user()))
+                .filter(mightBeTaken)
+                .toList();
+        return candidates.isEmpty() ? List.of() : query.apply(candidates);
+    }
+    
+    private Map<String, Integer> readHeader(String header) {
+        if (header == null) {
+            throw new IllegalArgumentException("Import file is empty");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = splitCsvLine(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim(), i);
+        }
+        for (String column : REQUIRED_COLUMNS) {
+            if (!columns.containsKey(column)) {
+                throw new IllegalArgumentException("CSV header is missing column: " + column);
+            }
+        }
+        return columns;
+    }
+    
+    private Row parseCsv(long line, String text, Map<String, Integer> columns, ImportJob job) {
+        List<String> fields = splitCsvLine(text);
+        UserRegistrationDto user = new UserRegistrationDto();
+        user.setUsername(field(fields, columns, "username"));
+        user.setEmail(field(fields, columns, "email"));
+        user.setPassword(field(fields, columns, "password"));
+        user.setFirstName(field(fields, columns, "firstName"));
+        user.setLastName(field(fields, columns, "lastName"));
+        String role = field(fields, columns, "role");
+        if (role != null && !role.isBlank()) {
+            try {
+                user.setRole(User.UserRole.valueOf(role.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                job.fail(line, user.getUsername(), "Invalid role: " + role);
+                return null;
+            }
+        }
+        return validate(line, user, job);
+    }
+    
+    private Row parseJson(long line, String text, ImportJob job) {
+        UserRegistrationDto user;
+        try {
+            user = objectMapper.readValue(text, UserRegistrationDto.class);
+        } catch (JsonProcessingException e) {
+            job.fail(line, null, "Invalid JSON: " + e.getOriginalMessage());
+            return null;
+        }
+        return validate(line, user, job);
+    }
+    
+    // The same constraints as POST /api/users/register
+    private Row validate(long line, UserRegistrationDto user, ImportJob job) {
+        Set<ConstraintViolation<UserRegistrationDto>> violations = validator.validate(user);
+        if (!violations.isEmpty()) {
+            String message = violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+            job.fail(line, user.getUsername(), message);
+            return null;
+        }
+        if (user.getRole() == null) {
+            job.fail(line, user.getUsername(), "role: Role is required");
+            return null;
+        }
+        return new Row(line, user);
+    }
+    
+    private static String field(List<String> fields, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        return index == null || index >= fields.size() ? null : fields.get(index);
+    }
+    
+    // RFC 4180 fields on one line: comma separated, optionally double-quoted with "" for a quote
+    private static List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+    
+    private static Set<String> normalizeAll(Collection<String> identifiers) {
+        return identifiers.stream().map(UserImportService::normalize).collect(Collectors.toSet());
+    }
+    
+    // Lower-cased, matching the case-insensitive collation the unique constraints compare with
+    private static String normalize(String identifier) {
+        return identifier.toLowerCase(Locale.ROOT);
+    }
+}
\ No newline at end of file
@@ -1,100 +1,227 @@
 package com.ocms.user.service;
 
+import com.ocms.common.datastructures.SegmentedLruCache;
 import com.ocms.common.exception.ResourceNotFoundException;
 import com.ocms.common.exception.UnauthorizedException;
+import com.ocms.security.JwtTokenProvider;
+import com.ocms.security.PasswordHasher;
 import com.ocms.user.dto.LoginDto;
 import com.ocms.user.dto.UserRegistrationDto;
 import com.ocms.user.entity.User;
 import com.ocms.user.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
     
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
-    private final AuthenticationManager authenticationManager;
+    private final PasswordHasher passwordHasher;
+    private final TokenVersionTable tokenVersionTable;
+    private final TokenRevocationService tokenRevocationService;
+    private final UserIdentifierFilter userIdentifierFilter;
+    private final JwtTokenProvider tokenProvider;
     
-    // HashMap for storing user data in memory for quick access
-    private final Map<String, User> userCache = new HashMap<>();
+    @Value("${user.cache.max-size:10000}")
+    private long cacheMaxSize;
+    
+    @Value("${user.cache.expire-after-write-seconds:600}")
+    private long cacheExpireAfterWriteSeconds;
+    
+    @Value("${user.cache.refresh-after-write-seconds:300}")
+    private long cacheRefreshAfterWriteSeconds;
+    
+    @Value("${user.cache.refresh-threads:2}")
+    private int cacheRefreshThreads;
+    
+    @Value("${user.cache.refresh-queue-capacity:1000}")
+    private int cacheRefreshQueueCapacity;
+    
+    // Rows are re-read with this much overlap, covering clock skew between instances and slow commits
+    @Value("${jwt.token-versions.refresh-overlap-seconds:60}")
+    private long tokenVersionRefreshOverlapSeconds;
+    
+    private volatile LocalDateTime tokenVersionsRefreshedAt;
+    
+    // Checked against when the username is unknown, so that response times don't reveal which usernames exist
+    private String dummyPassword;
+    
+    // Bounded, thread-safe user cache keyed by username; read on every authenticated request
+    private SegmentedLruCache<String, User> userCache;
+    
+    // Same users keyed by id, for the create/enroll/submit/report paths. Writes go to both caches through
+    // cacheUser and evictUser so that neither serves a version the other has already replaced.
+    private SegmentedLruCache<Long, User> userByIdCache;
+    
+    // Background reloads of ageing users block on the database, so they get their own small pool instead of the
+    // common ForkJoinPool; when it is saturated a refresh is skipped and the user is reloaded on a later read
+    private ThreadPoolExecutor cacheRefreshExecutor;
+    
+    @PostConstruct
+    void initUserCache() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        cacheRefreshExecutor = new ThreadPoolExecutor(cacheRefreshThreads, cacheRefreshThreads,
+                0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(cacheRefreshQueueCapacity),
+                task -> {
+                    Thread thread = new Thread(task, "user-cache-refresh-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        userCache = newUserCache();
+        userByIdCache = newUserCache();
+    }
+    
+    @PreDestroy
+    void shutdownCacheRefreshExecutor() {
+        cacheRefreshExecutor.shutdownNow();
+    }
+    
+    @PostConstruct
+    void initDummyPassword() {
+        dummyPassword = passwordHasher.encode("dummy-password");
+    }
+    
+    private <K> SegmentedLruCache<K, User> newUserCache() {
+        return SegmentedLruCache.<K, User>builder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(cacheExpireAfterWriteSeconds))
+                .refreshAfterWrite(Duration.ofSeconds(cacheRefreshAfterWriteSeconds))
+                .refreshExecutor(cacheRefreshExecutor)
+                .build();
+    }
     
     public User registerUser(UserRegistrationDto registrationDto) {
-        if (userRepository.existsByUsername(registrationDto.getUsername())) {
+        // The queries only run when the filter has seen the identifier (or a colliding one)
+        if (userIdentifierFilter.mightContainUsername(registrationDto.getUsername())
+                && userRepository.existsByUsername(registrationDto.getUsername())) {
             throw new IllegalArgumentException("Username already exists");
         }
         
-        if (userRepository.existsByEmail(registrationDto.getEmail())) {
+        if (userIdentifierFilter.mightContainEmail(registrationDto.getEmail())
+                && userRepository.existsByEmail(registrationDto.getEmail())) {
             throw new IllegalArgumentException("Email already exists");
         }
         
         User user = new User();
         user.setUsername(registrationDto.getUsername());
         user.setEmail(registrationDto.getEmail());
-        user.setPassword(passwordEncoder.encode(registrationDto.getPassword()));
+        user.setPassword(passwordHasher.encode(registrationDto.getPassword()));
         user.setFirstName(registrationDto.getFirstName());
         user.setLastName(registrationDto.getLastName());
         user.setRole(registrationDto.getRole());
         
-        User savedUser = userRepository.save(user);
+        User savedUser;
+        try {
+            savedUser = userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            // Taken concurrently, or on another instance since the filter was last refreshed
+            if (userRepository.existsByUsername(user.getUsername())) {
+                throw new IllegalArgumentException("Username already exists");
+            }
+            if (userRepository.existsByEmail(user.getEmail())) {
+                throw new IllegalArgumentException("Email already exists");
+            }
+            throw e;
+        }
+        userIdentifierFilter.add(savedUser.getUsername(), savedUser.getEmail());
         
         // Add to cache
-        userCache.put(savedUser.getUsername(), savedUser);
+        cacheUser(savedUser);
         
         return savedUser;
     }
     
-    public String loginUser(LoginDto loginDto) {
-        try {
-            Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(loginDto.getUsername(), loginDto.getPassword())
-            );
-            
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-            
-            // Update cache
-            Optional<User> userOpt = userRepository.findByUsername(loginDto.getUsername());
-            if (userOpt.isPresent()) {
-                userCache.put(loginDto.getUsername(), userOpt.get());
-            }
-            
-            return "Login successful";
-        } catch (Exception e) {
+    // The password is checked on the password-hashing pool (see PasswordHasher). Hashes made with a lower cost
+    // factor than configured are replaced in the background; if that fails it is retried at the next login.
+    public User loginUser(LoginDto loginDto) {
+        Optional<User> userOpt = userRepository.findByUsername(loginDto.getUsername());
+        String encodedPassword = userOpt.map(User::getPassword).orElse(dummyPassword);
+        boolean matches = passwordHasher.matches(loginDto.getPassword(), encodedPassword);
+        if (userOpt.isEmpty() || !matches || !userOpt.get().isEnabled()) {
             throw new UnauthorizedException("Invalid credentials");
         }
+        
+        User user = userOpt.get();
+        if (passwordHasher.upgradeEncoding(user.getPassword())) {
+            passwordHasher.encodeAsync(loginDto.getPassword())
+                    .thenAccept(rehashed -> upgradePassword(user, rehashed));
+        }
+        
+        // Update cache
+        cacheUser(user);
+        
+        return user;
+    }
+    
+    private void upgradePassword(User user, String rehashed) {
+        if (userRepository.updatePasswordIfUnchanged(user.getId(), user.getPassword(), rehashed) > 0) {
+            evictUser(user);
+        }
+    }
+    
+    public PasswordHasher.Stats getPasswordHashingStats() {
+        return passwordHasher.getStats();
+    }
+    
+    // Revokes the given token only; the user's other sessions stay signed in
+    public void logoutUser(String token) {
+        Claims claims = tokenProvider.verify(token);
+        if (claims == null) {
+            throw new UnauthorizedException("Invalid or expired token");
+        }
+        LocalDateTime expiresAt = LocalDateTime.ofInstant(claims.getExpiration().toInstant(), ZoneId.systemDefault());
+        tokenRevocationService.revoke(claims.getId(), tokenProvider.getUserId(claims), expiresAt);
+    }
+    
+    // Revokes every token issued to the user so far
+    public void revokeAllTokens(Long id) {
+        User user = loadUserById(id);
+        user.setTokenVersion(user.getTokenVersion() + 1);
+        User updatedUser = userRepository.save(user);
+        
+        cacheUser(updatedUser);
+        tokenVersionTable.advance(updatedUser.getId(), updatedUser.getTokenVersion());
     }
     
     public User getUserById(Long id) {
+        return userByIdCache.get(id, this::loadUserById);
+    }
+    
+    private User loadUserById(Long id) {
         return userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
     }
     
     public User getUserByUsername(String username) {
-        // Check cache first
-        User cachedUser = userCache.get(username);
-        if (cachedUser != null) {
-            return cachedUser;
-        }
-        
-        // If not in cache, get from database
-        User user = userRepository.findByUsername(username)
+        // Served from the cache; loaded from the database on a miss and refreshed in the background when ageing
+        return userCache.get(username, this::loadUserByUsername);
+    }
+    
+    private User loadUserByUsername(String username) {
+        return userRepository.findByUsername(username)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with username: " + username));
-        
-        // Add to cache
-        userCache.put(username, user);
-        
-        return user;
     }
     
     public List<User> getAllUsers() {
@@ -106,7 +233,8 @@ public class UserService {
     }
     
     public User updateUser(Long id, UserRegistrationDto updateDto) {
-        User user = getUserById(id);
+        // Edit a fresh copy; the cached instance is shared with concurrent readers
+        User user = loadUserById(id);
         
         if (updateDto.getFirstName() != null) {
             user.setFirstName(updateDto.getFirstName());
@@ -114,38 +242,99 @@ public class UserService {
         if (updateDto.getLastName() != null) {
             user.setLastName(updateDto.getLastName());
         }
-        if (updateDto.getEmail() != null && !updateDto.getEmail().equals(user.getEmail())) {
-            if (userRepository.existsByEmail(updateDto.getEmail())) {
+        boolean emailChanged = updateDto.getEmail() != null && !updateDto.getEmail().equals(user.getEmail());
+        if (emailChanged) {
+            if (userIdentifierFilter.mightContainEmail(updateDto.getEmail())
+                    && userRepository.existsByEmail(updateDto.getEmail())) {
                 throw new IllegalArgumentException("Email already exists");
             }
             user.setEmail(updateDto.getEmail());
         }
         if (updateDto.getPassword() != null) {
-            user.setPassword(passwordEncoder.encode(updateDto.getPassword()));
+            user.setPassword(passwordHasher.encode(updateDto.getPassword()));
+            // Tokens issued with the old password stop working
+            user.setTokenVersion(user.getTokenVersion() + 1);
         }
         
-        User updatedUser = userRepository.save(user);
+        User updatedUser;
+        try {
+            updatedUser = userRepository.save(user);
+        } catch (RuntimeException e) {
+            evictUser(user);
+            // Taken concurrently, or on another instance since the filter was last refreshed
+            if (emailChanged && e instanceof DataIntegrityViolationException
+                    && userRepository.existsByEmail(user.getEmail())) {
+                throw new IllegalArgumentException("Email already exists");
+            }
+            throw e;
+        }
+        userIdentifierFilter.add(updatedUser.getUsername(), updatedUser.getEmail());
         
         // Update cache
-        userCache.put(updatedUser.getUsername(), updatedUser);
+        cacheUser(updatedUser);
+        tokenVersionTable.advance(updatedUser.getId(), updatedUser.getTokenVersion());
         
         return updatedUser;
     }
     
     public void deleteUser(Long id) {
-        User user = getUserById(id);
+        User user = loadUserById(id);
         user.setActive(false);
+        user.setTokenVersion(user.getTokenVersion() + 1);
         userRepository.save(user);
         
         // Remove from cache
-        userCache.remove(user.getUsername());
+        evictUser(user);
+        tokenVersionTable.advance(user.getId(), user.getTokenVersion());
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadTokenVersions() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        tokenVersionTable.load(toPairs(userRepository.findRevokedTokenVersions()));
+        tokenVersionsRefreshedAt = startedAt;
+    }
+    
+    // Picks up revocations made by other instances; local ones are applied as they happen
+    @Scheduled(fixedDelayString = "${jwt.token-versions.refresh-interval-ms:30000}")
+    public void refreshTokenVersions() {
+        LocalDateTime since = tokenVersionsRefreshedAt;
+        if (since == null) {
+            return;
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+        List<UserRepository.TokenVersion> changed = userRepository.findRevokedTokenVersionsUpdatedSince(
+                since.minusSeconds(tokenVersionRefreshOverlapSeconds));
+        tokenVersionTable.load(toPairs(changed));
+        tokenVersionsRefreshedAt = startedAt;
+    }
+    
+    private static List<long[]> toPairs(List<UserRepository.TokenVersion> tokenVersions) {
+        return tokenVersions.stream()
+                .map(tokenVersion -> new long[]{tokenVersion.getId(), tokenVersion.getTokenVersion()})
+                .toList();
     }
     
     public void clearUserCache() {
-        userCache.clear();
+        userCache.invalidateAll();
+        userByIdCache.invalidateAll();
     }
     
     public Map<String, User> getUserCache() {
-        return new HashMap<>(userCache);
+        return userCache.asMap();
+    }
+    
+    public Map<String, SegmentedLruCache.Stats> getUserCacheStats() {
+        return Map.of("byUsername", userCache.stats(), "byId", userByIdCache.stats());
+    }
+    
+    private void cacheUser(User user) {
+        userCache.put(user.getUsername(), user);
+        userByIdCache.put(user.getId(), user);
+    }
+    
+    private void evictUser(User user) {
+        userCache.invalidate(user.getUsername());
+        userByIdCache.invalidate(user.getId());
     }
 }
\ No newline at end of file
@@ -0,0 +1,180 @@
+package com.ocms.assignment.service;
+
+import com.ocms.assignment.dto.AssignmentDto;
+import com.ocms.assignment.dto.GradeSubmissionDto;
+import com.ocms.assignment.dto.SubmissionDto;
+import com.ocms.assignment.entity.Assignment;
+import com.ocms.assignment.entity.Submission;
+import com.ocms.assignment.repository.AssignmentRepository;
+import com.ocms.assignment.repository.SubmissionRepository;
+import com.ocms.course.entity.Course;
+import com.ocms.course.repository.CourseRepository;
+import com.ocms.user.entity.User;
+import com.ocms.user.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class AssignmentServiceTest {
+
+    @Autowired
+    private AssignmentService assignmentService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private AssignmentRepository assignmentRepository;
+
+    @Autowired
+    private SubmissionRepository submissionRepository;
+
+    @Autowired
+    private GradingQueueService gradingQueueService;
+
+    private Course course;
+    private Assignment early;
+    private Assignment late;
+
+    @BeforeEach
+    void setUp() {
+        User instructor = userRepository.save(newUser("instructor", User.UserRole.INSTRUCTOR));
+        Course newCourse = new Course();
+        newCourse.setTitle("Compilers");
+        newCourse.setInstructor(instructor);
+        course = courseRepository.save(newCourse);
+        early = assignmentRepository.save(newAssignment("Lexer", LocalDateTime.now().plusDays(1)));
+        late = assignmentRepository.save(newAssignment("Parser", LocalDateTime.now().plusDays(2)));
+    }
+
+    @Test
+    void testPendingSubmissionsComeFromDurableQueue() {
+        Submission lateSubmission = submit(late);
+        Submission earlySubmission = submit(early);
+        Submission secondEarlySubmission = submit(early);
+
+        assertEquals(List.of(earlySubmission.getId(), secondEarlySubmission.getId(), lateSubmission.getId()),
+                ids(assignmentService.getPendingSubmissions(course.getId(), null, 0, 10)));
+        assertEquals(List.of(lateSubmission.getId()),
+                ids(assignmentService.getPendingSubmissions(null, late.getId(), 0, 10)));
+        assertEquals(List.of(secondEarlySubmission.getId()),
+                ids(assignmentService.getPendingSubmissions(course.getId(), null, 1, 1)));
+
+        GradeSubmissionDto grade = new GradeSubmissionDto();
+        grade.setScore(90.0);
+        assignmentService.gradeSubmission(earlySubmission.getId(), grade);
+
+        assertEquals(List.of(secondEarlySubmission.getId(), lateSubmission.getId()),
+                ids(assignmentService.getPendingSubmissions(course.getId(), null, 0, 10)));
+    }
+
+    @Test
+    void testDueDateChangeReordersPendingSubmissions() {
+        Submission lateSubmission = submit(late);
+        Submission earlySubmission = submit(early);
+
+        AssignmentDto update = new AssignmentDto();
+        update.setDueDate(LocalDateTime.now().plusDays(3));
+        assignmentService.updateAssignment(early.getId(), update);
+
+        assertEquals(List.of(lateSubmission.getId(), earlySubmission.getId()),
+                ids(assignmentService.getPendingSubmissions(course.getId(), null, 0, 10)));
+    }
+
+    @Test
+    void testClaimsRoundRobinAcrossAssignments() {
+        Assignment urgent = assignmentRepository.save(newAssignment("Urgent", LocalDateTime.now().plusMinutes(30)));
+        Assignment next = assignmentRepository.save(newAssignment("Next", LocalDateTime.now().plusMinutes(40)));
+        Submission urgent1 = submit(urgent);
+        Submission urgent2 = submit(urgent);
+        Submission urgent3 = submit(urgent);
+        Submission next1 = submit(next);
+
+        // One from each assignment before a second from either
+        assertEquals(List.of(urgent1.getId(), next1.getId()), ids(assignmentService.claimSubmissions("grader-1", 2)));
+        assertEquals(List.of(urgent2.getId()), ids(assignmentService.claimSubmissions("grader-2", 1)));
+        assertEquals(List.of(urgent3.getId()), ids(assignmentService.claimSubmissions("grader-2", 1)));
+        // Claimed submissions stay pending until graded
+        assertEquals(4, assignmentService.getPendingSubmissions(null, urgent.getId(), 0, 10).size()
+                + assignmentService.getPendingSubmissions(null, next.getId(), 0, 10).size());
+    }
+
+    @Test
+    void testBackfillQueuesUngradedSubmissionsWithoutTask() {
+        Submission queued = submit(late);
+        // Saved directly, as submissions made before the grading queue existed were
+        Submission legacy = submissionRepository.save(newSubmission(early, false));
+        submissionRepository.save(newSubmission(early, true));
+
+        gradingQueueService.backfillTasks();
+        gradingQueueService.backfillTasks();
+
+        assertEquals(List.of(legacy.getId(), queued.getId()),
+                ids(assignmentService.getPendingSubmissions(course.getId(), null, 0, 10)));
+    }
+
+    @Test
+    void testPendingPageSizeIsCapped() {
+        for (int i = 0; i < 4; i++) {
+            submit(early);
+        }
+
+        // Capped by grading.queue.max-page-size (3 in tests) rather than loading the whole queue
+        assertEquals(3, assignmentService.getPendingSubmissions(course.getId(), null, 0, Integer.MAX_VALUE).size());
+        assertEquals(1, assignmentService.getPendingSubmissions(course.getId(), null, 1, Integer.MAX_VALUE).size());
+        assertEquals(3, assignmentService.getPendingSubmissions().size());
+    }
+
+    private Submission submit(Assignment assignment) {
+        SubmissionDto submission = new SubmissionDto();
+        submission.setAssignmentId(assignment.getId());
+        submission.setUserId(userRepository.save(newUser("student", User.UserRole.STUDENT)).getId());
+        submission.setContent("answer");
+        return assignmentService.submitAssignment(submission);
+    }
+
+    private Submission newSubmission(Assignment assignment, boolean graded) {
+        Submission submission = new Submission();
+        submission.setAssignment(assignment);
+        submission.setUser(userRepository.save(newUser("student", User.UserRole.STUDENT)));
+        submission.setContent("answer");
+        submission.setGraded(graded);
+        return submission;
+    }
+
+    private Assignment newAssignment(String title, LocalDateTime dueDate) {
+        Assignment assignment = new Assignment();
+        assignment.setTitle(title);
+        assignment.setCourse(course);
+        assignment.setDueDate(dueDate);
+        assignment.setMaxScore(100);
+        return assignment;
+    }
+
+    private static List<Long> ids(List<Submission> submissions) {
+        return submissions.stream().map(Submission::getId).toList();
+    }
+
+    private static User newUser(String role, User.UserRole userRole) {
+        String name = role + "-" + UUID.randomUUID();
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword("password");
+        user.setFirstName("Test");
+        user.setLastName(role);
+        user.setRole(userRole);
+        return user;
+    }
+}
@@ -0,0 +1,77 @@
+package com.ocms.common.datastructures;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Per-request revocation check for a token that is not revoked (the common case), with `revoked` token ids on the
+// list: the bloom filter alone, the exact set alone, and the filter in front of the set. The filter in front measured
+// no faster than the set alone (about 108 vs 91 ns), so TokenRevocationService checks the set directly.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=BloomFilterBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BloomFilterBenchmark {
+
+    private static final int LOOKUP_KEYS = 4096;
+
+    @Param({"100000"})
+    private int revoked;
+
+    private BloomFilter filter;
+    private Map<String, Long> revokedTokens;
+    private String[] activeTokens;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        filter = new BloomFilter(revoked, 0.01);
+        revokedTokens = new ConcurrentHashMap<>();
+        for (int i = 0; i < revoked; i++) {
+            String tokenId = UUID.randomUUID().toString();
+            filter.put(tokenId);
+            revokedTokens.put(tokenId, Long.MAX_VALUE);
+        }
+        activeTokens = new String[LOOKUP_KEYS];
+        for (int i = 0; i < LOOKUP_KEYS; i++) {
+            activeTokens[i] = UUID.randomUUID().toString();
+        }
+    }
+
+    @Benchmark
+    public boolean filterOnly() {
+        return filter.mightContain(nextToken());
+    }
+
+    @Benchmark
+    public boolean setOnly() {
+        return revokedTokens.containsKey(nextToken());
+    }
+
+    @Benchmark
+    public boolean filterThenSet() {
+        String tokenId = nextToken();
+        return filter.mightContain(tokenId) && revokedTokens.containsKey(tokenId);
+    }
+
+    // A fresh copy, as each request parses its token id anew, so String's cached hash code does not carry over
+    private String nextToken() {
+        next = (next + 1) & (LOOKUP_KEYS - 1);
+        return new String(activeTokens[next].toCharArray());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BloomFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
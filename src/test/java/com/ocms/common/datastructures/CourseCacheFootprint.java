@@ -0,0 +1,33 @@
+package com.ocms.common.datastructures;
+
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Retained heap of a course-keyed cache, excluding the cached values themselves.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.ocms.common.datastructures.CourseCacheFootprint
+public class CourseCacheFootprint {
+
+    public static void main(String[] args) {
+        System.out.printf("%8s %14s %20s %16s%n", "courses", "HashMap", "ConcurrentHashMap", "Long2ObjectMap");
+        for (int courses : new int[]{1_000, 10_000, 100_000}) {
+            Object value = new Object();
+            Map<Long, Object> hashMap = new HashMap<>();
+            Map<Long, Object> concurrentMap = new ConcurrentHashMap<>();
+            Long2ObjectMap<Object> primitiveMap = new Long2ObjectMap<>();
+            for (long id = 1; id <= courses; id++) {
+                hashMap.put(id, value);
+                concurrentMap.put(id, value);
+                primitiveMap.put(id, value);
+            }
+
+            GraphLayout valueLayout = GraphLayout.parseInstance(value);
+            long hashMapBytes = GraphLayout.parseInstance(hashMap).subtract(valueLayout).totalSize();
+            long concurrentBytes = GraphLayout.parseInstance(concurrentMap).subtract(valueLayout).totalSize();
+            long primitiveBytes = GraphLayout.parseInstance(primitiveMap).subtract(valueLayout).totalSize();
+            System.out.printf("%8d %12d B %18d B %14d B%n", courses, hashMapBytes, concurrentBytes, primitiveBytes);
+        }
+    }
+}
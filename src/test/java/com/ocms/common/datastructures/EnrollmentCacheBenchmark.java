@@ -0,0 +1,79 @@
+package com.ocms.common.datastructures;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Opening day: `students` enrollments into one course whose enrollment list is cached.
+// reload mirrors the previous behaviour (re-read and cache the whole list after every enrollment, with the
+// repository modelled as an in-memory list, so the database round trips are not even counted);
+// delta inserts each new enrollment into the cached snapshot.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=EnrollmentCacheBenchmark
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EnrollmentCacheBenchmark {
+
+    private static final Long COURSE_ID = 1L;
+    private static final Comparator<Enrollment> BY_ID = Comparator.comparingLong(Enrollment::id);
+
+    record Enrollment(long id, long studentId) {
+    }
+
+    @Param({"20000"})
+    private int students;
+
+    private SegmentedLruCache<Long, List<Enrollment>> reloadCache;
+    private SegmentedLruCache<Long, PersistentList<Enrollment>> deltaCache;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        reloadCache = SegmentedLruCache.<Long, List<Enrollment>>builder()
+                .maximumWeight(1_000_000)
+                .weigher((courseId, enrollments) -> enrollments.size() + 1)
+                .build();
+        reloadCache.put(COURSE_ID, List.of());
+        deltaCache = SegmentedLruCache.<Long, PersistentList<Enrollment>>builder()
+                .maximumWeight(1_000_000)
+                .weigher((courseId, enrollments) -> enrollments.size() + 1)
+                .build();
+        deltaCache.put(COURSE_ID, PersistentList.empty());
+    }
+
+    @Benchmark
+    public int reload() {
+        List<Enrollment> table = new ArrayList<>();
+        for (long id = 1; id <= students; id++) {
+            table.add(new Enrollment(id, id));
+            reloadCache.put(COURSE_ID, new ArrayList<>(table));
+        }
+        return reloadCache.getIfPresent(COURSE_ID).size();
+    }
+
+    @Benchmark
+    public int delta() {
+        for (long id = 1; id <= students; id++) {
+            Enrollment enrollment = new Enrollment(id, id);
+            deltaCache.computeIfPresent(COURSE_ID, enrollments -> {
+                int index = enrollments.binarySearch(enrollment, BY_ID);
+                return index >= 0 ? enrollments.with(index, enrollment) : enrollments.plus(-index - 1, enrollment);
+            });
+        }
+        return deltaCache.getIfPresent(COURSE_ID).size();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EnrollmentCacheBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
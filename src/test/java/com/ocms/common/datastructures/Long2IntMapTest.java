@@ -0,0 +1,51 @@
+package com.ocms.common.datastructures;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Long2IntMapTest {
+
+    private Long2IntMap map;
+
+    @BeforeEach
+    void setUp() {
+        map = new Long2IntMap();
+    }
+
+    @Test
+    void testPutAddToAndRemove() {
+        map.put(3L, 30);
+        assertEquals(31, map.addTo(3L, 1));
+        assertEquals(2, map.addTo(4L, 2));
+        assertEquals(31, map.getOrDefault(3L, 0));
+
+        assertTrue(map.remove(3L));
+        assertEquals(-1, map.getOrDefault(3L, -1));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void testRandomOperationsMatchHashMap() {
+        Random random = new Random(11);
+        Map<Long, Integer> expected = new HashMap<>();
+
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextInt(2_000) - 1_000;
+            switch (random.nextInt(3)) {
+                case 0 -> assertEquals(expected.merge(key, 1, Integer::sum), map.addTo(key, 1));
+                case 1 -> assertEquals(expected.remove(key) != null, map.remove(key));
+                default -> assertEquals(expected.getOrDefault(key, 0), map.getOrDefault(key, 0));
+            }
+        }
+
+        Map<Long, Integer> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,91 @@
+package com.ocms.common.datastructures;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Long2LongMapTest {
+
+    private Long2LongMap map;
+
+    @BeforeEach
+    void setUp() {
+        map = new Long2LongMap();
+    }
+
+    @Test
+    void testPutAndGet() {
+        map.put(1L, 10L);
+        map.put(0L, 0L);
+
+        assertEquals(10L, map.getOrDefault(1L, -1L));
+        assertEquals(0L, map.getOrDefault(0L, -1L));
+        assertEquals(-1L, map.getOrDefault(2L, -1L));
+        assertTrue(map.containsKey(0L));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void testAddToTreatsAbsentKeysAsZero() {
+        assertEquals(5L, map.addTo(7L, 5L));
+        assertEquals(3L, map.addTo(7L, -2L));
+        assertEquals(1L, map.addTo(0L, 1L));
+        assertEquals(3L, map.getOrDefault(7L, 0L));
+    }
+
+    @Test
+    void testRemove() {
+        map.put(1L, 1L);
+
+        assertTrue(map.remove(1L));
+        assertFalse(map.remove(1L));
+        assertFalse(map.containsKey(1L));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    void testRandomOperationsMatchHashMap() {
+        Random random = new Random(7);
+        Map<Long, Long> expected = new HashMap<>();
+
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextInt(2_000);
+            switch (random.nextInt(3)) {
+                case 0 -> assertEquals(expected.merge(key, 3L, Long::sum), map.addTo(key, 3L));
+                case 1 -> assertEquals(expected.remove(key) != null, map.remove(key));
+                default -> assertEquals(expected.getOrDefault(key, -1L), map.getOrDefault(key, -1L));
+            }
+        }
+
+        Map<Long, Long> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void testConcurrentAddToIsAtomic() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.submit(() -> {
+                for (long key = 1; key <= 10_000; key++) {
+                    map.addTo(key, 1L);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(10_000, map.size());
+        for (long key = 1; key <= 10_000; key++) {
+            assertEquals(8L, map.getOrDefault(key, 0L));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.ocms.common.datastructures;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Course-cache access pattern: lookups and in-place replacement of the value for random course ids.
+// Ids start above the Long.valueOf cache so the boxed maps pay for boxing as they would in production.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="Long2ObjectMapBenchmark -prof gc"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Long2ObjectMapBenchmark {
+
+    private static final long FIRST_ID = 1_000;
+
+    @Param({"100000"})
+    private int courses;
+
+    private Long2ObjectMap<Object> primitiveMap;
+    private ConcurrentHashMap<Long, Object> concurrentMap;
+    private Map<Long, Object> hashMap;
+    private Object value;
+
+    @State(Scope.Thread)
+    public static class Ids {
+        private final Random random = new Random(42);
+
+        long next(int courses) {
+            return FIRST_ID + random.nextInt(courses);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        value = new Object();
+        primitiveMap = new Long2ObjectMap<>();
+        concurrentMap = new ConcurrentHashMap<>();
+        hashMap = new HashMap<>();
+        for (long id = FIRST_ID; id < FIRST_ID + courses; id++) {
+            primitiveMap.put(id, value);
+            concurrentMap.put(id, value);
+            hashMap.put(id, value);
+        }
+    }
+
+    @Benchmark
+    public Object primitiveGet(Ids ids) {
+        return primitiveMap.get(ids.next(courses));
+    }
+
+    @Benchmark
+    public Object concurrentGet(Ids ids) {
+        return concurrentMap.get(ids.next(courses));
+    }
+
+    @Benchmark
+    public Object hashMapGet(Ids ids) {
+        return hashMap.get(ids.next(courses));
+    }
+
+    @Benchmark
+    public Object primitiveReplace(Ids ids) {
+        return primitiveMap.computeIfPresent(ids.next(courses), current -> value);
+    }
+
+    @Benchmark
+    public Object concurrentReplace(Ids ids) {
+        return concurrentMap.computeIfPresent(ids.next(courses), (id, current) -> value);
+    }
+
+    // Four readers share the map with no writer, the steady state of a warm cache
+    @Benchmark
+    @Threads(4)
+    public Object primitiveGetContended(Ids ids) {
+        return primitiveMap.get(ids.next(courses));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object concurrentGetContended(Ids ids) {
+        return concurrentMap.get(ids.next(courses));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(Long2ObjectMapBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
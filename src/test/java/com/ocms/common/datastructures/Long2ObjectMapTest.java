@@ -0,0 +1,202 @@
+package com.ocms.common.datastructures;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Long2ObjectMapTest {
+
+    private Long2ObjectMap<String> map;
+
+    @BeforeEach
+    void setUp() {
+        map = new Long2ObjectMap<>();
+    }
+
+    @Test
+    void testPutAndGet() {
+        assertNull(map.put(1L, "one"));
+        assertNull(map.put(2L, "two"));
+        assertEquals("one", map.put(1L, "uno"));
+
+        assertEquals("uno", map.get(1L));
+        assertEquals("two", map.get(2L));
+        assertNull(map.get(3L));
+        assertTrue(map.containsKey(2L));
+        assertFalse(map.containsKey(3L));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void testZeroAndNegativeKeys() {
+        map.put(0L, "zero");
+        map.put(-1L, "minus one");
+        map.put(Long.MIN_VALUE, "min");
+
+        assertEquals("zero", map.get(0L));
+        assertEquals("minus one", map.get(-1L));
+        assertEquals("min", map.get(Long.MIN_VALUE));
+        assertEquals(3, map.size());
+
+        assertEquals("zero", map.remove(0L));
+        assertNull(map.get(0L));
+        assertFalse(map.containsKey(0L));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void testPutIfAbsent() {
+        assertNull(map.putIfAbsent(5L, "first"));
+        assertEquals("first", map.putIfAbsent(5L, "second"));
+        assertEquals("first", map.get(5L));
+    }
+
+    @Test
+    void testComputeIfAbsent() {
+        assertEquals("loaded", map.computeIfAbsent(7L, () -> "loaded"));
+        assertEquals("loaded", map.computeIfAbsent(7L, () -> fail("loader must not run for a present key")));
+        assertNull(map.computeIfAbsent(8L, () -> null));
+        assertFalse(map.containsKey(8L));
+    }
+
+    @Test
+    void testComputeIfPresent() {
+        assertNull(map.computeIfPresent(1L, value -> value + "!"));
+        assertFalse(map.containsKey(1L));
+
+        map.put(1L, "a");
+        assertEquals("a!", map.computeIfPresent(1L, value -> value + "!"));
+        assertEquals("a!", map.get(1L));
+
+        assertNull(map.computeIfPresent(1L, value -> null));
+        assertFalse(map.containsKey(1L));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    void testNullValuesAreRejected() {
+        assertThrows(NullPointerException.class, () -> map.put(1L, null));
+        assertThrows(NullPointerException.class, () -> map.putIfAbsent(1L, null));
+    }
+
+    @Test
+    void testGrowsPastInitialCapacity() {
+        for (long key = 1; key <= 10_000; key++) {
+            map.put(key, "v" + key);
+        }
+
+        assertEquals(10_000, map.size());
+        for (long key = 1; key <= 10_000; key++) {
+            assertEquals("v" + key, map.get(key));
+        }
+    }
+
+    @Test
+    void testRemoveKeepsProbeChainsIntact() {
+        // Keys sharing a home slot form a single probe chain; removing from its middle must not cut it
+        Long2ObjectMap<String> small = new Long2ObjectMap<>(8);
+        int mask = AbstractLongHashMap.tableSizeFor(8) - 1;
+        long[] colliding = new long[4];
+        int found = 0;
+        for (long key = 1; found < colliding.length; key++) {
+            if ((AbstractLongHashMap.mix(key) & mask) == (AbstractLongHashMap.mix(1L) & mask)) {
+                colliding[found++] = key;
+            }
+        }
+        for (long key : colliding) {
+            small.put(key, "v" + key);
+        }
+
+        assertEquals("v" + colliding[1], small.remove(colliding[1]));
+
+        assertNull(small.get(colliding[1]));
+        assertEquals("v" + colliding[0], small.get(colliding[0]));
+        assertEquals("v" + colliding[2], small.get(colliding[2]));
+        assertEquals("v" + colliding[3], small.get(colliding[3]));
+        assertEquals(3, small.size());
+    }
+
+    @Test
+    void testRandomOperationsMatchHashMap() {
+        Random random = new Random(42);
+        Map<Long, String> expected = new HashMap<>();
+
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextInt(2_000) - 100;
+            switch (random.nextInt(3)) {
+                case 0 -> assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+                case 1 -> assertEquals(expected.remove(key), map.remove(key));
+                default -> assertEquals(expected.get(key), map.get(key));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        Map<Long, String> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void testClear() {
+        map.put(0L, "zero");
+        map.put(1L, "one");
+
+        map.clear();
+
+        assertTrue(map.isEmpty());
+        assertNull(map.get(0L));
+        assertNull(map.get(1L));
+    }
+
+    @Test
+    void testReadersNeverMissStableKeysWhileWritersChurn() throws Exception {
+        Long2ObjectMap<Long> shared = new Long2ObjectMap<>();
+        for (long key = 1; key <= 1_000; key++) {
+            shared.put(key, key);
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            // The writer inserts and removes other keys, forcing rehashes and backward shifts around the stable ones
+            Future<?> writer = executor.submit(() -> {
+                for (int round = 0; round < 50; round++) {
+                    for (long key = 1_001; key <= 5_000; key++) {
+                        shared.put(key, key);
+                    }
+                    for (long key = 1_001; key <= 5_000; key++) {
+                        shared.remove(key);
+                    }
+                }
+                running.set(false);
+            });
+            Future<?>[] readers = new Future<?>[3];
+            for (int r = 0; r < readers.length; r++) {
+                readers[r] = executor.submit(() -> {
+                    while (running.get()) {
+                        for (long key = 1; key <= 1_000; key++) {
+                            assertEquals(key, shared.get(key));
+                        }
+                    }
+                });
+            }
+
+            writer.get();
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1_000, shared.size());
+    }
+}
@@ -0,0 +1,132 @@
+package com.ocms.common.datastructures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentListTest {
+
+    @Test
+    void testEmpty() {
+        PersistentList<String> list = PersistentList.empty();
+
+        assertTrue(list.isEmpty());
+        assertEquals(0, list.size());
+        assertFalse(list.iterator().hasNext());
+    }
+
+    @Test
+    void testPlusAndGet() {
+        PersistentList<String> list = PersistentList.<String>empty()
+                .plus("First")
+                .plus("Third")
+                .plus(1, "Second");
+
+        assertEquals(List.of("First", "Second", "Third"), list);
+        assertEquals("Second", list.get(1));
+    }
+
+    @Test
+    void testUpdatesDoNotChangeEarlierVersions() {
+        PersistentList<String> original = PersistentList.copyOf(List.of("A", "B", "C"));
+
+        PersistentList<String> added = original.plus("D");
+        PersistentList<String> removed = original.minus(0);
+        PersistentList<String> replaced = original.with(1, "X");
+
+        assertEquals(List.of("A", "B", "C"), original);
+        assertEquals(List.of("A", "B", "C", "D"), added);
+        assertEquals(List.of("B", "C"), removed);
+        assertEquals(List.of("A", "X", "C"), replaced);
+    }
+
+    @Test
+    void testIsUnmodifiable() {
+        PersistentList<String> list = PersistentList.copyOf(List.of("A"));
+
+        assertThrows(UnsupportedOperationException.class, () -> list.add("B"));
+        assertThrows(UnsupportedOperationException.class, () -> list.remove(0));
+    }
+
+    @Test
+    void testOutOfBounds() {
+        PersistentList<String> list = PersistentList.copyOf(List.of("A"));
+
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.plus(2, "B"));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.minus(1));
+    }
+
+    @Test
+    void testSortedOperations() {
+        Comparator<Integer> order = Comparator.naturalOrder();
+        PersistentList<Integer> list = PersistentList.<Integer>empty()
+                .plusSorted(30, order)
+                .plusSorted(10, order)
+                .plusSorted(20, order);
+
+        assertEquals(List.of(10, 20, 30), list);
+        assertEquals(1, list.binarySearch(20, order));
+        assertEquals(-1, list.binarySearch(5, order));
+        assertEquals(-3, list.binarySearch(25, order));
+        assertEquals(-4, list.binarySearch(35, order));
+
+        assertEquals(List.of(10, 30), list.minusSorted(20, order));
+        assertSame(list, list.minusSorted(25, order));
+    }
+
+    @Test
+    void testSortedOperationsMatchSortedArrayList() {
+        Random random = new Random(3);
+        Comparator<Integer> order = Comparator.naturalOrder();
+        PersistentList<Integer> persistent = PersistentList.empty();
+        List<Integer> reference = new ArrayList<>();
+
+        for (int i = 0; i < 3000; i++) {
+            int value = random.nextInt(10000);
+            if (random.nextInt(3) == 0 && !reference.isEmpty()) {
+                Integer existing = reference.get(random.nextInt(reference.size()));
+                persistent = persistent.minusSorted(existing, order);
+                reference.remove(existing);
+            } else if (!reference.contains(value)) {
+                persistent = persistent.plusSorted(value, order);
+                reference.add(value);
+                reference.sort(order);
+            }
+        }
+
+        assertEquals(reference, persistent);
+    }
+
+    @Test
+    void testRandomOperationsMatchArrayList() {
+        Random random = new Random(11);
+        PersistentList<Integer> persistent = PersistentList.empty();
+        List<Integer> reference = new ArrayList<>();
+
+        for (int i = 0; i < 5000; i++) {
+            int operation = random.nextInt(4);
+            if (operation <= 1 || reference.isEmpty()) {
+                int index = random.nextInt(reference.size() + 1);
+                persistent = persistent.plus(index, i);
+                reference.add(index, i);
+            } else if (operation == 2) {
+                int index = random.nextInt(reference.size());
+                persistent = persistent.minus(index);
+                reference.remove(index);
+            } else {
+                int index = random.nextInt(reference.size());
+                persistent = persistent.with(index, -i);
+                reference.set(index, -i);
+            }
+        }
+
+        assertEquals(reference, persistent);
+        assertEquals(reference, PersistentList.copyOf(reference));
+    }
+}
@@ -0,0 +1,108 @@
+package com.ocms.common.datastructures;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Steady-state enqueue + dequeue on a queue holding `size` elements.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=PriorityQueueBenchmark
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriorityQueueBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int size;
+
+    private PriorityQueue<Long> heapQueue;
+    private LinkedPriorityQueue<Long> linkedQueue;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        random = new Random(42);
+        heapQueue = new PriorityQueue<>(Comparator.naturalOrder());
+        linkedQueue = new LinkedPriorityQueue<>(Comparator.naturalOrder());
+
+        // Descending fill keeps the linked prefill O(1) per insert
+        for (long i = size; i > 0; i--) {
+            heapQueue.enqueue(i * 2);
+            linkedQueue.enqueue(i * 2);
+        }
+    }
+
+    @Benchmark
+    public Long heapEnqueueDequeue() {
+        heapQueue.enqueue(nextPriority());
+        return heapQueue.dequeue();
+    }
+
+    @Benchmark
+    public Long linkedEnqueueDequeue() {
+        linkedQueue.enqueue(nextPriority());
+        return linkedQueue.dequeue();
+    }
+
+    private long nextPriority() {
+        return (long) random.nextInt(size) * 2 + 1;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PriorityQueueBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    // Previous sorted singly linked list implementation, kept as the comparison baseline
+    static class LinkedPriorityQueue<T> {
+
+        private static class Node<T> {
+            T data;
+            Node<T> next;
+
+            Node(T data) {
+                this.data = data;
+            }
+        }
+
+        private Node<T> head;
+        private final Comparator<? super T> comparator;
+
+        LinkedPriorityQueue(Comparator<? super T> comparator) {
+            this.comparator = comparator;
+        }
+
+        void enqueue(T data) {
+            Node<T> newNode = new Node<>(data);
+            if (head == null || comparator.compare(data, head.data) < 0) {
+                newNode.next = head;
+                head = newNode;
+            } else {
+                Node<T> current = head;
+                while (current.next != null && comparator.compare(data, current.next.data) >= 0) {
+                    current = current.next;
+                }
+                newNode.next = current.next;
+                current.next = newNode;
+            }
+        }
+
+        T dequeue() {
+            if (head == null) {
+                throw new NoSuchElementException("Priority queue is empty");
+            }
+            T data = head.data;
+            head = head.next;
+            return data;
+        }
+    }
+}
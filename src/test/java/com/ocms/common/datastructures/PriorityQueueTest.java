@@ -3,7 +3,10 @@ package com.ocms.common.datastructures;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -100,4 +103,95 @@ class PriorityQueueTest {
             priorityQueue.peek();
         });
     }
+
+    @Test
+    void testEqualPrioritiesDequeueInInsertionOrder() {
+        PriorityQueue<String> lengthQueue = new PriorityQueue<>(Comparator.comparingInt(String::length));
+
+        lengthQueue.enqueue("bb");
+        lengthQueue.enqueue("aa");
+        lengthQueue.enqueue("c");
+        lengthQueue.enqueue("dd");
+
+        assertEquals("c", lengthQueue.dequeue());
+        assertEquals("bb", lengthQueue.dequeue());
+        assertEquals("aa", lengthQueue.dequeue());
+        assertEquals("dd", lengthQueue.dequeue());
+    }
+
+    @Test
+    void testReprioritize() {
+        PriorityQueue<int[]> holderQueue = new PriorityQueue<>(Comparator.comparingInt(h -> h[0]));
+        holderQueue.enqueue(new int[]{1});
+        PriorityQueue.Handle<int[]> handle = holderQueue.enqueue(new int[]{5});
+        holderQueue.enqueue(new int[]{3});
+
+        handle.get()[0] = 0;
+        holderQueue.reprioritize(handle);
+        assertEquals(0, holderQueue.peek()[0]);
+
+        handle.get()[0] = 10;
+        holderQueue.reprioritize(handle);
+        assertEquals(1, holderQueue.dequeue()[0]);
+        assertEquals(3, holderQueue.dequeue()[0]);
+        assertEquals(10, holderQueue.dequeue()[0]);
+    }
+
+    @Test
+    void testRemoveByHandle() {
+        priorityQueue.enqueue(1);
+        PriorityQueue.Handle<Integer> handle = priorityQueue.enqueue(2);
+        priorityQueue.enqueue(3);
+
+        assertTrue(priorityQueue.remove(handle));
+        assertFalse(handle.isQueued());
+        assertFalse(priorityQueue.remove(handle));
+        assertEquals(2, priorityQueue.size());
+        assertEquals(1, priorityQueue.dequeue());
+        assertEquals(3, priorityQueue.dequeue());
+    }
+
+    @Test
+    void testReprioritizeDequeuedHandle() {
+        PriorityQueue.Handle<Integer> handle = priorityQueue.enqueue(1);
+        priorityQueue.dequeue();
+
+        assertThrows(java.util.NoSuchElementException.class, () -> {
+            priorityQueue.reprioritize(handle);
+        });
+    }
+
+    @Test
+    void testRandomOperationsMatchSortedOrder() {
+        Random random = new Random(42);
+        java.util.PriorityQueue<Integer> reference = new java.util.PriorityQueue<>();
+        List<PriorityQueue.Handle<Integer>> handles = new ArrayList<>();
+
+        for (int i = 0; i < 2000; i++) {
+            int value = random.nextInt(500);
+            handles.add(priorityQueue.enqueue(value));
+            reference.add(value);
+        }
+        for (int i = 0; i < 500; i++) {
+            PriorityQueue.Handle<Integer> handle = handles.get(random.nextInt(handles.size()));
+            if (priorityQueue.remove(handle)) {
+                reference.remove(handle.get());
+            }
+        }
+
+        assertEquals(reference.size(), priorityQueue.size());
+        while (!reference.isEmpty()) {
+            assertEquals(reference.poll(), priorityQueue.dequeue());
+        }
+        assertTrue(priorityQueue.isEmpty());
+    }
+
+    @Test
+    void testToStringIsInPriorityOrder() {
+        priorityQueue.enqueue(3);
+        priorityQueue.enqueue(1);
+        priorityQueue.enqueue(2);
+
+        assertEquals("[1, 2, 3]", priorityQueue.toString());
+    }
 }
\ No newline at end of file
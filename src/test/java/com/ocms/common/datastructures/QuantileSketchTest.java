@@ -0,0 +1,98 @@
+package com.ocms.common.datastructures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantileSketchTest {
+
+    @Test
+    void testExactBelowK() {
+        QuantileSketch sketch = new QuantileSketch(200);
+        for (int i = 99; i >= 1; i--) {
+            sketch.add(i);
+        }
+
+        assertEquals(99, sketch.count());
+        assertEquals(99, sketch.retainedValues());
+        assertEquals(50.0, sketch.quantile(0.5));
+        assertEquals(90.0, sketch.quantile(0.9));
+        assertEquals(1.0, sketch.quantile(0.0));
+        assertEquals(99.0, sketch.quantile(1.0));
+    }
+
+    @Test
+    void testRankErrorStaysWithinBound() {
+        int n = 1_000_000;
+        List<Integer> shuffled = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            shuffled.add(i);
+        }
+        Collections.shuffle(shuffled, new Random(42));
+        QuantileSketch sketch = new QuantileSketch(200, new SplittableRandom(42));
+        shuffled.forEach(sketch::add);
+
+        // Values are 0..n-1, so a value is its own rank
+        for (double q : new double[]{0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99}) {
+            double rankError = Math.abs(sketch.quantile(q) - q * n) / n;
+            assertTrue(rankError < 0.02, "Rank error " + rankError + " at q = " + q);
+        }
+        assertEquals(0.0, sketch.min());
+        assertEquals(n - 1.0, sketch.max());
+    }
+
+    @Test
+    void testSortedInputStaysAccurate() {
+        int n = 200_000;
+        QuantileSketch sketch = new QuantileSketch(100, new SplittableRandom(7));
+        for (int i = 0; i < n; i++) {
+            sketch.add(i);
+        }
+
+        assertEquals(0.5 * n, sketch.quantile(0.5), 0.03 * n);
+        assertEquals(0.9 * n, sketch.quantile(0.9), 0.03 * n);
+    }
+
+    @Test
+    void testMemoryIsBoundedIndependentlyOfCount() {
+        QuantileSketch sketch = new QuantileSketch(200);
+        SplittableRandom random = new SplittableRandom(1);
+        int maxRetained = 0;
+        for (int i = 0; i < 2_000_000; i++) {
+            sketch.add(random.nextDouble());
+            maxRetained = Math.max(maxRetained, sketch.retainedValues());
+        }
+
+        assertTrue(maxRetained < 4 * 200, "Retained " + maxRetained);
+    }
+
+    @Test
+    void testDuplicatesAndNegativeValues() {
+        QuantileSketch sketch = new QuantileSketch(50, new SplittableRandom(3));
+        for (int i = 0; i < 10_000; i++) {
+            sketch.add(i % 2 == 0 ? -5.0 : 7.5);
+        }
+
+        assertEquals(-5.0, sketch.quantile(0.25));
+        assertEquals(7.5, sketch.quantile(0.75));
+        assertEquals(-5.0, sketch.min());
+        assertEquals(7.5, sketch.max());
+    }
+
+    @Test
+    void testEmptyAndInvalidArguments() {
+        QuantileSketch sketch = new QuantileSketch(10);
+
+        assertTrue(Double.isNaN(sketch.quantile(0.5)));
+        assertThrows(IllegalArgumentException.class, () -> sketch.quantile(1.5));
+        assertThrows(IllegalArgumentException.class, () -> sketch.quantile(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> sketch.add(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> new QuantileSketch(1));
+    }
+}
@@ -0,0 +1,150 @@
+package com.ocms.common.datastructures;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoaringBitmapTest {
+
+    private RoaringBitmap bitmap;
+
+    @BeforeEach
+    void setUp() {
+        bitmap = new RoaringBitmap();
+    }
+
+    @Test
+    void testAddContainsAndRemove() {
+        assertTrue(bitmap.add(5));
+        assertFalse(bitmap.add(5));
+        assertTrue(bitmap.add(70_000));
+
+        assertTrue(bitmap.contains(5));
+        assertTrue(bitmap.contains(70_000));
+        assertFalse(bitmap.contains(6));
+        assertEquals(2, bitmap.cardinality());
+
+        assertTrue(bitmap.remove(5));
+        assertFalse(bitmap.remove(5));
+        assertFalse(bitmap.contains(5));
+        assertEquals(1, bitmap.cardinality());
+    }
+
+    @Test
+    void testPlusAndMinusLeaveOriginalUnchanged() {
+        bitmap.add(5);
+        bitmap.add(70_000);
+
+        RoaringBitmap added = bitmap.plus(6).plus(140_000);
+        RoaringBitmap removed = added.minus(70_000);
+
+        assertArrayEquals(new int[]{5, 70_000}, bitmap.toArray());
+        assertArrayEquals(new int[]{5, 6, 70_000, 140_000}, added.toArray());
+        assertArrayEquals(new int[]{5, 6, 140_000}, removed.toArray());
+        assertSame(bitmap, bitmap.plus(5));
+        assertSame(bitmap, bitmap.minus(7));
+    }
+
+    @Test
+    void testValuesIterateInOrderAcrossChunks() {
+        bitmap.add(200_000);
+        bitmap.add(3);
+        bitmap.add(65_536);
+        bitmap.add(65_535);
+
+        assertArrayEquals(new int[]{3, 65_535, 65_536, 200_000}, bitmap.toArray());
+    }
+
+    @Test
+    void testDenseChunkConvertsToBitsetAndBack() {
+        for (int i = 0; i < 10_000; i++) {
+            bitmap.add(i);
+        }
+        assertEquals(10_000, bitmap.cardinality());
+        assertTrue(bitmap.contains(9_999));
+
+        for (int i = 0; i < 9_000; i++) {
+            assertTrue(bitmap.remove(i));
+        }
+        assertEquals(1_000, bitmap.cardinality());
+        assertFalse(bitmap.contains(8_999));
+        assertTrue(bitmap.contains(9_000));
+        assertEquals(9_000, bitmap.toArray()[0]);
+    }
+
+    @Test
+    void testRemovingLastValueEmptiesBitmap() {
+        bitmap.add(1);
+        bitmap.remove(1);
+
+        assertTrue(bitmap.isEmpty());
+        assertEquals(0, bitmap.cardinality());
+        assertArrayEquals(new int[0], bitmap.toArray());
+    }
+
+    @Test
+    void testIntersectionOfSparseAndDenseChunks() {
+        RoaringBitmap evens = new RoaringBitmap();
+        RoaringBitmap multiplesOfThree = new RoaringBitmap();
+        for (int i = 0; i < 30_000; i += 2) {
+            evens.add(i);
+        }
+        for (int i = 0; i < 300_000; i += 3) {
+            multiplesOfThree.add(i);
+        }
+
+        RoaringBitmap multiplesOfSix = RoaringBitmap.and(evens, multiplesOfThree);
+
+        assertEquals(5_000, multiplesOfSix.cardinality());
+        assertEquals(5_000, RoaringBitmap.andCardinality(evens, multiplesOfThree));
+        assertTrue(multiplesOfSix.contains(29_994));
+        assertFalse(multiplesOfSix.contains(3));
+    }
+
+    @Test
+    void testCopyIsIndependent() {
+        bitmap.add(1);
+        RoaringBitmap copy = bitmap.copy();
+
+        copy.add(2);
+        bitmap.remove(1);
+
+        assertArrayEquals(new int[]{1, 2}, copy.toArray());
+        assertTrue(bitmap.isEmpty());
+    }
+
+    @Test
+    void testRandomOperationsMatchTreeSet() {
+        Random random = new Random(42);
+        TreeSet<Integer> expected = new TreeSet<>();
+        RoaringBitmap other = new RoaringBitmap();
+        TreeSet<Integer> expectedOther = new TreeSet<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            // Mostly one dense chunk so containers cross the array/bitset threshold in both directions
+            int value = random.nextInt(10) == 0 ? random.nextInt(1_000_000) : random.nextInt(12_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), bitmap.remove(value));
+            } else {
+                assertEquals(expected.add(value), bitmap.add(value));
+            }
+            if (random.nextBoolean()) {
+                other.add(value);
+                expectedOther.add(value);
+            }
+        }
+
+        assertEquals(expected.size(), bitmap.cardinality());
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), bitmap.toArray());
+
+        TreeSet<Integer> expectedIntersection = new TreeSet<>(expected);
+        expectedIntersection.retainAll(expectedOther);
+        assertArrayEquals(expectedIntersection.stream().mapToInt(Integer::intValue).toArray(),
+                RoaringBitmap.and(bitmap, other).toArray());
+        assertEquals(expectedIntersection.size(), RoaringBitmap.andCardinality(bitmap, other));
+    }
+}
@@ -0,0 +1,341 @@
+package com.ocms.common.datastructures;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentedLruCacheTest {
+
+    private AtomicLong clock;
+    private List<Runnable> pendingRefreshes;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong();
+        pendingRefreshes = new ArrayList<>();
+    }
+
+    private SegmentedLruCache.Builder<String, String> builder() {
+        return SegmentedLruCache.<String, String>builder()
+                .concurrencyLevel(1)
+                .nanoTime(clock::get)
+                .refreshExecutor(pendingRefreshes::add);
+    }
+
+    @Test
+    void testGetLoadsOnMissAndCountsHits() {
+        SegmentedLruCache<String, String> cache = builder().build();
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("A", cache.get("a", key -> { loads.incrementAndGet(); return "A"; }));
+        assertEquals("A", cache.get("a", key -> { loads.incrementAndGet(); return "A"; }));
+        assertEquals("A", cache.getIfPresent("a"));
+        assertNull(cache.getIfPresent("b"));
+
+        assertEquals(1, loads.get());
+        SegmentedLruCache.Stats stats = cache.stats();
+        assertEquals(2, stats.hits());
+        assertEquals(2, stats.misses());
+        assertEquals(1, stats.size());
+        assertEquals(0.5, stats.hitRate());
+    }
+
+    @Test
+    void testNullLoadsAreNotCached() {
+        SegmentedLruCache<String, String> cache = builder().build();
+
+        assertNull(cache.get("a", key -> null));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testSizeIsBounded() {
+        SegmentedLruCache<String, String> cache = builder().maximumSize(100).concurrencyLevel(8).build();
+
+        for (int i = 0; i < 1_000; i++) {
+            cache.put("k" + i, "v" + i);
+        }
+
+        assertTrue(cache.size() <= 100);
+        assertEquals(1_000 - cache.size(), cache.stats().evictions());
+    }
+
+    @Test
+    void testReusedEntriesSurviveAScanOfOneOffKeys() {
+        SegmentedLruCache<String, String> cache = builder().maximumSize(10).build();
+        cache.put("hot", "H");
+        cache.getIfPresent("hot");
+
+        for (int i = 0; i < 100; i++) {
+            cache.put("cold" + i, "C");
+        }
+
+        assertEquals("H", cache.getIfPresent("hot"));
+        assertNull(cache.getIfPresent("cold0"));
+    }
+
+    @Test
+    void testEntriesExpireAfterWrite() {
+        SegmentedLruCache<String, String> cache = builder().expireAfterWrite(Duration.ofSeconds(10)).build();
+        cache.put("a", "A");
+
+        clock.addAndGet(Duration.ofSeconds(9).toNanos());
+        assertEquals("A", cache.getIfPresent("a"));
+
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertNull(cache.getIfPresent("a"));
+        assertEquals(1, cache.stats().expirations());
+        assertTrue(cache.asMap().isEmpty());
+    }
+
+    @Test
+    void testRefreshAheadServesCurrentValueAndReloadsInBackground() {
+        SegmentedLruCache<String, String> cache = builder()
+                .expireAfterWrite(Duration.ofSeconds(10))
+                .refreshAfterWrite(Duration.ofSeconds(5))
+                .build();
+        cache.put("a", "old");
+
+        clock.addAndGet(Duration.ofSeconds(6).toNanos());
+        assertEquals("old", cache.get("a", key -> "new"));
+        assertEquals("old", cache.get("a", key -> "newer"));
+        // Only one refresh is scheduled per entry at a time
+        assertEquals(1, pendingRefreshes.size());
+
+        pendingRefreshes.get(0).run();
+        assertEquals("new", cache.getIfPresent("a"));
+        assertEquals(1, cache.stats().refreshes());
+
+        // The refresh restarted the expiry clock
+        clock.addAndGet(Duration.ofSeconds(6).toNanos());
+        assertEquals("new", cache.getIfPresent("a"));
+    }
+
+    @Test
+    void testRefreshRacingWithInvalidationIsDiscarded() {
+        SegmentedLruCache<String, String> cache = builder().refreshAfterWrite(Duration.ofSeconds(1)).build();
+        cache.put("a", "old");
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+        cache.get("a", key -> "stale");
+
+        cache.put("a", "updated");
+        pendingRefreshes.get(0).run();
+
+        assertEquals("updated", cache.getIfPresent("a"));
+    }
+
+    @Test
+    void testFailedRefreshKeepsCurrentValue() {
+        SegmentedLruCache<String, String> cache = builder().refreshAfterWrite(Duration.ofSeconds(1)).build();
+        cache.put("a", "A");
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+
+        cache.get("a", key -> { throw new IllegalStateException("database down"); });
+        pendingRefreshes.get(0).run();
+
+        assertEquals("A", cache.getIfPresent("a"));
+    }
+
+    @Test
+    void testRefreshRequiresAnExecutor() {
+        assertThrows(IllegalArgumentException.class, () -> SegmentedLruCache.<String, String>builder()
+                .refreshAfterWrite(Duration.ofSeconds(1))
+                .build());
+    }
+
+    @Test
+    void testRejectedRefreshIsRetriedOnALaterRead() {
+        AtomicInteger rejections = new AtomicInteger(1);
+        SegmentedLruCache<String, String> cache = builder()
+                .refreshAfterWrite(Duration.ofSeconds(1))
+                .refreshExecutor(task -> {
+                    if (rejections.getAndDecrement() > 0) {
+                        throw new RejectedExecutionException("saturated");
+                    }
+                    pendingRefreshes.add(task);
+                })
+                .build();
+        cache.put("a", "old");
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+
+        assertEquals("old", cache.get("a", key -> "new"));
+        assertEquals("old", cache.get("a", key -> "new"));
+        pendingRefreshes.get(0).run();
+
+        assertEquals("new", cache.getIfPresent("a"));
+    }
+
+    @Test
+    void testComputeIfPresentUpdatesInPlaceAndKeepsWriteTime() {
+        SegmentedLruCache<String, String> cache = builder().expireAfterWrite(Duration.ofSeconds(10)).build();
+        cache.put("a", "A");
+
+        assertNull(cache.computeIfPresent("b", value -> value + "!"));
+        assertNull(cache.getIfPresent("b"));
+
+        clock.addAndGet(Duration.ofSeconds(6).toNanos());
+        assertEquals("A!", cache.computeIfPresent("a", value -> value + "!"));
+        assertEquals("A!", cache.getIfPresent("a"));
+
+        clock.addAndGet(Duration.ofSeconds(4).toNanos());
+        assertNull(cache.getIfPresent("a"));
+    }
+
+    @Test
+    void testComputeIfPresentReturningNullRemoves() {
+        SegmentedLruCache<String, String> cache = builder().build();
+        cache.put("a", "A");
+
+        assertNull(cache.computeIfPresent("a", value -> null));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testLoadRacingWithComputeIfPresentIsDiscarded() {
+        SegmentedLruCache<String, String> cache = builder().build();
+
+        // The key is not cached when the update runs, but the update still outdates the load in flight
+        String loaded = cache.get("a", key -> {
+            cache.computeIfPresent("a", value -> value + "!");
+            return "stale";
+        });
+
+        assertEquals("stale", loaded);
+        assertNull(cache.getIfPresent("a"));
+    }
+
+    @Test
+    void testLoadSurvivesWritesToOtherKeysOfTheShard() {
+        SegmentedLruCache<String, String> cache = builder().build();
+        cache.put("d", "D");
+
+        // One shard, so these used to discard the load of "a"
+        String loaded = cache.get("a", key -> {
+            cache.put("b", "B");
+            cache.invalidate("c");
+            cache.computeIfPresent("d", value -> value + "!");
+            cache.computeIfPresent("e", value -> value + "!");
+            return "A";
+        });
+
+        assertEquals("A", loaded);
+        assertEquals("A", cache.getIfPresent("a"));
+        assertEquals("D!", cache.getIfPresent("d"));
+    }
+
+    @Test
+    void testRefreshSurvivesWritesToOtherKeys() {
+        SegmentedLruCache<String, String> cache = builder().refreshAfterWrite(Duration.ofSeconds(1)).build();
+        cache.put("a", "old");
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+        cache.get("a", key -> "new");
+
+        cache.put("b", "B");
+        cache.invalidate("c");
+        pendingRefreshes.get(0).run();
+
+        assertEquals("new", cache.getIfPresent("a"));
+    }
+
+    @Test
+    void testLoadRacingWithInvalidateAllIsDiscarded() {
+        SegmentedLruCache<String, String> cache = builder().build();
+
+        cache.get("a", key -> {
+            cache.invalidateAll();
+            return "stale";
+        });
+
+        assertNull(cache.getIfPresent("a"));
+    }
+
+    @Test
+    void testFailedLoadLeavesNoTrace() {
+        SegmentedLruCache<String, String> cache = builder().build();
+
+        assertThrows(IllegalStateException.class, () -> cache.get("a", key -> {
+            throw new IllegalStateException("database down");
+        }));
+
+        assertEquals("A", cache.get("a", key -> "A"));
+        assertEquals("A", cache.getIfPresent("a"));
+    }
+
+    @Test
+    void testWeightedBoundEvictsByTotalWeight() {
+        SegmentedLruCache<String, String> cache = builder()
+                .maximumWeight(10)
+                .weigher((key, value) -> value.length())
+                .build();
+
+        cache.put("a", "xxxx");
+        cache.put("b", "xxxx");
+        assertEquals(2, cache.size());
+
+        // Growing an entry past the bound evicts the least recently used one
+        cache.computeIfPresent("b", value -> value + "xxx");
+        assertNull(cache.getIfPresent("a"));
+        assertEquals("xxxxxxx", cache.getIfPresent("b"));
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    void testWeightAndWeigherMustBeConfiguredTogether() {
+        assertThrows(IllegalArgumentException.class, () -> builder().maximumWeight(10).build());
+        assertThrows(IllegalArgumentException.class, () -> builder().weigher((key, value) -> 1).build());
+    }
+
+    @Test
+    void testInvalidate() {
+        SegmentedLruCache<String, String> cache = builder().build();
+        cache.put("a", "A");
+        cache.put("b", "B");
+
+        cache.invalidate("a");
+        assertNull(cache.getIfPresent("a"));
+        assertEquals("B", cache.getIfPresent("b"));
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertTrue(cache.asMap().isEmpty());
+    }
+
+    @Test
+    void testConcurrentAccessStaysBounded() throws Exception {
+        SegmentedLruCache<String, String> cache = SegmentedLruCache.<String, String>builder().maximumSize(500).build();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int seed = t;
+            workers.add(executor.submit(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    String key = "k" + ((i * 31 + seed) % 2_000);
+                    assertEquals("v" + key, cache.get(key, k -> "v" + k));
+                    if (i % 100 == 0) {
+                        cache.invalidate(key);
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertTrue(cache.size() <= 500);
+        SegmentedLruCache.Stats stats = cache.stats();
+        assertEquals(160_000, stats.hits() + stats.misses());
+    }
+}
@@ -0,0 +1,215 @@
+package com.ocms.common.service;
+
+import com.ocms.assignment.entity.Assignment;
+import com.ocms.assignment.repository.AssignmentRepository;
+import com.ocms.course.entity.Course;
+import com.ocms.course.entity.Module;
+import com.ocms.course.repository.CourseRepository;
+import com.ocms.course.repository.ModuleRepository;
+import com.ocms.user.entity.User;
+import com.ocms.user.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Repository calls outside a transaction each get a fresh persistence context, so every read below
+// is served by the second-level cache or the database, never by a session-local copy
+@SpringBootTest
+class SecondLevelCacheServiceTest {
+
+    @Autowired
+    private SecondLevelCacheService secondLevelCacheService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private ModuleRepository moduleRepository;
+
+    @Autowired
+    private AssignmentRepository assignmentRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User instructor;
+    private Course course;
+
+    @BeforeEach
+    void setUp() {
+        secondLevelCacheService.evictAll();
+        instructor = userRepository.save(newUser());
+        course = courseRepository.save(newCourse(instructor, "Algorithms"));
+    }
+
+    @Test
+    void testEntityReadIsServedFromCache() {
+        courseRepository.findById(course.getId()).orElseThrow();
+        long hits = hits(Course.class.getName());
+
+        courseRepository.findById(course.getId()).orElseThrow();
+
+        assertEquals(hits + 1, hits(Course.class.getName()));
+    }
+
+    @Test
+    void testEntityUpdateInvalidatesCachedCourse() {
+        courseRepository.findById(course.getId()).orElseThrow();
+
+        Course loaded = courseRepository.findById(course.getId()).orElseThrow();
+        loaded.setTitle("Advanced Algorithms");
+        courseRepository.save(loaded);
+
+        assertEquals("Advanced Algorithms", courseRepository.findById(course.getId()).orElseThrow().getTitle());
+    }
+
+    @Test
+    void testEntityUpdateInvalidatesCachedUser() {
+        userRepository.findById(instructor.getId()).orElseThrow();
+
+        User loaded = userRepository.findById(instructor.getId()).orElseThrow();
+        loaded.setEmail("changed-" + loaded.getEmail());
+        userRepository.save(loaded);
+
+        assertTrue(userRepository.findById(instructor.getId()).orElseThrow().getEmail().startsWith("changed-"));
+    }
+
+    @Test
+    void testActiveCourseQueryIsCachedAndInvalidatedOnUpdate() {
+        assertTrue(activeCourseIds().contains(course.getId()));
+        long hits = hits("query.course.active");
+        assertTrue(activeCourseIds().contains(course.getId()));
+        assertEquals(hits + 1, hits("query.course.active"));
+
+        Course loaded = courseRepository.findById(course.getId()).orElseThrow();
+        loaded.setActive(false);
+        courseRepository.save(loaded);
+
+        assertFalse(activeCourseIds().contains(course.getId()));
+    }
+
+    @Test
+    void testModuleQueryIsInvalidatedOnInsertAndUpdate() {
+        Module first = moduleRepository.save(newModule(course, "Sorting", 1024));
+        Module second = moduleRepository.save(newModule(course, "Graphs", 2048));
+        assertEquals(List.of(first.getId(), second.getId()), moduleIds());
+        long hits = hits("query.module.by-course");
+        assertEquals(List.of(first.getId(), second.getId()), moduleIds());
+        assertEquals(hits + 1, hits("query.module.by-course"));
+
+        Module third = moduleRepository.save(newModule(course, "Dynamic Programming", 3072));
+        assertEquals(List.of(first.getId(), second.getId(), third.getId()), moduleIds());
+
+        Module moved = moduleRepository.findById(third.getId()).orElseThrow();
+        moved.setModuleOrder(512);
+        moduleRepository.save(moved);
+        assertEquals(List.of(third.getId(), first.getId(), second.getId()), moduleIds());
+        assertEquals("Dynamic Programming",
+                moduleRepository.findModulesByCourseOrdered(course.getId()).get(0).getModuleTitle());
+    }
+
+    @Test
+    void testActiveAssignmentQueryIsInvalidatedOnUpdate() {
+        Assignment assignment = assignmentRepository.save(newAssignment(course, "Homework 1"));
+        assertEquals(List.of(assignment.getId()), activeAssignmentIds());
+        long hits = hits("query.assignment.active-by-course");
+        assertEquals(List.of(assignment.getId()), activeAssignmentIds());
+        assertEquals(hits + 1, hits("query.assignment.active-by-course"));
+
+        Assignment loaded = assignmentRepository.findById(assignment.getId()).orElseThrow();
+        loaded.setActive(false);
+        assignmentRepository.save(loaded);
+
+        assertTrue(activeAssignmentIds().isEmpty());
+    }
+
+    @Test
+    void testRegionStatsListEveryConfiguredRegion() {
+        courseRepository.findByIsActiveTrue();
+
+        var stats = secondLevelCacheService.getRegionStats();
+
+        assertTrue(stats.keySet().containsAll(List.of(
+                Course.class.getName(), Module.class.getName(), Assignment.class.getName(), User.class.getName(),
+                Course.class.getName() + ".modules", "query.course.active", "query.module.by-course",
+                "query.assignment.active-by-course")));
+        assertTrue(stats.get("query.course.active").puts() > 0);
+    }
+
+    @Test
+    void testRegionStatsAreEmptyWhileStatisticsAreDisabled() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(false);
+        try {
+            courseRepository.findByIsActiveTrue();
+
+            assertTrue(secondLevelCacheService.getRegionStats().isEmpty());
+        } finally {
+            statistics.setStatisticsEnabled(true);
+        }
+    }
+
+    private long hits(String region) {
+        return secondLevelCacheService.getRegionStats().get(region).hits();
+    }
+
+    private List<Long> activeCourseIds() {
+        return courseRepository.findByIsActiveTrue().stream().map(Course::getId).toList();
+    }
+
+    private List<Long> moduleIds() {
+        return moduleRepository.findModulesByCourseOrdered(course.getId()).stream().map(Module::getId).toList();
+    }
+
+    private List<Long> activeAssignmentIds() {
+        return assignmentRepository.findByCourseIdAndIsActiveTrue(course.getId()).stream()
+                .map(Assignment::getId).toList();
+    }
+
+    private static User newUser() {
+        String name = "instructor-" + UUID.randomUUID();
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword("password");
+        user.setRole(User.UserRole.INSTRUCTOR);
+        return user;
+    }
+
+    private static Course newCourse(User instructor, String title) {
+        Course course = new Course();
+        course.setTitle(title);
+        course.setInstructor(instructor);
+        return course;
+    }
+
+    private static Module newModule(Course course, String title, int order) {
+        Module module = new Module();
+        module.setModuleTitle(title);
+        module.setModuleOrder(order);
+        module.setCourse(course);
+        return module;
+    }
+
+    private static Assignment newAssignment(Course course, String title) {
+        Assignment assignment = new Assignment();
+        assignment.setTitle(title);
+        assignment.setCourse(course);
+        assignment.setDueDate(LocalDateTime.now().plusDays(7));
+        assignment.setMaxScore(100);
+        return assignment;
+    }
+}
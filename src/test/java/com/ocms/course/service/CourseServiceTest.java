@@ -0,0 +1,269 @@
+package com.ocms.course.service;
+
+import com.ocms.common.exception.ResourceNotFoundException;
+import com.ocms.course.dto.ModuleDto;
+import com.ocms.course.entity.Course;
+import com.ocms.course.entity.CourseEnrollment;
+import com.ocms.course.entity.Module;
+import com.ocms.course.repository.CourseEnrollmentRepository;
+import com.ocms.course.repository.CourseEnrollmentStatsRepository;
+import com.ocms.course.repository.CourseRepository;
+import com.ocms.user.entity.User;
+import com.ocms.user.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class CourseServiceTest {
+
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private EnrollmentIndex enrollmentIndex;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private CourseEnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private CourseEnrollmentStatsRepository enrollmentStatsRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private User student;
+    private Course course;
+
+    @BeforeEach
+    void setUp() {
+        User instructor = userRepository.save(newUser("instructor", User.UserRole.INSTRUCTOR));
+        student = userRepository.save(newUser("student", User.UserRole.STUDENT));
+        course = courseRepository.save(newCourse(instructor));
+    }
+
+    @Test
+    void testEnrollAndDropUpdateIndexAndStats() {
+        courseService.enrollStudent(course.getId(), student.getId());
+
+        assertTrue(courseService.isEnrolled(course.getId(), student.getId()));
+        assertEquals(1, courseService.countEnrolledStudents(course.getId()));
+        assertEquals(List.of(course.getId()), courseService.getEnrolledCourseIds(student.getId()));
+        assertThrows(IllegalArgumentException.class,
+                () -> courseService.enrollStudent(course.getId(), student.getId()));
+
+        courseService.dropStudent(course.getId(), student.getId());
+
+        assertFalse(courseService.isEnrolled(course.getId(), student.getId()));
+        assertEquals(0, courseService.countEnrolledStudents(course.getId()));
+        assertEquals(1, enrollmentStatsRepository.findById(course.getId()).orElseThrow().getTotalEnrollments());
+        assertThrows(ResourceNotFoundException.class,
+                () -> courseService.dropStudent(course.getId(), student.getId()));
+        // A dropped student may enroll again
+        courseService.enrollStudent(course.getId(), student.getId());
+        assertTrue(courseService.isEnrolled(course.getId(), student.getId()));
+    }
+
+    @Test
+    void testDuplicateMissingFromIndexIsRejectedByDatabase() {
+        // Enrolled on another instance, not yet picked up by a refresh here
+        saveEnrollment(CourseEnrollment.EnrollmentStatus.ENROLLED);
+        assertFalse(enrollmentIndex.isEnrolled(course.getId(), student.getId()));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> courseService.enrollStudent(course.getId(), student.getId()));
+        assertEquals(1, enrollmentRepository.findByCourseId(course.getId()).size());
+    }
+
+    @Test
+    void testRolledBackChangesNeverReachIndex() {
+        transactionTemplate.executeWithoutResult(status -> {
+            courseService.enrollStudent(course.getId(), student.getId());
+            status.setRollbackOnly();
+        });
+
+        assertFalse(courseService.isEnrolled(course.getId(), student.getId()));
+        // Not rejected as a duplicate by a phantom entry
+        courseService.enrollStudent(course.getId(), student.getId());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            courseService.dropStudent(course.getId(), student.getId());
+            status.setRollbackOnly();
+        });
+
+        assertTrue(courseService.isEnrolled(course.getId(), student.getId()));
+        assertEquals(1, courseService.countEnrolledStudents(course.getId()));
+    }
+
+    @Test
+    void testRolledBackChangesNeverReachEnrollmentCache() {
+        courseService.enrollStudent(course.getId(), student.getId());
+        assertEquals(1, courseService.getEnrollmentsByCourse(course.getId()).size());
+        User other = userRepository.save(newUser("student", User.UserRole.STUDENT));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            courseService.enrollStudent(course.getId(), other.getId());
+            courseService.dropStudent(course.getId(), student.getId());
+            status.setRollbackOnly();
+        });
+
+        List<CourseEnrollment> cached = courseService.getEnrollmentsByCourse(course.getId());
+        assertEquals(1, cached.size());
+        assertEquals(CourseEnrollment.EnrollmentStatus.ENROLLED, cached.get(0).getStatus());
+
+        courseService.dropStudent(course.getId(), student.getId());
+        assertEquals(CourseEnrollment.EnrollmentStatus.DROPPED,
+                courseService.getEnrollmentsByCourse(course.getId()).get(0).getStatus());
+    }
+
+    @Test
+    void testRefreshPicksUpChangesFromOtherInstances() {
+        CourseEnrollment enrollment = saveEnrollment(CourseEnrollment.EnrollmentStatus.ENROLLED);
+
+        courseService.refreshEnrollmentIndex();
+
+        assertTrue(courseService.isEnrolled(course.getId(), student.getId()));
+
+        enrollment.setStatus(CourseEnrollment.EnrollmentStatus.DROPPED);
+        enrollmentRepository.save(enrollment);
+        saveEnrollment(CourseEnrollment.EnrollmentStatus.IN_PROGRESS);
+        User other = userRepository.save(newUser("student", User.UserRole.STUDENT));
+        CourseEnrollment dropped = saveEnrollment(CourseEnrollment.EnrollmentStatus.ENROLLED, other);
+        dropped.setStatus(CourseEnrollment.EnrollmentStatus.DROPPED);
+        enrollmentRepository.save(dropped);
+
+        courseService.refreshEnrollmentIndex();
+
+        // The later enrollment of the student wins over the drop of the earlier one
+        assertTrue(courseService.isEnrolled(course.getId(), student.getId()));
+        assertFalse(courseService.isEnrolled(course.getId(), other.getId()));
+        assertEquals(1, courseService.countEnrolledStudents(course.getId()));
+    }
+
+    @Test
+    void testDatabaseFallbackMatchesIndex() {
+        Course other = courseRepository.save(newCourse(course.getInstructor()));
+        User classmate = userRepository.save(newUser("student", User.UserRole.STUDENT));
+        courseService.enrollStudent(course.getId(), student.getId());
+        courseService.enrollStudent(course.getId(), classmate.getId());
+        courseService.enrollStudent(other.getId(), student.getId());
+        courseService.enrollStudent(other.getId(), classmate.getId());
+        courseService.dropStudent(other.getId(), classmate.getId());
+
+        // The queries answer these before the index is first built
+        assertEquals(courseService.countEnrolledStudents(course.getId()), enrollmentRepository
+                .countByCourseIdAndStatusNot(course.getId(), CourseEnrollment.EnrollmentStatus.DROPPED));
+        assertEquals(courseService.getEnrolledCourseIds(student.getId()), enrollmentRepository
+                .findActiveCourseIds(student.getId(), CourseEnrollment.EnrollmentStatus.DROPPED));
+        assertEquals(List.of(student.getId()), enrollmentRepository.findCommonStudentIds(
+                course.getId(), other.getId(), CourseEnrollment.EnrollmentStatus.DROPPED));
+        assertEquals(List.of(student.getId()), courseService.getCommonStudentIds(course.getId(), other.getId()));
+    }
+
+    @Test
+    void testModuleChangesReachLoadedSequenceOnlyOnCommit() {
+        Module first = courseService.addModule(moduleDto("Intro", 10));
+        assertEquals(List.of(first.getId()), moduleIds(courseService.getModuleSequence(course.getId())));
+
+        Module second = courseService.addModule(moduleDto("Joins", 20));
+        transactionTemplate.executeWithoutResult(status -> {
+            courseService.addModule(moduleDto("Rolled back", 15));
+            courseService.deleteModule(first.getId());
+            status.setRollbackOnly();
+        });
+
+        assertEquals(List.of(first.getId(), second.getId()),
+                moduleIds(courseService.getModuleSequence(course.getId())));
+
+        ModuleDto move = new ModuleDto();
+        move.setModuleOrder(5);
+        courseService.updateModule(second.getId(), move);
+        assertEquals(List.of(second.getId(), first.getId()),
+                moduleIds(courseService.getModuleSequence(course.getId())));
+
+        courseService.deleteModule(first.getId());
+        assertEquals(List.of(second.getId()), moduleIds(courseService.getModuleSequence(course.getId())));
+    }
+
+    @Test
+    void testModuleChangeCommittedAfterConcurrentLoadIsApplied() throws Exception {
+        Module first = courseService.addModule(moduleDto("Intro", 10));
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        try {
+            Module second = transactionTemplate.execute(status -> {
+                Module added = courseService.addModule(moduleDto("Joins", 20));
+                // Loaded on another thread while the insert is uncommitted, so the load does not see it
+                try {
+                    assertEquals(List.of(first.getId()),
+                            moduleIds(reader.submit(() -> courseService.getModuleSequence(course.getId())).get()));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                return added;
+            });
+
+            assertEquals(List.of(first.getId(), second.getId()),
+                    moduleIds(courseService.getModuleSequence(course.getId())));
+        } finally {
+            reader.shutdown();
+        }
+    }
+
+    private ModuleDto moduleDto(String title, int order) {
+        ModuleDto module = new ModuleDto();
+        module.setCourseId(course.getId());
+        module.setModuleTitle(title);
+        module.setModuleOrder(order);
+        return module;
+    }
+
+    private static List<Long> moduleIds(List<Module> sequence) {
+        return sequence.stream().map(Module::getId).toList();
+    }
+
+    private CourseEnrollment saveEnrollment(CourseEnrollment.EnrollmentStatus status) {
+        return saveEnrollment(status, student);
+    }
+
+    private CourseEnrollment saveEnrollment(CourseEnrollment.EnrollmentStatus status, User enrolledStudent) {
+        CourseEnrollment enrollment = new CourseEnrollment();
+        enrollment.setCourse(course);
+        enrollment.setStudent(enrolledStudent);
+        enrollment.setStatus(status);
+        return enrollmentRepository.save(enrollment);
+    }
+
+    private static User newUser(String role, User.UserRole userRole) {
+        String name = role + "-" + UUID.randomUUID();
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword("password");
+        user.setFirstName("Test");
+        user.setLastName(role);
+        user.setRole(userRole);
+        return user;
+    }
+
+    private static Course newCourse(User instructor) {
+        Course course = new Course();
+        course.setTitle("Databases");
+        course.setInstructor(instructor);
+        return course;
+    }
+}
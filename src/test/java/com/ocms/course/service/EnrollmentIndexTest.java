@@ -0,0 +1,103 @@
+package com.ocms.course.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnrollmentIndexTest {
+
+    private final EnrollmentIndex index = new EnrollmentIndex();
+
+    @Test
+    void testRebuildReplacesContents() {
+        index.add(9, 9);
+
+        index.rebuild(() -> Stream.of(new long[]{1, 10}, new long[]{1, 11}, new long[]{2, 10}));
+
+        assertTrue(index.isLoaded());
+        assertFalse(index.isEnrolled(9, 9));
+        assertEquals(List.of(10L, 11L), index.getStudentIds(1));
+        assertEquals(List.of(1L, 2L), index.getCourseIds(10));
+        assertEquals(List.of(10L), index.getCommonStudentIds(1, 2));
+    }
+
+    @Test
+    void testChangesDuringRebuildAreReplayedOverLoad() {
+        index.add(1, 12);
+
+        // The query snapshot predates these commits: an enroll it misses and a drop of a pair it still holds
+        index.rebuild(() -> Stream.of(new long[]{1, 10}, new long[]{1, 12}).peek(pair -> {
+            if (pair[1] == 10) {
+                index.add(1, 11);
+                index.remove(1, 12);
+            }
+        }));
+
+        assertEquals(List.of(10L, 11L), index.getStudentIds(1));
+        assertEquals(2, index.countStudents(1));
+    }
+
+    @Test
+    void testFailedRebuildKeepsPreviousContents() {
+        index.add(1, 10);
+
+        assertThrows(IllegalStateException.class, () -> index.rebuild(() -> Stream.<long[]>of(new long[]{2, 20})
+                .peek(pair -> {
+                    throw new IllegalStateException("connection lost");
+                })));
+
+        assertFalse(index.isLoaded());
+        assertTrue(index.isEnrolled(1, 10));
+        assertFalse(index.isEnrolled(2, 20));
+        // No longer recording once the rebuild has ended
+        index.add(1, 11);
+        index.rebuild(Stream::empty);
+        assertEquals(0, index.countStudents(1));
+    }
+
+    @Test
+    void testRefreshNeverUndoesChangesMadeWhileReading() {
+        index.rebuild(Stream::empty);
+        index.add(1, 10);
+
+        // Rows read before a local drop and enroll committed: an older enrollment of 10 and drop of 11
+        index.refresh(() -> Stream.of(new long[]{1, 10, 1}, new long[]{1, 11, 0}, new long[]{2, 12, 1}).peek(change -> {
+            if (change[1] == 10) {
+                index.remove(1, 10);
+                index.add(1, 11);
+            }
+        }));
+
+        assertEquals(List.of(11L), index.getStudentIds(1));
+        assertEquals(List.of(12L), index.getStudentIds(2));
+        assertEquals(List.of(1L), index.getCourseIds(11));
+        assertTrue(index.getCourseIds(10).isEmpty());
+    }
+
+    @Test
+    void testReadsKeepTheVersionTheyStartedWith() {
+        index.add(1, 10);
+        index.add(2, 10);
+        List<Long> before = index.getCommonStudentIds(1, 2);
+
+        index.add(1, 11);
+        index.remove(2, 10);
+
+        assertEquals(List.of(10L), before);
+        assertTrue(index.getCommonStudentIds(1, 2).isEmpty());
+        assertEquals(0, index.countCommonStudents(1, 2));
+    }
+
+    @Test
+    void testIdsBeyondIntRangeAreNeverIndexed() {
+        long tooLarge = Integer.MAX_VALUE + 1L;
+
+        assertFalse(EnrollmentIndex.isIndexable(tooLarge));
+        assertThrows(IllegalArgumentException.class, () -> index.add(1, tooLarge));
+        assertFalse(index.remove(1, tooLarge));
+        assertFalse(index.isEnrolled(1, tooLarge));
+    }
+}
@@ -0,0 +1,108 @@
+package com.ocms.reporting.service;
+
+import com.ocms.OcmsApplication;
+import com.ocms.course.entity.Course;
+import com.ocms.course.entity.CourseEnrollment;
+import com.ocms.course.repository.CourseEnrollmentRepository;
+import com.ocms.course.service.CourseService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Instructor performance report for one instructor owning `courses` courses of `enrollmentsPerCourse` enrollments
+// each, against the test H2 database. perCourseLoads is the previous approach: every course's enrollments loaded
+// as entities (what getEnrollmentsByCourse does on a cache miss; the enrollment cache cannot hold 1M enrollments)
+// and counted in Java. groupedQuery counts all courses in one grouped query; chunkedParallel splits them into
+// ranges of 100 courses counted concurrently on the report pool, which only pays off with spare database cores.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=InstructorReportBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class InstructorReportBenchmark {
+
+    @Param({"500"})
+    private int courses;
+
+    @Param({"2000"})
+    private int enrollmentsPerCourse;
+
+    private ConfigurableApplicationContext context;
+    private ReportingService reportingService;
+    private CourseService courseService;
+    private CourseEnrollmentRepository enrollmentRepository;
+    private long instructorId;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(OcmsApplication.class)
+                .web(WebApplicationType.NONE)
+                // Without the query cache, H2 would hand a repeated query on the same connection its previous result
+                .run("--logging.level.root=WARN", "--spring.jpa.properties.hibernate.generate_statistics=false",
+                        "--spring.datasource.url=jdbc:h2:mem:ocms_bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+                                + "DB_CLOSE_DELAY=-1;QUERY_CACHE_SIZE=0");
+        reportingService = context.getBean(ReportingService.class);
+        courseService = context.getBean(CourseService.class);
+        enrollmentRepository = context.getBean(CourseEnrollmentRepository.class);
+
+        // SYSTEM_RANGE's column is an upper-case X, which the lower-cased test database only matches quoted
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        jdbc.update("INSERT INTO users (username, email, password, role, is_active, token_version) " +
+                "VALUES ('instructor', 'instructor@example.com', 'x', 'INSTRUCTOR', true, 0)");
+        instructorId = jdbc.queryForObject("SELECT id FROM users WHERE username = 'instructor'", Long.class);
+        jdbc.update("INSERT INTO users (username, email, password, role, is_active, token_version) " +
+                "SELECT 'student' || \"X\", 'student' || \"X\" || '@example.com', 'x', 'STUDENT', true, 0 " +
+                "FROM SYSTEM_RANGE(1, ?)", enrollmentsPerCourse);
+        jdbc.update("INSERT INTO courses (title, instructor_id, is_active) " +
+                "SELECT 'Course ' || \"X\", ?, true FROM SYSTEM_RANGE(1, ?)", instructorId, courses);
+        // Every student in every course; one in five enrollments completed
+        jdbc.update("INSERT INTO course_enrollments " +
+                "(course_id, student_id, completion_status, completion_percentage) SELECT c.id, u.id, CASE WHEN MOD(u.id, 5) = 0 THEN 'COMPLETED' ELSE 'IN_PROGRESS' END, 50.0 " +
+                "FROM courses c CROSS JOIN users u WHERE c.instructor_id = ? AND u.role = 'STUDENT'", instructorId);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long perCourseLoads() {
+        long completed = 0;
+        for (Course course : courseService.getCoursesByInstructor(instructorId)) {
+            completed += enrollmentRepository.findByCourseId(course.getId()).stream()
+                    .filter(e -> e.getStatus() == CourseEnrollment.EnrollmentStatus.COMPLETED)
+                    .count();
+        }
+        return completed;
+    }
+
+    @Benchmark
+    public Map<String, Object> groupedQuery() {
+        ReflectionTestUtils.setField(reportingService, "courseChunkSize", Integer.MAX_VALUE);
+        return reportingService.generateInstructorPerformanceReport(instructorId, null, null);
+    }
+
+    @Benchmark
+    public Map<String, Object> chunkedParallel() {
+        ReflectionTestUtils.setField(reportingService, "courseChunkSize", 100);
+        return reportingService.generateInstructorPerformanceReport(instructorId, null, null);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(InstructorReportBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,289 @@
+package com.ocms.reporting.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ocms.common.exception.ResourceNotFoundException;
+import com.ocms.common.exception.ServiceUnavailableException;
+import com.ocms.common.exception.TooManyRequestsException;
+import com.ocms.reporting.dto.ReportDto;
+import com.ocms.reporting.dto.ReportJobDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportJobServiceTest {
+
+    @TempDir
+    private Path resultDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger reportsStarted = new AtomicInteger();
+    private final List<ReportJobService> services = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        services.forEach(ReportJobService::shutdown);
+    }
+
+    private ReportJobService newService(int threads, int queueCapacity, int maxActivePerUser) {
+        ReportJobService service = new ReportJobService(new FakeReportingService(), objectMapper);
+        ReflectionTestUtils.setField(service, "threads", threads);
+        ReflectionTestUtils.setField(service, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(service, "maxActivePerUser", maxActivePerUser);
+        ReflectionTestUtils.setField(service, "resultDir", resultDir.toString());
+        ReflectionTestUtils.setField(service, "resultTtlSeconds", 3600L);
+        try {
+            service.init();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        services.add(service);
+        return service;
+    }
+
+    @Test
+    void testCompletedJobResultIsStored() throws Exception {
+        ReportJobService service = newService(2, 10, 3);
+
+        ReportJobDto submitted = service.submit(report("course_completion"), "alice");
+        ReportJobDto job = awaitStatus(service, submitted.getJobId(), ReportJobDto.Status.COMPLETED);
+
+        assertEquals("course_completion", job.getReportType());
+        assertEquals("alice", job.getRequestedBy());
+        assertEquals(100, job.getProgress());
+        assertNotNull(job.getStartedAt());
+        assertTrue(job.getExpiresAt().isAfter(job.getFinishedAt()));
+        JsonNode result = service.getResult(job.getJobId(), "alice", false);
+        assertEquals("course_completion", result.get("reportType").asText());
+        assertEquals(3, result.get("totalEnrollments").asInt());
+        assertTrue(Files.exists(resultDir.resolve(job.getJobId() + ".json")));
+        assertEquals(List.of(job), service.getJobs("alice"));
+    }
+
+    @Test
+    void testProgressAndCancellationOfRunningJob() throws Exception {
+        ReportJobService service = newService(1, 10, 3);
+
+        String jobId = service.submit(report("blocking"), "alice").getJobId();
+        awaitProgress(service, jobId, 50);
+        assertEquals(ReportJobDto.Status.RUNNING, service.getJob(jobId, "alice", false).getStatus());
+
+        ReportJobDto cancelled = service.cancel(jobId, "alice", false);
+        assertEquals(ReportJobDto.Status.CANCELLED, cancelled.getStatus());
+        release.countDown();
+
+        // The report stops at its next progress report and its slot is taken by the next job
+        String nextId = service.submit(report("course_completion"), "alice").getJobId();
+        awaitStatus(service, nextId, ReportJobDto.Status.COMPLETED);
+        assertEquals(ReportJobDto.Status.CANCELLED, service.getJob(jobId, "alice", false).getStatus());
+        assertThrows(ResourceNotFoundException.class, () -> service.getResult(jobId, "alice", false));
+        assertFalse(Files.exists(resultDir.resolve(jobId + ".json")));
+    }
+
+    @Test
+    void testQueuedJobIsCancelledWithoutRunning() throws Exception {
+        ReportJobService service = newService(1, 10, 3);
+        String runningId = service.submit(report("blocking"), "alice").getJobId();
+        awaitProgress(service, runningId, 50);
+
+        String queuedId = service.submit(report("course_completion"), "alice").getJobId();
+        assertEquals(ReportJobDto.Status.QUEUED, service.getJob(queuedId, "alice", false).getStatus());
+        service.cancel(queuedId, "alice", false);
+        release.countDown();
+
+        awaitStatus(service, runningId, ReportJobDto.Status.COMPLETED);
+        assertEquals(ReportJobDto.Status.CANCELLED, service.getJob(queuedId, "alice", false).getStatus());
+        assertEquals(1, reportsStarted.get());
+    }
+
+    @Test
+    void testCancellingFinishedJobDiscardsIt() throws Exception {
+        ReportJobService service = newService(1, 10, 3);
+        String jobId = service.submit(report("course_completion"), "alice").getJobId();
+        awaitStatus(service, jobId, ReportJobDto.Status.COMPLETED);
+
+        service.cancel(jobId, "alice", false);
+
+        assertThrows(ResourceNotFoundException.class, () -> service.getJob(jobId, "alice", false));
+        assertFalse(Files.exists(resultDir.resolve(jobId + ".json")));
+        assertFalse(Files.exists(resultDir.resolve(jobId + ".job.json")));
+    }
+
+    @Test
+    void testPerUserLimit() throws Exception {
+        ReportJobService service = newService(1, 10, 2);
+        String first = service.submit(report("blocking"), "alice").getJobId();
+        service.submit(report("course_completion"), "alice");
+
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class,
+                () -> service.submit(report("course_completion"), "alice"));
+        assertTrue(e.getRetryAfterSeconds() >= 1);
+        // Other users are unaffected, and a finished job frees its place
+        service.submit(report("course_completion"), "bob");
+        service.cancel(first, "alice", false);
+        service.submit(report("course_completion"), "alice");
+    }
+
+    @Test
+    void testRejectsWhenQueueIsFull() {
+        ReportJobService service = newService(1, 1, 5);
+        service.submit(report("blocking"), "alice");
+        service.submit(report("blocking"), "bob");
+
+        ServiceUnavailableException e = assertThrows(ServiceUnavailableException.class,
+                () -> service.submit(report("course_completion"), "carol"));
+        assertTrue(e.getRetryAfterSeconds() >= 1);
+    }
+
+    @Test
+    void testOtherUsersJobsAreHiddenExceptFromAdmins() throws Exception {
+        ReportJobService service = newService(1, 10, 3);
+        String jobId = service.submit(report("course_completion"), "alice").getJobId();
+        awaitStatus(service, jobId, ReportJobDto.Status.COMPLETED);
+
+        assertThrows(ResourceNotFoundException.class, () -> service.getJob(jobId, "bob", false));
+        assertThrows(ResourceNotFoundException.class, () -> service.getResult(jobId, "bob", false));
+        assertThrows(ResourceNotFoundException.class, () -> service.cancel(jobId, "bob", false));
+        assertTrue(service.getJobs("bob").isEmpty());
+        assertEquals("alice", service.getJob(jobId, "admin", true).getRequestedBy());
+        assertNotNull(service.getResult(jobId, "admin", true));
+    }
+
+    @Test
+    void testFailedJobRecordsError() throws Exception {
+        ReportJobService service = newService(1, 10, 1);
+
+        String jobId = service.submit(report("unknown"), "alice").getJobId();
+        ReportJobDto job = awaitStatus(service, jobId, ReportJobDto.Status.FAILED);
+
+        assertEquals("Unknown report type: unknown", job.getError());
+        assertThrows(ResourceNotFoundException.class, () -> service.getResult(jobId, "alice", false));
+        // A failed job no longer counts against the user
+        assertNotNull(service.submit(report("course_completion"), "alice").getJobId());
+    }
+
+    @Test
+    void testCompletedJobsSurviveRestartUntilExpired() throws Exception {
+        ReportJobService service = newService(1, 10, 3);
+        String kept = service.submit(report("course_completion"), "alice").getJobId();
+        awaitStatus(service, kept, ReportJobDto.Status.COMPLETED);
+        ReflectionTestUtils.setField(service, "resultTtlSeconds", -1L);
+        String expired = service.submit(report("course_completion"), "alice").getJobId();
+        awaitStatus(service, expired, ReportJobDto.Status.COMPLETED);
+        service.shutdown();
+
+        ReportJobService restarted = newService(1, 10, 3);
+        restarted.loadStoredJobs();
+
+        assertEquals(ReportJobDto.Status.COMPLETED, restarted.getJob(kept, "alice", false).getStatus());
+        assertEquals(3, restarted.getResult(kept, "alice", false).get("totalEnrollments").asInt());
+        assertThrows(ResourceNotFoundException.class, () -> restarted.getJob(expired, "alice", false));
+        assertFalse(Files.exists(resultDir.resolve(expired + ".json")));
+    }
+
+    @Test
+    void testUnreadableStoredJobIsDiscardedOnRestart() throws Exception {
+        ReportJobService service = newService(1, 10, 3);
+        String kept = service.submit(report("course_completion"), "alice").getJobId();
+        awaitStatus(service, kept, ReportJobDto.Status.COMPLETED);
+        service.shutdown();
+        Files.writeString(resultDir.resolve("damaged.job.json"), "{\"jobId\": ");
+        Files.writeString(resultDir.resolve("damaged.json"), "{}");
+        Files.writeString(resultDir.resolve("incomplete.job.json"), "{\"jobId\": \"incomplete\"}");
+
+        ReportJobService restarted = newService(1, 10, 3);
+        restarted.loadStoredJobs();
+
+        assertEquals(ReportJobDto.Status.COMPLETED, restarted.getJob(kept, "alice", false).getStatus());
+        assertFalse(Files.exists(resultDir.resolve("damaged.job.json")));
+        assertFalse(Files.exists(resultDir.resolve("damaged.json")));
+        assertFalse(Files.exists(resultDir.resolve("incomplete.job.json")));
+    }
+
+    @Test
+    void testPurgeRemovesExpiredJobs() throws Exception {
+        ReportJobService service = newService(1, 10, 3);
+        ReflectionTestUtils.setField(service, "resultTtlSeconds", -1L);
+        String jobId = service.submit(report("course_completion"), "alice").getJobId();
+        awaitStatus(service, jobId, ReportJobDto.Status.COMPLETED);
+        Files.writeString(resultDir.resolve("orphan.json.tmp"), "{}");
+
+        service.purgeExpiredJobs();
+
+        assertThrows(ResourceNotFoundException.class, () -> service.getJob(jobId, "alice", false));
+        try (var files = Files.list(resultDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private static ReportDto report(String reportType) {
+        ReportDto report = new ReportDto();
+        report.setReportType(reportType);
+        report.setCourseId(1L);
+        return report;
+    }
+
+    private static ReportJobDto awaitStatus(ReportJobService service, String jobId, ReportJobDto.Status status)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        ReportJobDto job = service.getJob(jobId, "admin", true);
+        while (job.getStatus() != status && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            job = service.getJob(jobId, "admin", true);
+        }
+        assertEquals(status, job.getStatus());
+        return job;
+    }
+
+    private static void awaitProgress(ReportJobService service, String jobId, int progress)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (service.getJob(jobId, "admin", true).getProgress() < progress
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(progress, service.getJob(jobId, "admin", true).getProgress());
+    }
+
+    // "blocking" reports half their progress and waits for release; unknown types fail like the real service
+    private class FakeReportingService extends ReportingService {
+
+        FakeReportingService() {
+            super(null, null, null);
+        }
+
+        @Override
+        public Map<String, Object> generateCustomReport(ReportDto reportDto, DoubleConsumer progress) {
+            reportsStarted.incrementAndGet();
+            switch (reportDto.getReportType()) {
+                case "blocking":
+                    progress.accept(0.5);
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    progress.accept(1.0);
+                    return Map.of("reportType", "blocking");
+                case "course_completion":
+                    return Map.of("reportType", "course_completion", "totalEnrollments", 3L);
+                default:
+                    throw new IllegalArgumentException("Unknown report type: " + reportDto.getReportType());
+            }
+        }
+    }
+}
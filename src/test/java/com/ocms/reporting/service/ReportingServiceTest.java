@@ -0,0 +1,417 @@
+package com.ocms.reporting.service;
+
+import com.ocms.assignment.entity.Assignment;
+import com.ocms.assignment.entity.Submission;
+import com.ocms.assignment.repository.AssignmentRepository;
+import com.ocms.assignment.repository.SubmissionRepository;
+import com.ocms.course.dto.CourseDto;
+import com.ocms.course.entity.Course;
+import com.ocms.course.entity.CourseEnrollment;
+import com.ocms.course.entity.CourseEnrollmentStats;
+import com.ocms.course.repository.CourseEnrollmentRepository;
+import com.ocms.course.repository.CourseEnrollmentStatsRepository;
+import com.ocms.course.repository.CourseRepository;
+import com.ocms.course.service.CourseService;
+import com.ocms.reporting.dto.ReportDto;
+import com.ocms.user.entity.User;
+import com.ocms.user.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ReportingServiceTest {
+
+    private static final LocalDateTime DAY_1 = LocalDateTime.of(2024, 3, 1, 9, 0);
+    private static final LocalDateTime DAY_2 = LocalDateTime.of(2024, 3, 2, 23, 30);
+
+    @Autowired
+    private ReportingService reportingService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private AssignmentRepository assignmentRepository;
+
+    @Autowired
+    private SubmissionRepository submissionRepository;
+
+    @Autowired
+    private CourseEnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private CourseEnrollmentStatsRepository enrollmentStatsRepository;
+
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User instructor;
+    private User student;
+    private Course course;
+
+    @BeforeEach
+    void setUp() {
+        instructor = userRepository.save(newUser("instructor", User.UserRole.INSTRUCTOR));
+        student = userRepository.save(newUser("student", User.UserRole.STUDENT));
+        course = courseRepository.save(newCourse(instructor, "Algorithms"));
+    }
+
+    @Test
+    void testStudentPerformanceReportAggregatesWithinRange() {
+        Assignment assignment = assignmentRepository.save(newAssignment(course));
+        submit(assignment, DAY_1, 80.0);
+        submit(assignment, DAY_1.plusHours(2), 60.0);
+        submit(assignment, DAY_2, null);
+        submit(assignment, DAY_2.plusDays(10), 100.0);
+        long loads = submissionLoads();
+
+        Map<String, Object> report = reportingService.generateStudentPerformanceReport(student.getId(),
+                DAY_1.minusDays(1), DAY_2.plusDays(1));
+
+        assertEquals(3L, report.get("totalAssignments"));
+        assertEquals(2L, report.get("gradedAssignments"));
+        assertEquals(70.0, report.get("averageScore"));
+        assertEquals(2.0 / 3 * 100, (double) report.get("completionRate"), 1e-9);
+        assertEquals(loads, submissionLoads());
+    }
+
+    @Test
+    void testStudentPerformanceReportWithoutSubmissions() {
+        Map<String, Object> report = reportingService.generateStudentPerformanceReport(student.getId(),
+                DAY_1, DAY_2);
+
+        assertEquals(0L, report.get("totalAssignments"));
+        assertEquals(0L, report.get("gradedAssignments"));
+        assertEquals(0.0, report.get("averageScore"));
+        assertEquals(0.0, report.get("completionRate"));
+    }
+
+    @Test
+    void testUserActivityReportGroupsByDay() {
+        Assignment assignment = assignmentRepository.save(newAssignment(course));
+        submit(assignment, DAY_2, 50.0);
+        submit(assignment, DAY_1, 80.0);
+        submit(assignment, DAY_1.plusHours(5), null);
+        // The range is exclusive at both ends
+        submit(assignment, DAY_2.plusMinutes(30), null);
+        long loads = submissionLoads();
+
+        Map<String, Object> report = reportingService.generateUserActivityReport(student.getId(),
+                DAY_1.minusSeconds(1), DAY_2.plusMinutes(30));
+
+        assertEquals(3L, report.get("totalSubmissions"));
+        assertEquals(Map.of("2024-03-01", 2L, "2024-03-02", 1L), report.get("submissionsByDate"));
+        assertEquals("2024-03-01", ((Map<?, ?>) report.get("submissionsByDate")).keySet().iterator().next());
+        assertEquals(loads, submissionLoads());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testAssignmentStatisticsAggregateScores() {
+        Assignment assignment = assignmentRepository.save(newAssignment(course));
+        submit(assignment, DAY_1, 40.0);
+        submit(assignment, DAY_1, 75.0);
+        submit(assignment, DAY_1, 95.0);
+        submit(assignment, DAY_1, 100.0);
+        submit(assignment, DAY_1, null);
+
+        long loads = submissionLoads();
+        Map<String, Object> stats = reportingService.generateAssignmentStatisticsReport(assignment.getId());
+
+        assertEquals(5L, stats.get("totalSubmissions"));
+        assertEquals(4L, stats.get("gradedSubmissions"));
+        assertEquals(1L, stats.get("ungradedSubmissions"));
+        assertEquals(100, stats.get("maxScore"));
+        assertEquals(77.5, (double) stats.get("averageScore"), 1e-9);
+        assertEquals(40.0, stats.get("lowestScore"));
+        assertEquals(100.0, stats.get("highestScore"));
+        assertEquals(Math.sqrt(556.25), (double) stats.get("scoreStandardDeviation"), 1e-9);
+        assertEquals(75.0, stats.get("medianScore"));
+        assertEquals(100.0, stats.get("p90Score"));
+        List<Map<String, Object>> distribution = (List<Map<String, Object>>) stats.get("scoreDistribution");
+        assertEquals(10, distribution.size());
+        assertEquals(Map.of("fromPercent", 40.0, "toPercent", 50.0, "count", 1L), distribution.get(4));
+        assertEquals(1L, distribution.get(7).get("count"));
+        // A full score is counted in the top bucket
+        assertEquals(2L, distribution.get(9).get("count"));
+        assertEquals(4L, distribution.stream().mapToLong(bucket -> (long) bucket.get("count")).sum());
+        assertEquals(loads, submissionLoads());
+    }
+
+    @Test
+    void testAssignmentStatisticsWithoutGradedSubmissions() {
+        Assignment assignment = assignmentRepository.save(newAssignment(course));
+        submit(assignment, DAY_1, null);
+
+        Map<String, Object> stats = reportingService.generateAssignmentStatisticsReport(assignment.getId());
+
+        assertEquals(1L, stats.get("totalSubmissions"));
+        assertEquals(0L, stats.get("gradedSubmissions"));
+        assertEquals(0.0, stats.get("averageScore"));
+        assertEquals(0.0, stats.get("medianScore"));
+        assertEquals(0.0, stats.get("scoreStandardDeviation"));
+    }
+
+    @Test
+    void testInstructorPerformanceReportCountsEnrollmentsPerCourse() {
+        Course second = courseRepository.save(newCourse(instructor, "Databases"));
+        Course empty = courseRepository.save(newCourse(instructor, "Compilers"));
+        enroll(course, CourseEnrollment.EnrollmentStatus.COMPLETED);
+        enroll(course, CourseEnrollment.EnrollmentStatus.IN_PROGRESS);
+        enroll(course, CourseEnrollment.EnrollmentStatus.DROPPED);
+        enroll(course, CourseEnrollment.EnrollmentStatus.COMPLETED);
+        enroll(second, CourseEnrollment.EnrollmentStatus.ENROLLED);
+
+        assertInstructorReport(second, empty);
+    }
+
+    @Test
+    void testInstructorPerformanceReportInParallelChunks() {
+        Course second = courseRepository.save(newCourse(instructor, "Databases"));
+        Course empty = courseRepository.save(newCourse(instructor, "Compilers"));
+        enroll(course, CourseEnrollment.EnrollmentStatus.COMPLETED);
+        enroll(course, CourseEnrollment.EnrollmentStatus.IN_PROGRESS);
+        enroll(course, CourseEnrollment.EnrollmentStatus.DROPPED);
+        enroll(course, CourseEnrollment.EnrollmentStatus.COMPLETED);
+        enroll(second, CourseEnrollment.EnrollmentStatus.ENROLLED);
+
+        int chunkSize = (int) ReflectionTestUtils.getField(reportingService, "courseChunkSize");
+        ReflectionTestUtils.setField(reportingService, "courseChunkSize", 1);
+        try {
+            assertInstructorReport(second, empty);
+        } finally {
+            ReflectionTestUtils.setField(reportingService, "courseChunkSize", chunkSize);
+        }
+    }
+
+    @Test
+    void testInstructorReportProgressAndCancellation() {
+        courseRepository.save(newCourse(instructor, "Databases"));
+        courseRepository.save(newCourse(instructor, "Compilers"));
+        ReportDto request = new ReportDto();
+        request.setReportType("instructor_performance");
+        request.setUserId(instructor.getId());
+
+        int chunkSize = (int) ReflectionTestUtils.getField(reportingService, "courseChunkSize");
+        ReflectionTestUtils.setField(reportingService, "courseChunkSize", 1);
+        try {
+            List<Double> progress = new ArrayList<>();
+            Map<String, Object> report = reportingService.generateCustomReport(request, progress::add);
+            assertEquals(3, report.get("totalCourses"));
+            assertEquals(List.of(1.0 / 3, 2.0 / 3, 1.0), progress);
+
+            // A callback that throws abandons the report after the first range
+            assertThrows(CancellationException.class, () -> reportingService.generateCustomReport(request,
+                    fraction -> {
+                        throw new CancellationException();
+                    }));
+        } finally {
+            ReflectionTestUtils.setField(reportingService, "courseChunkSize", chunkSize);
+        }
+    }
+
+    @Test
+    void testCourseCompletionReportReadsRunningTotals() {
+        CourseDto courseDto = new CourseDto();
+        courseDto.setTitle("Operating Systems");
+        courseDto.setInstructorId(instructor.getId());
+        Course tracked = courseService.createCourse(courseDto);
+        User dropped = userRepository.save(newUser("student", User.UserRole.STUDENT));
+        courseService.enrollStudent(tracked.getId(), student.getId());
+        courseService.enrollStudent(tracked.getId(), dropped.getId());
+        courseService.dropStudent(tracked.getId(), dropped.getId());
+
+        long loads = enrollmentLoads();
+        assertCourseCompletionReport(tracked, 2, 0, 0.0);
+        assertEquals(loads, enrollmentLoads());
+    }
+
+    @Test
+    void testCourseCompletionReportForCourseWithoutStatsRow() {
+        CourseEnrollment completed = enroll(course, CourseEnrollment.EnrollmentStatus.COMPLETED, 100.0);
+        enroll(course, CourseEnrollment.EnrollmentStatus.IN_PROGRESS, 50.0);
+        enroll(course, CourseEnrollment.EnrollmentStatus.DROPPED, 30.0);
+        assertTrue(enrollmentStatsRepository.findById(course.getId()).isEmpty());
+        assertCourseCompletionReport(course, 3, 1, 60.0);
+
+        // The first change through the service counts the existing enrollments into a new stats row
+        courseService.enrollStudent(course.getId(), student.getId());
+        assertEquals(new CourseEnrollmentStats(course.getId(), 4, 1, 180.0),
+                enrollmentStatsRepository.findById(course.getId()).orElseThrow());
+        assertCourseCompletionReport(course, 4, 1, 45.0);
+
+        courseService.dropStudent(course.getId(), completed.getStudent().getId());
+        assertCourseCompletionReport(course, 4, 0, 45.0);
+    }
+
+    @Test
+    void testBackfillCreatesMissingStatsRows() {
+        enroll(course, CourseEnrollment.EnrollmentStatus.COMPLETED, 80.0);
+        enroll(course, CourseEnrollment.EnrollmentStatus.ENROLLED, 20.0);
+        Course empty = courseRepository.save(newCourse(instructor, "Compilers"));
+
+        courseService.backfillEnrollmentStats();
+
+        assertEquals(new CourseEnrollmentStats(course.getId(), 2, 1, 100.0),
+                enrollmentStatsRepository.findById(course.getId()).orElseThrow());
+        assertEquals(CourseEnrollmentStats.empty(empty.getId()),
+                enrollmentStatsRepository.findById(empty.getId()).orElseThrow());
+    }
+
+    @Test
+    void testActivityLogKeepsConcurrentlyLoggedActivities() throws Exception {
+        String prefix = "activity-" + UUID.randomUUID() + "-";
+        LocalDateTime start = LocalDateTime.now();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                int writer = thread;
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        reportingService.logActivity(prefix + writer + "-" + i);
+                    }
+                }));
+            }
+            // Reports iterate the log while it is being written
+            while (writers.stream().anyMatch(writer -> !writer.isDone())) {
+                reportingService.generateSystemActivityReport(start, LocalDateTime.now());
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Map<String, Object> report = reportingService.generateSystemActivityReport(start, LocalDateTime.now());
+        long logged = ((List<?>) report.get("activities")).stream()
+                .filter(activity -> activity.toString().startsWith(prefix))
+                .count();
+        assertEquals(8 * 500, logged);
+        assertEquals(report.get("totalActivities"), ((List<?>) report.get("activities")).size());
+    }
+
+    private void assertCourseCompletionReport(Course reported, long total, long completed, double average) {
+        Map<String, Object> report = reportingService.generateCourseCompletionReport(reported.getId());
+
+        assertEquals(reported.getTitle(), report.get("courseTitle"));
+        assertEquals(total, report.get("totalEnrollments"));
+        assertEquals(completed, report.get("completedEnrollments"));
+        assertEquals((double) completed / total * 100, (double) report.get("completionRate"), 1e-9);
+        assertEquals(average, (double) report.get("averageCompletionPercentage"), 1e-9);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void assertInstructorReport(Course second, Course empty) {
+        Map<String, Object> report = reportingService.generateInstructorPerformanceReport(instructor.getId(),
+                DAY_1, DAY_2);
+
+        assertEquals(3, report.get("totalCourses"));
+        List<Map<String, Object>> courseStats = (List<Map<String, Object>>) report.get("courseStatistics");
+        Map<Object, Map<String, Object>> byCourse = new HashMap<>();
+        courseStats.forEach(stat -> byCourse.put(stat.get("courseId"), stat));
+        assertEquals(4L, byCourse.get(course.getId()).get("totalEnrollments"));
+        assertEquals(2L, byCourse.get(course.getId()).get("completedEnrollments"));
+        assertEquals(50.0, byCourse.get(course.getId()).get("completionRate"));
+        assertEquals(1L, byCourse.get(second.getId()).get("totalEnrollments"));
+        assertEquals(0L, byCourse.get(second.getId()).get("completedEnrollments"));
+        assertEquals(0L, byCourse.get(empty.getId()).get("totalEnrollments"));
+        assertEquals(0.0, byCourse.get(empty.getId()).get("completionRate"));
+        assertEquals("Compilers", byCourse.get(empty.getId()).get("courseTitle"));
+    }
+
+    private void enroll(Course enrolledCourse, CourseEnrollment.EnrollmentStatus status) {
+        enroll(enrolledCourse, status, 0.0);
+    }
+
+    // Written straight to the repository, bypassing the course stats
+    private CourseEnrollment enroll(Course enrolledCourse, CourseEnrollment.EnrollmentStatus status,
+                                    double completionPercentage) {
+        CourseEnrollment enrollment = new CourseEnrollment();
+        enrollment.setCourse(enrolledCourse);
+        enrollment.setStudent(userRepository.save(newUser("student", User.UserRole.STUDENT)));
+        enrollment.setStatus(status);
+        enrollment.setCompletionPercentage(completionPercentage);
+        return enrollmentRepository.save(enrollment);
+    }
+
+    private void submit(Assignment assignment, LocalDateTime submittedOn, Double score) {
+        Submission submission = new Submission();
+        submission.setAssignment(assignment);
+        submission.setUser(student);
+        submission.setContent("answer");
+        submission.setScore(score);
+        submission.setGraded(score != null);
+        submission = submissionRepository.save(submission);
+        // submittedOn is set on insert; move it to the wanted time
+        jdbcTemplate.update("UPDATE submissions SET submitted_on = ? WHERE id = ?", submittedOn, submission.getId());
+    }
+
+    private long enrollmentLoads() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        return statistics.getEntityStatistics(CourseEnrollment.class.getName()).getLoadCount();
+    }
+
+    private long submissionLoads() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        return statistics.getEntityStatistics(Submission.class.getName()).getLoadCount();
+    }
+
+    private static User newUser(String role, User.UserRole userRole) {
+        String name = role + "-" + UUID.randomUUID();
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword("password");
+        user.setFirstName("Test");
+        user.setLastName(role);
+        user.setRole(userRole);
+        return user;
+    }
+
+    private static Course newCourse(User instructor, String title) {
+        Course course = new Course();
+        course.setTitle(title);
+        course.setInstructor(instructor);
+        return course;
+    }
+
+    private static Assignment newAssignment(Course course) {
+        Assignment assignment = new Assignment();
+        assignment.setTitle("Homework");
+        assignment.setCourse(course);
+        assignment.setDueDate(LocalDateTime.now().plusDays(7));
+        assignment.setMaxScore(100);
+        return assignment;
+    }
+}
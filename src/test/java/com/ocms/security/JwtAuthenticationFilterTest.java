@@ -0,0 +1,157 @@
+package com.ocms.security;
+
+import com.ocms.user.dto.UserRegistrationDto;
+import com.ocms.user.entity.User;
+import com.ocms.user.repository.UserRepository;
+import com.ocms.user.service.TokenRevocationService;
+import com.ocms.user.service.TokenVersionTable;
+import com.ocms.user.service.UserService;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class JwtAuthenticationFilterTest {
+
+    @Autowired
+    private JwtAuthenticationFilter filter;
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TokenVersionTable tokenVersionTable;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testStatelessPrincipalIsBuiltFromClaimsWithoutLoadingTheUser() throws Exception {
+        assertTrue(tokenVersionTable.isLoaded());
+        // Never saved: any database lookup for this user would fail and leave the request unauthenticated
+        User user = newUser(User.UserRole.INSTRUCTOR);
+        user.setId(Long.MAX_VALUE);
+
+        UserDetails principal = authenticate(filter, tokenFor(user));
+
+        JwtPrincipal jwtPrincipal = assertInstanceOf(JwtPrincipal.class, principal);
+        assertEquals(Long.MAX_VALUE, jwtPrincipal.getId());
+        assertEquals(user.getUsername(), jwtPrincipal.getUsername());
+        assertEquals(User.UserRole.INSTRUCTOR, jwtPrincipal.getRole());
+        assertEquals(user.getAuthorities(), principal.getAuthorities());
+    }
+
+    @Test
+    void testTokenIsRejectedOnceTheUserIsDeleted() throws Exception {
+        User user = userRepository.save(newUser(User.UserRole.STUDENT));
+        String token = tokenFor(user);
+        assertNotNull(authenticate(filter, token));
+
+        userService.deleteUser(user.getId());
+
+        assertNull(authenticate(filter, token));
+    }
+
+    @Test
+    void testTokenIsRejectedOnceThePasswordChanges() throws Exception {
+        User user = userRepository.save(newUser(User.UserRole.STUDENT));
+        String token = tokenFor(user);
+        assertNotNull(authenticate(filter, token));
+
+        UserRegistrationDto update = new UserRegistrationDto();
+        update.setPassword("new-password");
+        User updated = userService.updateUser(user.getId(), update);
+
+        assertNull(authenticate(filter, token));
+        assertNotNull(authenticate(filter, tokenFor(updated)));
+    }
+
+    @Test
+    void testFallsBackToDatabaseWhileVersionTableIsNotLoaded() throws Exception {
+        JwtAuthenticationFilter unloadedFilter = newFilter(new TokenVersionTable());
+        User user = userRepository.save(newUser(User.UserRole.STUDENT));
+        String token = tokenFor(user);
+
+        User principal = assertInstanceOf(User.class, authenticate(unloadedFilter, token));
+        assertEquals(user.getId(), principal.getId());
+
+        // The version is then checked against the user row instead
+        userService.revokeAllTokens(user.getId());
+        assertNull(authenticate(unloadedFilter, token));
+    }
+
+    @Test
+    void testFallsBackToDatabaseForTokensWithoutUserClaims() throws Exception {
+        User user = userRepository.save(newUser(User.UserRole.STUDENT));
+        UserDetails claimless = org.springframework.security.core.userdetails.User.withUsername(user.getUsername())
+                .password("password")
+                .roles(User.UserRole.STUDENT.name())
+                .build();
+        String token = tokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(claimless, null, claimless.getAuthorities()));
+
+        User principal = assertInstanceOf(User.class, authenticate(filter, token));
+        assertEquals(user.getId(), principal.getId());
+
+        userService.deleteUser(user.getId());
+        assertNull(authenticate(filter, token));
+    }
+
+    private JwtAuthenticationFilter newFilter(TokenVersionTable table) {
+        JwtAuthenticationFilter newFilter =
+                new JwtAuthenticationFilter(tokenProvider, userService, table, tokenRevocationService);
+        ReflectionTestUtils.setField(newFilter, "stateless", true);
+        return newFilter;
+    }
+
+    // The principal the filter put in the security context, or null if the request stayed unauthenticated
+    private static UserDetails authenticate(JwtAuthenticationFilter filter, String token)
+            throws ServletException, IOException {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null ? null : (UserDetails) authentication.getPrincipal();
+    }
+
+    private String tokenFor(User user) {
+        return tokenProvider.generateToken(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+
+    private static User newUser(User.UserRole role) {
+        String name = role.name().toLowerCase() + "-" + UUID.randomUUID();
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword("password");
+        user.setRole(role);
+        return user;
+    }
+}
@@ -0,0 +1,92 @@
+package com.ocms.security;
+
+import com.ocms.user.entity.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtTokenProviderTest {
+
+    private static final String SECRET =
+            "ocmsSecretKeyForJWTTokenGenerationAndValidation2024ocmsSecretKeyForJWTTokenGeneration";
+
+    private JwtTokenProvider newProvider(int expirationMillis) {
+        JwtTokenProvider provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(provider, "jwtExpirationInMs", expirationMillis);
+        ReflectionTestUtils.setField(provider, "verifiedTokenCacheMaxSize", 100L);
+        ReflectionTestUtils.setField(provider, "verifiedTokenCacheExpireAfterWriteSeconds", 300L);
+        provider.init();
+        return provider;
+    }
+
+    private static String tokenFor(JwtTokenProvider provider) {
+        User user = new User();
+        user.setId(7L);
+        user.setUsername("alice");
+        user.setRole(User.UserRole.STUDENT);
+        user.setTokenVersion(3);
+        return provider.generateToken(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+
+    @Test
+    void testValidateAndUsernameParseTheTokenOnce() {
+        JwtTokenProvider provider = newProvider(60_000);
+        String token = tokenFor(provider);
+
+        assertTrue(provider.validateToken(token));
+        assertEquals("alice", provider.getUsernameFromJWT(token));
+        Claims claims = provider.verify(token);
+
+        assertEquals(7L, provider.getUserId(claims));
+        assertEquals(3, provider.getTokenVersion(claims));
+        // Parsed on the first miss only; the other two calls were answered from the cache
+        assertEquals(1, provider.getVerifiedTokenCacheStats().misses());
+        assertEquals(2, provider.getVerifiedTokenCacheStats().hits());
+    }
+
+    @Test
+    void testTamperedTokenIsNeverServedFromCache() {
+        JwtTokenProvider provider = newProvider(60_000);
+        String token = tokenFor(provider);
+        assertTrue(provider.validateToken(token));
+
+        int signatureStart = token.lastIndexOf('.') + 1;
+        char first = token.charAt(signatureStart);
+        String tamperedSignature = token.substring(0, signatureStart) + (first == 'A' ? 'B' : 'A')
+                + token.substring(signatureStart + 1);
+        String[] parts = token.split("\\.");
+        String tamperedPayload = parts[0] + "." + parts[1].substring(0, parts[1].length() - 2) + "xx." + parts[2];
+
+        assertFalse(provider.validateToken(tamperedSignature));
+        assertFalse(provider.validateToken(tamperedPayload));
+        assertThrows(JwtException.class, () -> provider.getUsernameFromJWT(tamperedSignature));
+        // Invalid tokens are not cached either, so each check parses and rejects them again
+        assertFalse(provider.validateToken(tamperedSignature));
+        assertEquals(1, provider.getVerifiedTokenCacheStats().size());
+        assertTrue(provider.validateToken(token));
+    }
+
+    @Test
+    void testCachedTokenIsRejectedOnceExpired() throws InterruptedException {
+        // Expiry has second precision, so this token expires between 1 and 2 seconds from now
+        JwtTokenProvider provider = newProvider(2_000);
+        String token = tokenFor(provider);
+        Claims claims = provider.verify(token);
+        assertNotNull(claims);
+
+        long untilExpired = claims.getExpiration().getTime() - System.currentTimeMillis();
+        Thread.sleep(Math.max(untilExpired, 0) + 50);
+
+        long hitsBefore = provider.getVerifiedTokenCacheStats().hits();
+        assertNull(provider.verify(token));
+        // Found in the cache, rejected by its expiry and evicted
+        assertEquals(hitsBefore + 1, provider.getVerifiedTokenCacheStats().hits());
+        assertEquals(0, provider.getVerifiedTokenCacheStats().size());
+        assertFalse(provider.validateToken(token));
+    }
+}
@@ -0,0 +1,92 @@
+package com.ocms.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+// Per-request token verification as done by JwtAuthenticationFilter, for `activeTokens` users whose requests
+// are interleaved. twoParses mirrors the previous behaviour (validateToken then getUsernameFromJWT, each
+// building a new key and parser); singleParse verifies once with a shared parser; cachedVerify goes through
+// JwtTokenProvider.verify and its verified-token cache. The target is 50k requests/s across the request threads.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=JwtVerificationBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class JwtVerificationBenchmark {
+
+    private static final String SECRET = "ocmsSecretKeyForJWTTokenGenerationAndValidation2024ocmsSecretKeyForJWTTokenGeneration";
+
+    @Param({"1000"})
+    private int activeTokens;
+
+    private String[] tokens;
+    private JwtTokenProvider provider;
+    private JwtParser parser;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setUp() {
+        provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(provider, "jwtExpirationInMs", 86_400_000);
+        ReflectionTestUtils.setField(provider, "verifiedTokenCacheMaxSize", 10_000L);
+        ReflectionTestUtils.setField(provider, "verifiedTokenCacheExpireAfterWriteSeconds", 300L);
+        provider.init();
+        parser = Jwts.parserBuilder().setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes())).build();
+        tokens = new String[activeTokens];
+        for (int i = 0; i < activeTokens; i++) {
+            UserDetails user = User.withUsername("student" + i).password("password").roles("STUDENT").build();
+            tokens[i] = provider.generateToken(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+        }
+    }
+
+    @Benchmark
+    public String twoParses(Cursor cursor) {
+        String token = nextToken(cursor);
+        Jwts.parserBuilder().setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes())).build().parseClaimsJws(token);
+        return Jwts.parserBuilder().setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes())).build()
+                .parseClaimsJws(token).getBody().getSubject();
+    }
+
+    @Benchmark
+    public String singleParse(Cursor cursor) {
+        return parser.parseClaimsJws(nextToken(cursor)).getBody().getSubject();
+    }
+
+    @Benchmark
+    public String cachedVerify(Cursor cursor) {
+        Claims claims = provider.verify(nextToken(cursor));
+        return claims.getSubject();
+    }
+
+    private String nextToken(Cursor cursor) {
+        String token = tokens[cursor.next];
+        cursor.next = (cursor.next + 1) % tokens.length;
+        return token;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtVerificationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,128 @@
+package com.ocms.security;
+
+import com.ocms.common.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+
+    private PasswordHasher hasher;
+
+    @AfterEach
+    void tearDown() {
+        hasher.shutdown();
+    }
+
+    private PasswordHasher newHasher(PasswordEncoder encoder, int threads, int queueCapacity, long maxWaitMillis) {
+        PasswordHasher passwordHasher = new PasswordHasher(encoder);
+        ReflectionTestUtils.setField(passwordHasher, "threads", threads);
+        ReflectionTestUtils.setField(passwordHasher, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(passwordHasher, "maxWaitMillis", maxWaitMillis);
+        passwordHasher.init();
+        return passwordHasher;
+    }
+
+    @Test
+    void testEncodeAndMatchOnPool() {
+        hasher = newHasher(new BCryptPasswordEncoder(4), 2, 10, 5000);
+
+        String encoded = hasher.encode("secret");
+
+        assertTrue(hasher.matches("secret", encoded));
+        assertFalse(hasher.matches("wrong", encoded));
+        PasswordHasher.Stats stats = hasher.getStats();
+        assertEquals(3, stats.completed());
+        assertTrue(stats.averageHashMillis() > 0);
+        assertEquals(0, stats.rejected());
+    }
+
+    @Test
+    void testUpgradeEncodingWhenCostFactorRaised() {
+        String weak = new BCryptPasswordEncoder(4).encode("secret");
+        hasher = newHasher(new BCryptPasswordEncoder(5), 1, 10, 5000);
+
+        assertTrue(hasher.upgradeEncoding(weak));
+        assertFalse(hasher.upgradeEncoding(hasher.encode("secret")));
+        // The old hash still verifies until it is replaced
+        assertTrue(hasher.matches("secret", weak));
+    }
+
+    @Test
+    void testRejectsWhenSaturated() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        hasher = newHasher(blockingEncoder(release), 1, 1, 5000);
+
+        CompletableFuture<String> running = hasher.encodeAsync("a");
+        CompletableFuture<String> queued = hasher.encodeAsync("b");
+
+        ServiceUnavailableException e = assertThrows(ServiceUnavailableException.class, () -> hasher.encode("c"));
+        assertTrue(e.getRetryAfterSeconds() >= 1);
+        assertTrue(hasher.encodeAsync("d").isCompletedExceptionally());
+        assertEquals(2, hasher.getStats().rejected());
+
+        release.countDown();
+        assertEquals("hashed:a", running.get(5, TimeUnit.SECONDS));
+        assertEquals("hashed:b", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testGivesUpAfterMaxWait() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        hasher = newHasher(blockingEncoder(release), 1, 10, 50);
+
+        CompletableFuture<String> running = hasher.encodeAsync("a");
+
+        assertThrows(ServiceUnavailableException.class, () -> hasher.encode("b"));
+        assertEquals(1, hasher.getStats().timedOut());
+
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        // The abandoned request is skipped rather than hashed
+        Thread.sleep(100);
+        assertEquals(1, hasher.getStats().completed());
+    }
+
+    @Test
+    void testEncodeAllWaitsForQueueSpaceInsteadOfFailing() {
+        hasher = newHasher(new BCryptPasswordEncoder(4), 2, 1, 5000);
+        List<String> passwords = IntStream.range(0, 20).mapToObj(i -> "secret" + i).toList();
+
+        List<String> encoded = hasher.encodeAll(passwords);
+
+        assertEquals(20, encoded.size());
+        for (int i = 0; i < 20; i++) {
+            assertTrue(hasher.matches("secret" + i, encoded.get(i)));
+        }
+        assertEquals(0, hasher.getStats().rejected());
+    }
+
+    private static PasswordEncoder blockingEncoder(CountDownLatch release) {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hashed:" + rawPassword;
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return encode(rawPassword).equals(encodedPassword);
+            }
+        };
+    }
+}
\ No newline at end of file
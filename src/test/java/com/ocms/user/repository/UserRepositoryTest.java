@@ -0,0 +1,54 @@
+package com.ocms.user.repository;
+
+import com.ocms.user.entity.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class UserRepositoryTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void testPasswordUpgradeTouchesUpdatedAt() throws InterruptedException {
+        User user = userRepository.save(newUser());
+        Thread.sleep(20);
+        LocalDateTime before = LocalDateTime.now();
+        Thread.sleep(20);
+
+        assertEquals(1, userRepository.updatePasswordIfUnchanged(user.getId(), "password", "rehashed"));
+
+        User reloaded = userRepository.findById(user.getId()).orElseThrow();
+        assertEquals("rehashed", reloaded.getPassword());
+        assertTrue(reloaded.getUpdatedAt().isAfter(before));
+        // Visible to the refreshes that pick up rows changed on other instances
+        assertTrue(userRepository.findIdentifiersUpdatedSince(before).stream()
+                .anyMatch(identifiers -> identifiers.getId().equals(user.getId())));
+    }
+
+    @Test
+    void testPasswordUpgradeIsSkippedOnceThePasswordChanged() {
+        User user = userRepository.save(newUser());
+
+        assertEquals(0, userRepository.updatePasswordIfUnchanged(user.getId(), "stale", "rehashed"));
+
+        assertEquals("password", userRepository.findById(user.getId()).orElseThrow().getPassword());
+    }
+
+    private static User newUser() {
+        String name = "student-" + UUID.randomUUID();
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword("password");
+        user.setRole(User.UserRole.STUDENT);
+        return user;
+    }
+}
@@ -0,0 +1,93 @@
+package com.ocms.user.service;
+
+import com.ocms.common.datastructures.BloomFilter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.*;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// Uniqueness pre-check of one registration, with `users` users already registered: the existsByUsername and
+// existsByEmail queries alone, as registerUser did before, and the UserIdentifierFilter bloom filters in front of
+// them. Each registration brings a new username and email, the common case during bulk sign-up; the time for 1M
+// registrations is the reported average times 1M. The table is in-process H2 with the same unique indexes, so
+// the queries here cost no network round trip and the gap against MySQL is wider than measured.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=RegistrationPrecheckBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegistrationPrecheckBenchmark {
+
+    @Param({"1000000"})
+    private int users;
+
+    private Connection connection;
+    private PreparedStatement existsByUsername;
+    private PreparedStatement existsByEmail;
+    private BloomFilter usernames;
+    private BloomFilter emails;
+    private long next;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:registration;MODE=MySQL", "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, username VARCHAR(255) NOT NULL UNIQUE, " +
+                    "email VARCHAR(255) NOT NULL UNIQUE)");
+            statement.execute("INSERT INTO users SELECT x, 'user' || x, 'user' || x || '@example.com' " +
+                    "FROM SYSTEM_RANGE(1, " + users + ")");
+        }
+        existsByUsername = connection.prepareStatement("SELECT 1 FROM users WHERE username = ? LIMIT 1");
+        existsByEmail = connection.prepareStatement("SELECT 1 FROM users WHERE email = ? LIMIT 1");
+
+        // Loaded the way UserIdentifierFilter loads them at startup
+        usernames = new BloomFilter(users, 0.01);
+        emails = new BloomFilter(users, 0.01);
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT username, email FROM users")) {
+            while (rows.next()) {
+                usernames.put(rows.getString(1).toLowerCase(Locale.ROOT));
+                emails.put(rows.getString(2).toLowerCase(Locale.ROOT));
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public boolean queriesOnly() throws SQLException {
+        long id = next++;
+        return exists(existsByUsername, "new-user" + id) || exists(existsByEmail, "new-user" + id + "@example.com");
+    }
+
+    @Benchmark
+    public boolean filterThenQueries() throws SQLException {
+        long id = next++;
+        String username = "new-user" + id;
+        String email = "new-user" + id + "@example.com";
+        return usernames.mightContain(username.toLowerCase(Locale.ROOT)) && exists(existsByUsername, username)
+                || emails.mightContain(email.toLowerCase(Locale.ROOT)) && exists(existsByEmail, email);
+    }
+
+    private static boolean exists(PreparedStatement query, String value) throws SQLException {
+        query.setString(1, value);
+        try (ResultSet result = query.executeQuery()) {
+            return result.next();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RegistrationPrecheckBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
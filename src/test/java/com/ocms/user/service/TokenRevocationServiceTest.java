@@ -0,0 +1,158 @@
+package com.ocms.user.service;
+
+import com.ocms.security.JwtTokenProvider;
+import com.ocms.user.entity.RevokedToken;
+import com.ocms.user.entity.User;
+import com.ocms.user.repository.RevokedTokenRepository;
+import com.ocms.user.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// MockMvc is built over the shared context rather than through @AutoConfigureMockMvc, whose separate context would
+// recreate the in-memory schema under the other test classes' enrollment index
+@SpringBootTest
+class TokenRevocationServiceTest {
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    private MockMvc mockMvc;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .apply(springSecurity())
+                .build();
+        user = userRepository.save(newUser());
+    }
+
+    @Test
+    void testLogoutRejectsOnlyThatToken() throws Exception {
+        String token = tokenFor(user);
+        String otherSession = tokenFor(user);
+        mockMvc.perform(get("/api/users/" + user.getId()).header(HttpHeaders.AUTHORIZATION, bearer(token)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/users/logout").header(HttpHeaders.AUTHORIZATION, bearer(token)))
+                .andExpect(status().isOk());
+
+        assertTrue(tokenRevocationService.isRevoked(tokenProvider.verify(token).getId()));
+        assertTrue(revokedTokenRepository.findAll().stream()
+                .anyMatch(row -> row.getTokenId().equals(tokenProvider.verify(token).getId())));
+        mockMvc.perform(get("/api/users/" + user.getId()).header(HttpHeaders.AUTHORIZATION, bearer(token)))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/users/" + user.getId()).header(HttpHeaders.AUTHORIZATION, bearer(otherSession)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testRevokeTokensRejectsEveryTokenIssuedSoFar() throws Exception {
+        String token = tokenFor(user);
+        String otherSession = tokenFor(user);
+
+        mockMvc.perform(post("/api/users/" + user.getId() + "/revoke-tokens")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(token)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/users/" + user.getId()).header(HttpHeaders.AUTHORIZATION, bearer(token)))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/users/" + user.getId()).header(HttpHeaders.AUTHORIZATION, bearer(otherSession)))
+                .andExpect(status().isForbidden());
+        String newSession = tokenFor(userRepository.findById(user.getId()).orElseThrow());
+        mockMvc.perform(get("/api/users/" + user.getId()).header(HttpHeaders.AUTHORIZATION, bearer(newSession)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testRefreshPicksUpTokensRevokedOnAnotherInstance() {
+        String tokenId = UUID.randomUUID().toString();
+        // Written straight to the table, as another instance would
+        revokedTokenRepository.save(new RevokedToken(null, tokenId, user.getId(),
+                LocalDateTime.now().plusHours(1), null));
+        assertFalse(tokenRevocationService.isRevoked(tokenId));
+
+        tokenRevocationService.refreshRevokedTokens();
+
+        assertTrue(tokenRevocationService.isRevoked(tokenId));
+    }
+
+    @Test
+    void testPruneDropsExpiredRevocationsAndKeepsTheRest() throws InterruptedException {
+        String longLived = UUID.randomUUID().toString();
+        String shortLived = UUID.randomUUID().toString();
+        String alreadyExpired = UUID.randomUUID().toString();
+        tokenRevocationService.revoke(longLived, user.getId(), LocalDateTime.now().plusHours(1));
+        tokenRevocationService.revoke(shortLived, user.getId(), LocalDateTime.now().plusNanos(200_000_000));
+        revokedTokenRepository.save(new RevokedToken(null, alreadyExpired, user.getId(),
+                LocalDateTime.now().minusMinutes(1), null));
+        assertTrue(tokenRevocationService.isRevoked(shortLived));
+
+        Thread.sleep(300);
+        tokenRevocationService.pruneExpiredRevocations();
+
+        assertTrue(tokenRevocationService.isRevoked(longLived));
+        assertFalse(tokenRevocationService.isRevoked(shortLived));
+        var remaining = revokedTokenRepository.findAll().stream().map(RevokedToken::getTokenId).toList();
+        assertTrue(remaining.contains(longLived));
+        assertFalse(remaining.contains(shortLived));
+        assertFalse(remaining.contains(alreadyExpired));
+    }
+
+    @Test
+    void testExpiredOrMissingTokensAreNotRecorded() {
+        String expired = UUID.randomUUID().toString();
+        tokenRevocationService.revoke(expired, user.getId(), LocalDateTime.now().minusSeconds(1));
+
+        assertFalse(tokenRevocationService.isRevoked(expired));
+        assertFalse(tokenRevocationService.isRevoked(null));
+        assertThrows(IllegalArgumentException.class,
+                () -> tokenRevocationService.revoke(null, user.getId(), LocalDateTime.now().plusHours(1)));
+    }
+
+    private String tokenFor(User user) {
+        return tokenProvider.generateToken(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+
+    private static String bearer(String token) {
+        return "Bearer " + token;
+    }
+
+    private static User newUser() {
+        String name = "student-" + UUID.randomUUID();
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword("password");
+        user.setRole(User.UserRole.STUDENT);
+        return user;
+    }
+}
@@ -0,0 +1,47 @@
+package com.ocms.user.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenVersionTableTest {
+
+    @Test
+    void testUnknownUsersAreAtVersionZero() {
+        TokenVersionTable table = new TokenVersionTable();
+
+        assertEquals(0, table.getVersion(42L));
+        assertTrue(table.isCurrent(42L, 0));
+        assertFalse(table.isCurrent(42L, 1));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    void testVersionsOnlyMoveForward() {
+        TokenVersionTable table = new TokenVersionTable();
+        table.advance(1L, 3);
+
+        // A refresh that read the row before the local bump must not roll it back
+        table.advance(1L, 2);
+
+        assertEquals(3, table.getVersion(1L));
+        assertFalse(table.isCurrent(1L, 2));
+        assertTrue(table.isCurrent(1L, 3));
+    }
+
+    @Test
+    void testLoadMergesRowsAndMarksTableLoaded() {
+        TokenVersionTable table = new TokenVersionTable();
+        table.advance(1L, 5);
+        assertFalse(table.isLoaded());
+
+        table.load(List.of(new long[]{1L, 4L}, new long[]{2L, 1L}));
+
+        assertTrue(table.isLoaded());
+        assertEquals(5, table.getVersion(1L));
+        assertEquals(1, table.getVersion(2L));
+        assertEquals(2, table.size());
+    }
+}
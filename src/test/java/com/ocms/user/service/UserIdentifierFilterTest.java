@@ -0,0 +1,106 @@
+package com.ocms.user.service;
+
+import com.ocms.user.dto.UserRegistrationDto;
+import com.ocms.user.entity.User;
+import com.ocms.user.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The filter is loaded when the application context becomes ready, so every test starts with it loaded
+@SpringBootTest
+class UserIdentifierFilterTest {
+
+    @Autowired
+    private UserIdentifierFilter userIdentifierFilter;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void testRegisteredIdentifiersAreAdded() {
+        String name = "student-" + UUID.randomUUID();
+        assertFalse(userIdentifierFilter.mightContainUsername(name));
+
+        userService.registerUser(newRegistration(name, name + "@example.com"));
+
+        assertTrue(userIdentifierFilter.mightContainUsername(name));
+        assertTrue(userIdentifierFilter.mightContainUsername(name.toUpperCase()));
+        assertTrue(userIdentifierFilter.mightContainEmail(name + "@example.com"));
+        assertFalse(userIdentifierFilter.mightContainEmail("other-" + name + "@example.com"));
+    }
+
+    @Test
+    void testDuplicatesAreStillRejected() {
+        String name = "student-" + UUID.randomUUID();
+        userService.registerUser(newRegistration(name, name + "@example.com"));
+
+        IllegalArgumentException username = assertThrows(IllegalArgumentException.class,
+                () -> userService.registerUser(newRegistration(name, "other-" + name + "@example.com")));
+        assertEquals("Username already exists", username.getMessage());
+        IllegalArgumentException email = assertThrows(IllegalArgumentException.class,
+                () -> userService.registerUser(newRegistration("other-" + name, name + "@example.com")));
+        assertEquals("Email already exists", email.getMessage());
+    }
+
+    @Test
+    void testUserMissingFromFilterIsRejectedByUniqueConstraint() {
+        // Written around the service, as a registration on another instance would be
+        String name = "student-" + UUID.randomUUID();
+        userRepository.save(newUser(name));
+        assertFalse(userIdentifierFilter.mightContainUsername(name));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> userService.registerUser(newRegistration(name, "other-" + name + "@example.com")));
+        assertEquals("Username already exists", e.getMessage());
+    }
+
+    @Test
+    void testRefreshPicksUpUsersFromOtherInstances() {
+        String name = "student-" + UUID.randomUUID();
+        userRepository.save(newUser(name));
+
+        userIdentifierFilter.refreshIdentifiers();
+
+        assertTrue(userIdentifierFilter.mightContainUsername(name));
+        assertTrue(userIdentifierFilter.mightContainEmail(name + "@example.com"));
+    }
+
+    @Test
+    void testEmailChangeIsAdded() {
+        String name = "student-" + UUID.randomUUID();
+        User user = userService.registerUser(newRegistration(name, name + "@example.com"));
+        UserRegistrationDto update = new UserRegistrationDto();
+        update.setEmail("new-" + name + "@example.com");
+
+        userService.updateUser(user.getId(), update);
+
+        assertTrue(userIdentifierFilter.mightContainEmail("new-" + name + "@example.com"));
+    }
+
+    private static UserRegistrationDto newRegistration(String username, String email) {
+        UserRegistrationDto registration = new UserRegistrationDto();
+        registration.setUsername(username);
+        registration.setEmail(email);
+        registration.setPassword("password");
+        registration.setFirstName("Test");
+        registration.setLastName("Student");
+        return registration;
+    }
+
+    private static User newUser(String name) {
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword("password");
+        user.setRole(User.UserRole.STUDENT);
+        return user;
+    }
+}
@@ -0,0 +1,117 @@
+package com.ocms.user.service;
+
+import com.ocms.user.dto.UserImportResultDto;
+import com.ocms.user.entity.User;
+import com.ocms.user.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class UserImportServiceTest {
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private UserIdentifierFilter userIdentifierFilter;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Test
+    void testCsvImportInsertsValidRowsAndReportsTheRest() throws IOException {
+        String prefix = "csv-" + UUID.randomUUID().toString().substring(0, 8);
+        User existing = userRepository.save(newUser(prefix + "-existing"));
+        userIdentifierFilter.refreshIdentifiers();
+        // Saved after the refresh, as if on another instance: caught by the unique constraint instead of the query
+        User unseen = userRepository.save(newUser(prefix + "-unseen"));
+        String csv = String.join("\n",
+                "username,email,password,firstName,lastName,role",
+                prefix + "-ann," + prefix + "-ann@example.com,secret1,Ann,Lee,instructor",
+                prefix + "-bob," + prefix + "-bob@example.com,\"se,cr\"\"et\",Bob,\"Smith, Jr.\",",
+                "",
+                prefix + "-ann," + prefix + "-other@example.com,secret1,Ann,Lee,STUDENT",
+                existing.getUsername() + "," + prefix + "-new@example.com,secret1,Old,User,STUDENT",
+                prefix + "-bad,not-an-email,123,Bad,Row,STUDENT",
+                prefix + "-role," + prefix + "-role@example.com,secret1,Role,Less,PRINCIPAL",
+                prefix + "-carl," + unseen.getEmail() + ",secret1,Carl,Jones,STUDENT");
+
+        UserImportResultDto result = userImportService.importUsers(stream(csv), UserImportService.Format.CSV);
+
+        assertEquals(7, result.getTotalRows());
+        assertEquals(2, result.getImported());
+        assertEquals(5, result.getFailed());
+        assertEquals(List.of(5L, 6L, 7L, 8L, 9L),
+                result.getErrors().stream().map(UserImportResultDto.RowError::getLine).toList());
+        assertEquals("Duplicate username in import", result.getErrors().get(0).getMessage());
+        assertEquals("Username already exists", result.getErrors().get(1).getMessage());
+        assertEquals("email: Email should be valid; password: Password must be at least 6 characters",
+                result.getErrors().get(2).getMessage());
+        assertEquals("Invalid role: PRINCIPAL", result.getErrors().get(3).getMessage());
+        assertEquals("Email already exists", result.getErrors().get(4).getMessage());
+
+        User ann = userRepository.findByUsername(prefix + "-ann").orElseThrow();
+        assertEquals(User.UserRole.INSTRUCTOR, ann.getRole());
+        assertTrue(passwordEncoder.matches("secret1", ann.getPassword()));
+        assertNotNull(ann.getCreatedAt());
+        assertTrue(ann.isEnabled());
+        User bob = userRepository.findByUsername(prefix + "-bob").orElseThrow();
+        assertEquals(User.UserRole.STUDENT, bob.getRole());
+        assertEquals("Smith, Jr.", bob.getLastName());
+        assertTrue(passwordEncoder.matches("se,cr\"et", bob.getPassword()));
+        assertTrue(userIdentifierFilter.mightContainUsername(prefix + "-bob"));
+    }
+
+    @Test
+    void testNdjsonImport() throws IOException {
+        String prefix = "json-" + UUID.randomUUID().toString().substring(0, 8);
+        String ndjson = String.join("\n",
+                "{\"username\":\"" + prefix + "-a\",\"email\":\"" + prefix + "-a@example.com\",\"password\":\"secret1\","
+                        + "\"firstName\":\"A\",\"lastName\":\"B\"}",
+                "{\"username\":\"" + prefix + "-b\",",
+                "{\"username\":\"" + prefix + "-c\",\"email\":\"" + prefix + "-A@EXAMPLE.COM\",\"password\":\"secret1\","
+                        + "\"firstName\":\"C\",\"lastName\":\"D\"}");
+
+        UserImportResultDto result = userImportService.importUsers(stream(ndjson), UserImportService.Format.NDJSON);
+
+        assertEquals(3, result.getTotalRows());
+        assertEquals(1, result.getImported());
+        assertEquals(2, result.getErrors().get(0).getLine());
+        assertTrue(result.getErrors().get(0).getMessage().startsWith("Invalid JSON"));
+        assertEquals("Duplicate email in import", result.getErrors().get(1).getMessage());
+        assertTrue(userRepository.existsByUsername(prefix + "-a"));
+    }
+
+    @Test
+    void testCsvHeaderMustNameRequiredColumns() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> userImportService.importUsers(stream("username,email\nx,y"), UserImportService.Format.CSV));
+        assertEquals("CSV header is missing column: password", e.getMessage());
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static User newUser(String name) {
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword("password");
+        user.setRole(User.UserRole.STUDENT);
+        return user;
+    }
+}